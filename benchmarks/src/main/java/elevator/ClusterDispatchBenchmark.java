@@ -0,0 +1,86 @@
+package elevator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatch throughput of four threads submitting to a cluster of one, two
+ * or four buildings of 64 elevators. Every thread sticks to one building, so
+ * with one building all of them contend for its controller's lock and with
+ * four each has a controller of its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ClusterDispatchBenchmark {
+
+    @Param({"1", "2", "4"})
+    int buildings;
+
+    private ElevatorCluster cluster;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup
+    public void setUp(){
+        Random random = new Random(42);
+        List<ElevatorController> controllers = new ArrayList<ElevatorController>();
+        for(int b=0; b<buildings; b++){
+            // Nobody ever gets off, so no elevator may fill up
+            BuildingConfig building = BuildingConfig.builder().id("building-" + b).elevators(64).floors(0, 63)
+                    .capacity(Integer.MAX_VALUE).build();
+            ElevatorController controller = new DiscreteEventSimulator(building).getController();
+            for(Elevator elevator : controller.getElevatorList()){
+                elevator.setCurrentFloor(random.nextInt(64));
+                controller.updateElevatorLists(elevator);
+            }
+            controllers.add(controller);
+        }
+        cluster = new ElevatorCluster(controllers);
+    }
+
+    @State(Scope.Thread)
+    public static class Submitter {
+        private ElevatorRequest[] requests;
+        private int next;
+
+        @Setup
+        public void setUp(ClusterDispatchBenchmark benchmark){
+            int thread = benchmark.threads.getAndIncrement();
+            String building = "building-" + (thread % benchmark.buildings);
+            Random random = new Random(thread);
+            requests = new ElevatorRequest[1024];
+            for(int i=0; i<requests.length; i++){
+                requests[i] = new ElevatorRequest(building, random.nextInt(64), random.nextInt(64));
+            }
+        }
+
+        ElevatorRequest nextRequest(){
+            ElevatorRequest request = requests[next];
+            next = (next + 1) & (requests.length - 1);
+            return request;
+        }
+    }
+
+    @Benchmark
+    public Elevator selectElevator(Submitter submitter){
+        ElevatorRequest request = submitter.nextRequest();
+        Elevator elevator = cluster.selectElevator(request);
+        // Apply the posted stops so inboxes do not grow without bound, under
+        // the building's lock as the elevators of one building are not
+        // stepped concurrently
+        ElevatorController controller = cluster.route(request);
+        synchronized (controller){
+            elevator.drainInbox();
+        }
+        return elevator;
+    }
+}
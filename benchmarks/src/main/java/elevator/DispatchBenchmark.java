@@ -0,0 +1,69 @@
+package elevator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of picking an elevator for a request, across fleet sizes and
+ * building heights. Elevators are spread over the building and never move,
+ * so every invocation sees the same fleet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    @Param({"16", "256", "4096"})
+    int elevators;
+
+    @Param({"16", "64", "256"})
+    int floors;
+
+    private ElevatorController controller;
+    private ElevatorRequest[] requests;
+    private int next;
+
+    @Setup
+    public void setUp(){
+        Random random = new Random(42);
+        // Nobody ever gets off, so no elevator may fill up
+        BuildingConfig building = BuildingConfig.builder().elevators(elevators).floors(0, floors - 1)
+                .capacity(Integer.MAX_VALUE).build();
+        controller = new DiscreteEventSimulator(building).getController();
+        for(Elevator elevator : controller.getElevatorList()){
+            elevator.setCurrentFloor(random.nextInt(floors));
+            controller.updateElevatorLists(elevator);
+        }
+
+        requests = new ElevatorRequest[1024];
+        for(int i=0; i<requests.length; i++){
+            requests[i] = new ElevatorRequest(random.nextInt(floors), random.nextInt(floors));
+        }
+    }
+
+    private ElevatorRequest nextRequest(){
+        ElevatorRequest request = requests[next];
+        next = (next + 1) & (requests.length - 1);
+        return request;
+    }
+
+    @Benchmark
+    public Elevator findElevator(){
+        ElevatorRequest request = nextRequest();
+        ElevatorState direction = request.getTargetFloor() > request.getRequestFloor() ? ElevatorState.UP : ElevatorState.DOWN;
+        return controller.findElevator(direction, request.getRequestFloor());
+    }
+
+    @Benchmark
+    public Elevator selectElevator(){
+        Elevator elevator = controller.selectElevator(nextRequest());
+        // Apply the posted stops so inboxes do not grow without bound
+        elevator.drainInbox();
+        return elevator;
+    }
+}
@@ -0,0 +1,112 @@
+package elevator;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations elevators perform on their floor stop sets while moving, on the
+ * FloorSet bitset elevators use and on the boxed skip list set they used to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StopSetBenchmark {
+
+    @Param({"16", "64", "256"})
+    int floors;
+
+    private NavigableSet<Integer> floorStops;
+    private FloorSet floorBits;
+    private int floor;
+
+    @Setup
+    public void setUp(){
+        floorStops = new ConcurrentSkipListSet<Integer>();
+        floorBits = new FloorSet(floors);
+        for(int i=0; i<floors; i+=3){
+            floorStops.add(i);
+            floorBits.add(i);
+        }
+    }
+
+    private int nextFloor(){
+        floor = floor + 7 < floors ? floor + 7 : floor + 7 - floors;
+        return floor;
+    }
+
+    @Benchmark
+    public void addRemove(Blackhole blackhole){
+        int f = nextFloor();
+        if(floorStops.add(f)) {
+            floorStops.remove(f);
+        } else {
+            // Keep the set as it was set up
+            floorStops.remove(f);
+            floorStops.add(f);
+        }
+        blackhole.consume(floorStops);
+    }
+
+    @Benchmark
+    public Integer higher(){
+        return floorStops.higher(nextFloor());
+    }
+
+    @Benchmark
+    public Integer lower(){
+        return floorStops.lower(nextFloor());
+    }
+
+    @Benchmark
+    public boolean contains(){
+        return floorStops.contains(nextFloor());
+    }
+
+    @Benchmark
+    public Integer pollFirstAdd(){
+        Integer first = floorStops.pollFirst();
+        floorStops.add(first);
+        return first;
+    }
+
+    @Benchmark
+    public void bitsetAddRemove(Blackhole blackhole){
+        int f = nextFloor();
+        if(floorBits.add(f)) {
+            floorBits.remove(f);
+        } else {
+            floorBits.remove(f);
+            floorBits.add(f);
+        }
+        blackhole.consume(floorBits);
+    }
+
+    @Benchmark
+    public int bitsetHigher(){
+        return floorBits.higher(nextFloor());
+    }
+
+    @Benchmark
+    public int bitsetLower(){
+        return floorBits.lower(nextFloor());
+    }
+
+    @Benchmark
+    public boolean bitsetContains(){
+        return floorBits.contains(nextFloor());
+    }
+
+    @Benchmark
+    public int bitsetPollFirstAdd(){
+        int first = floorBits.pollFirst();
+        floorBits.add(first);
+        return first;
+    }
+}
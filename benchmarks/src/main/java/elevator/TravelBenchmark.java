@@ -0,0 +1,45 @@
+package elevator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an elevator travelling between two stops, span floors apart, one
+ * step per floor until it is idle again
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TravelBenchmark {
+
+    @Param({"4", "16", "64", "256"})
+    int span;
+
+    private Elevator elevator;
+    private boolean up = true;
+
+    @Setup
+    public void setUp(){
+        BuildingConfig building = BuildingConfig.builder().elevators(1).floors(0, span).build();
+        elevator = new DiscreteEventSimulator(building).getController().getElevatorList().get(0);
+    }
+
+    @Benchmark
+    public int travel(){
+        if(up){
+            elevator.submitStops(ElevatorState.UP, 0, span);
+        } else {
+            elevator.submitStops(ElevatorState.DOWN, span, 0);
+        }
+        up = !up;
+        int steps = 0;
+        while(elevator.step() != Elevator.IDLE){
+            steps++;
+        }
+        return steps;
+    }
+}
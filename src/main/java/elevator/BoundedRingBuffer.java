@@ -0,0 +1,95 @@
+package elevator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed size, lock-free ring buffer that any number of threads can offer to
+ * and one thread at a time drains. Every slot carries a sequence number telling
+ * producers whether it is free and the consumer whether it has been filled,
+ * so neither side ever blocks. Offering to a full buffer fails right away.
+ */
+final class BoundedRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    // Only advanced by the consumer. Volatile because the consumer need not
+    // always be the same thread, as long as there is only one at a time.
+    private volatile long head;
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     */
+    BoundedRingBuffer(int capacity){
+        if(capacity < 1){
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity){
+            size <<= 1;
+        }
+        mask = size - 1;
+        slots = new AtomicReferenceArray<E>(size);
+        sequences = new AtomicLongArray(size);
+        for(int i=0; i<size; i++){
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity(){
+        return mask + 1;
+    }
+
+    /**
+     * @param element
+     * @return false if the buffer is full
+     */
+    boolean offer(E element){
+        while(true){
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if(sequence == position){
+                if(tail.compareAndSet(position, position + 1)){
+                    slots.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if(sequence < position){
+                // The consumer has not freed this slot since the last lap
+                return false;
+            }
+            // Another producer took this slot, try the next one
+        }
+    }
+
+    /**
+     * Move up to max elements into the given array. Consumer only.
+     * @return Number of elements moved
+     */
+    int drainTo(E[] target, int max){
+        int count = 0;
+        int limit = Math.min(max, target.length);
+        while(count < limit){
+            int index = (int) head & mask;
+            if(sequences.get(index) != head + 1){
+                // Empty, or a producer has claimed the slot but not filled it yet
+                break;
+            }
+            target[count++] = slots.get(index);
+            slots.lazySet(index, null);
+            sequences.set(index, head + mask + 1);
+            head++;
+        }
+        return count;
+    }
+
+    boolean isEmpty(){
+        long position = head;
+        return sequences.get((int) position & mask) != position + 1;
+    }
+}
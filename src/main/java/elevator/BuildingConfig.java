@@ -0,0 +1,504 @@
+package elevator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Layout of a building: how many elevators it has, how many requests each
+ * can carry, which floors exist, and which floors every elevator serves. Elevators outside any zone serve every
+ * floor; a zone restricts a range of elevators to some of the floors, e.g.
+ * an express bank serving the lobby and the upper floors only.
+ * Built with a Builder, or read from properties:
+ * <pre>
+ * elevator.cars=32
+ * elevator.capacity=12
+ * elevator.floors=0-60
+ * elevator.zones=low,high
+ * elevator.zone.low.cars=0-15
+ * elevator.zone.low.floors=0-30
+ * elevator.zone.high.cars=16-31
+ * elevator.zone.high.floors=0,31-60
+ * </pre>
+ * Elevators move as described by a MotionProfile, MotionProfile.UNIFORM
+ * unless elevator.motion.* keys are set, and those of a zone as further
+ * set by elevator.zone.&lt;name&gt;.motion.* keys.
+ * Every building has an id, "default" unless set, which requests use to
+ * find their building when one process runs several, see ElevatorCluster.
+ * Those are configured by listing their ids, with the keys above under
+ * elevator.building.&lt;id&gt;. instead of elevator., e.g.
+ * <pre>
+ * elevator.buildings=north,south
+ * elevator.building.north.cars=8
+ * elevator.building.north.floors=0-30
+ * elevator.building.south.cars=4
+ * </pre>
+ */
+public final class BuildingConfig {
+
+    static final String PREFIX = "elevator.";
+
+    // System property naming a properties file to read the configuration from
+    public static final String CONFIG_FILE_PROPERTY = PREFIX + "config";
+
+    public static final String DEFAULT_ID = "default";
+
+    static final int DEFAULT_ELEVATORS = 16;
+    static final int DEFAULT_CAPACITY = 12;
+    static final int DEFAULT_LOWEST_FLOOR = 0;
+    static final int DEFAULT_HIGHEST_FLOOR = 15;
+
+    private final String id;
+    private final int numberOfElevators;
+    private final int capacity;
+    private final int lowestFloor;
+    private final int highestFloor;
+
+    // Indexed by elevator id. Elevators of the same zone share one set, and
+    // must never modify it.
+    private final FloorSet[] servedFloors;
+
+    // Indexed by elevator id
+    private final MotionProfile[] motionProfiles;
+
+    private BuildingConfig(Builder builder){
+        this.id = builder.id;
+        this.numberOfElevators = builder.numberOfElevators;
+        this.capacity = builder.capacity;
+        this.lowestFloor = builder.lowestFloor;
+        this.highestFloor = builder.highestFloor;
+
+        FloorSet allFloors = new FloorSet(highestFloor + 1);
+        allFloors.addRange(lowestFloor, highestFloor);
+        servedFloors = new FloorSet[numberOfElevators];
+        Arrays.fill(servedFloors, allFloors);
+
+        for(Zone zone : builder.zones){
+            if(zone.lastElevator >= numberOfElevators){
+                throw new IllegalArgumentException("Zone " + zone.name + " has elevator " + zone.lastElevator
+                        + " but there are only " + numberOfElevators);
+            }
+            if(zone.floors.isEmpty() || zone.floors.first() < lowestFloor || zone.floors.last() > highestFloor){
+                throw new IllegalArgumentException("Zone " + zone.name + " floors " + zone.floors
+                        + " are not within " + lowestFloor + "-" + highestFloor);
+            }
+            for(int id=zone.firstElevator; id<=zone.lastElevator; id++){
+                if(servedFloors[id] != allFloors){
+                    throw new IllegalArgumentException("Elevator " + id + " is in more than one zone");
+                }
+                servedFloors[id] = zone.floors;
+            }
+        }
+
+        motionProfiles = new MotionProfile[numberOfElevators];
+        Arrays.fill(motionProfiles, builder.motionProfile);
+        for(MotionRange range : builder.motionRanges){
+            if(range.lastElevator >= numberOfElevators){
+                throw new IllegalArgumentException("Motion profile for elevator " + range.lastElevator
+                        + " but there are only " + numberOfElevators);
+            }
+            Arrays.fill(motionProfiles, range.firstElevator, range.lastElevator + 1, range.profile);
+        }
+    }
+
+    public static Builder builder(){
+        return new Builder();
+    }
+
+    /**
+     * @return 16 elevators of 12 serving floors 0 to 15
+     */
+    public static BuildingConfig defaults(){
+        return builder().build();
+    }
+
+    /**
+     * Read the configuration from system properties, and from the file named
+     * by the elevator.config system property if set. System properties take
+     * precedence over the file. Anything not set keeps its default.
+     * @return Configuration
+     * @throws IllegalArgumentException if the file cannot be read or a value is invalid
+     */
+    public static BuildingConfig fromSystemProperties(){
+        return fromProperties(systemProperties());
+    }
+
+    /**
+     * Read the configuration of every building listed by elevator.buildings,
+     * from system properties and the elevator.config file like
+     * fromSystemProperties()
+     * @return Configuration of every building, or of the only one if
+     * elevator.buildings is not set
+     * @throws IllegalArgumentException if the file cannot be read or a value is invalid
+     */
+    public static List<BuildingConfig> buildingsFromSystemProperties(){
+        return buildingsFromProperties(systemProperties());
+    }
+
+    /**
+     * @param properties Keys as described by the class documentation, anything else is ignored
+     * @return Configuration of every building listed by elevator.buildings,
+     * or of the only one if that is not set
+     * @throws IllegalArgumentException if a value is invalid
+     */
+    public static List<BuildingConfig> buildingsFromProperties(Properties properties){
+        List<BuildingConfig> buildings = new ArrayList<BuildingConfig>();
+        String ids = properties.getProperty(PREFIX + "buildings");
+        if(ids == null){
+            buildings.add(fromProperties(properties));
+            return buildings;
+        }
+        for(String id : ids.split(",")){
+            id = id.trim();
+            if(!id.isEmpty()){
+                buildings.add(fromProperties(properties, PREFIX + "building." + id + ".", id));
+            }
+        }
+        if(buildings.isEmpty()){
+            throw new IllegalArgumentException("No buildings in " + PREFIX + "buildings");
+        }
+        return buildings;
+    }
+
+    private static Properties systemProperties(){
+        Properties properties = new Properties();
+        String file = System.getProperty(CONFIG_FILE_PROPERTY);
+        if(file != null){
+            properties.putAll(readFile(Paths.get(file)));
+        }
+        properties.putAll(System.getProperties());
+        return properties;
+    }
+
+    /**
+     * @param file Properties file
+     * @return Configuration read from the file
+     * @throws IllegalArgumentException if the file cannot be read or a value is invalid
+     */
+    public static BuildingConfig fromFile(Path file){
+        return fromProperties(readFile(file));
+    }
+
+    /**
+     * @param properties Keys as described by the class documentation, anything else is ignored
+     * @return Configuration
+     * @throws IllegalArgumentException if a value is invalid
+     */
+    public static BuildingConfig fromProperties(Properties properties){
+        return fromProperties(properties, PREFIX, DEFAULT_ID);
+    }
+
+    /**
+     * @param prefix Prefix of every key, elevator. or elevator.building.&lt;id&gt;.
+     */
+    private static BuildingConfig fromProperties(Properties properties, String prefix, String id){
+        Builder builder = builder().id(id);
+        MotionProfile motion = MotionProfile.fromProperties(properties, prefix + "motion.", MotionProfile.UNIFORM);
+        builder.motionProfile(motion);
+
+        String cars = properties.getProperty(prefix + "cars");
+        if(cars != null){
+            builder.elevators(parseInt(prefix + "cars", cars));
+        }
+
+        String capacity = properties.getProperty(prefix + "capacity");
+        if(capacity != null){
+            builder.capacity(parseInt(prefix + "capacity", capacity));
+        }
+
+        String floors = properties.getProperty(prefix + "floors");
+        if(floors != null){
+            int[] range = parseRange(prefix + "floors", floors);
+            builder.floors(range[0], range[1]);
+        }
+
+        String zones = properties.getProperty(prefix + "zones");
+        if(zones != null){
+            for(String name : zones.split(",")){
+                name = name.trim();
+                if(name.isEmpty()){
+                    continue;
+                }
+                String carsKey = prefix + "zone." + name + ".cars";
+                String floorsKey = prefix + "zone." + name + ".floors";
+                int[] zoneCars = parseRange(carsKey, require(properties, carsKey));
+                builder.zone(name, zoneCars[0], zoneCars[1], require(properties, floorsKey));
+                MotionProfile zoneMotion = MotionProfile.fromProperties(properties,
+                        prefix + "zone." + name + ".motion.", motion);
+                if(zoneMotion != motion){
+                    builder.motionProfile(zoneCars[0], zoneCars[1], zoneMotion);
+                }
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * @return Id requests use to find this building
+     */
+    public String getId() {
+        return id;
+    }
+
+    public int getNumberOfElevators() {
+        return numberOfElevators;
+    }
+
+    /**
+     * @return Requests every elevator carries at most
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getLowestFloor() {
+        return lowestFloor;
+    }
+
+    public int getHighestFloor() {
+        return highestFloor;
+    }
+
+    /**
+     * @return true if the floor exists in this building
+     */
+    public boolean hasFloor(int floor){
+        return floor >= lowestFloor && floor <= highestFloor;
+    }
+
+    /**
+     * @return true if the elevator stops at the given floor
+     */
+    public boolean serves(int elevatorId, int floor){
+        return servedFloors[elevatorId].contains(floor);
+    }
+
+    /**
+     * @return Floors the elevator serves, shared by every elevator of its zone. Never modify it.
+     */
+    FloorSet getServedFloors(int elevatorId){
+        return servedFloors[elevatorId];
+    }
+
+    /**
+     * @return How the elevator moves and stops
+     */
+    public MotionProfile getMotionProfile(int elevatorId){
+        return motionProfiles[elevatorId];
+    }
+
+    @Override
+    public String toString(){
+        return (DEFAULT_ID.equals(id) ? "" : "Building " + id + ", ")
+                + numberOfElevators + " elevators of " + capacity + ", floors " + lowestFloor + "-" + highestFloor;
+    }
+
+    private static Properties readFile(Path file){
+        Properties properties = new Properties();
+        try(InputStream in = Files.newInputStream(file)){
+            properties.load(in);
+        } catch (IOException e){
+            throw new IllegalArgumentException("Cannot read building configuration " + file, e);
+        }
+        return properties;
+    }
+
+    private static String require(Properties properties, String key){
+        String value = properties.getProperty(key);
+        if(value == null){
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return value;
+    }
+
+    private static int parseInt(String key, String value){
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e){
+            throw new IllegalArgumentException("Invalid " + key + ": " + value, e);
+        }
+    }
+
+    /**
+     * @param value Either a single number or low-high
+     * @return {low, high}
+     */
+    private static int[] parseRange(String key, String value){
+        String[] bounds = value.trim().split("\\s*-\\s*");
+        if(bounds.length == 1){
+            int single = parseInt(key, bounds[0]);
+            return new int[]{single, single};
+        }
+        if(bounds.length != 2){
+            throw new IllegalArgumentException("Invalid " + key + ": " + value);
+        }
+        int low = parseInt(key, bounds[0]);
+        int high = parseInt(key, bounds[1]);
+        if(low > high){
+            throw new IllegalArgumentException("Invalid " + key + ": " + value);
+        }
+        return new int[]{low, high};
+    }
+
+    /**
+     * @param value Comma separated floors and ranges of floors, e.g. 0,31-60
+     */
+    private static FloorSet parseFloors(String key, String value){
+        FloorSet floors = new FloorSet();
+        for(String part : value.split(",")){
+            if(part.trim().isEmpty()){
+                continue;
+            }
+            int[] range = parseRange(key, part);
+            if(range[0] < 0){
+                throw new IllegalArgumentException("Invalid " + key + ": " + value);
+            }
+            floors.addRange(range[0], range[1]);
+        }
+        return floors;
+    }
+
+    private static final class Zone {
+        final String name;
+        final int firstElevator;
+        final int lastElevator;
+        final FloorSet floors;
+
+        Zone(String name, int firstElevator, int lastElevator, FloorSet floors){
+            this.name = name;
+            this.firstElevator = firstElevator;
+            this.lastElevator = lastElevator;
+            this.floors = floors;
+        }
+    }
+
+    private static final class MotionRange {
+        final int firstElevator;
+        final int lastElevator;
+        final MotionProfile profile;
+
+        MotionRange(int firstElevator, int lastElevator, MotionProfile profile){
+            this.firstElevator = firstElevator;
+            this.lastElevator = lastElevator;
+            this.profile = profile;
+        }
+    }
+
+    public static final class Builder {
+        private String id = DEFAULT_ID;
+        private int numberOfElevators = DEFAULT_ELEVATORS;
+        private int capacity = DEFAULT_CAPACITY;
+        private int lowestFloor = DEFAULT_LOWEST_FLOOR;
+        private int highestFloor = DEFAULT_HIGHEST_FLOOR;
+        private final List<Zone> zones = new ArrayList<Zone>();
+        private MotionProfile motionProfile = MotionProfile.UNIFORM;
+        private final List<MotionRange> motionRanges = new ArrayList<MotionRange>();
+
+        private Builder(){
+        }
+
+        /**
+         * @param id Id requests use to find this building, "default" if not set
+         */
+        public Builder id(String id){
+            if(id == null || id.trim().isEmpty()){
+                throw new IllegalArgumentException("Building id must not be empty");
+            }
+            this.id = id.trim();
+            return this;
+        }
+
+        public Builder elevators(int numberOfElevators){
+            if(numberOfElevators < 1){
+                throw new IllegalArgumentException("At least one elevator is needed, got " + numberOfElevators);
+            }
+            this.numberOfElevators = numberOfElevators;
+            return this;
+        }
+
+        /**
+         * @param capacity Requests every elevator carries at most, counting
+         *                 those it is on its way to pick up
+         */
+        public Builder capacity(int capacity){
+            if(capacity < 1){
+                throw new IllegalArgumentException("Elevators must carry at least one request, got " + capacity);
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * @param lowestFloor Lowest floor, 0 or above
+         * @param highestFloor Highest floor, at most CarState.MAX_FLOOR
+         */
+        public Builder floors(int lowestFloor, int highestFloor){
+            if(lowestFloor < 0 || highestFloor < lowestFloor || highestFloor > CarState.MAX_FLOOR){
+                throw new IllegalArgumentException("Invalid floor range " + lowestFloor + "-" + highestFloor);
+            }
+            this.lowestFloor = lowestFloor;
+            this.highestFloor = highestFloor;
+            return this;
+        }
+
+        /**
+         * Restrict elevators firstElevator to lastElevator, both included, to some floors
+         * @param name Used in error messages
+         * @param floors Comma separated floors and ranges of floors, e.g. 0,31-60
+         */
+        public Builder zone(String name, int firstElevator, int lastElevator, String floors){
+            if(firstElevator < 0 || lastElevator < firstElevator){
+                throw new IllegalArgumentException("Invalid elevators " + firstElevator + "-" + lastElevator
+                        + " for zone " + name);
+            }
+            zones.add(new Zone(name, firstElevator, lastElevator, parseFloors(PREFIX + "zone." + name + ".floors", floors)));
+            return this;
+        }
+
+        /**
+         * Restrict elevators firstElevator to lastElevator, both included, to
+         * the floors from lowestFloor to highestFloor
+         */
+        public Builder zone(String name, int firstElevator, int lastElevator, int lowestFloor, int highestFloor){
+            return zone(name, firstElevator, lastElevator, lowestFloor + "-" + highestFloor);
+        }
+
+        /**
+         * @param motionProfile How every elevator moves, MotionProfile.UNIFORM if not set
+         */
+        public Builder motionProfile(MotionProfile motionProfile){
+            if(motionProfile == null){
+                throw new IllegalArgumentException("Motion profile must not be null");
+            }
+            this.motionProfile = motionProfile;
+            return this;
+        }
+
+        /**
+         * Let elevators firstElevator to lastElevator, both included, move
+         * differently from the others, e.g. faster cars of an express zone
+         */
+        public Builder motionProfile(int firstElevator, int lastElevator, MotionProfile motionProfile){
+            if(firstElevator < 0 || lastElevator < firstElevator || motionProfile == null){
+                throw new IllegalArgumentException("Invalid motion profile for elevators " + firstElevator + "-"
+                        + lastElevator);
+            }
+            motionRanges.add(new MotionRange(firstElevator, lastElevator, motionProfile));
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a zone does not fit the building
+         */
+        public BuildingConfig build(){
+            return new BuildingConfig(this);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package elevator;
+
+/**
+ * State of an elevator packed into a single long, so it is published and read
+ * with one volatile access and a reader never sees the floor of one step with
+ * the direction of another. Bits 0-15 hold the floor, 16-31 the next floor
+ * the elevator moves to plus one (0 for none), 32-47 the number of requests
+ * on board, and 48-51 the ElevatorState ordinal.
+ */
+public final class CarState {
+
+    // Highest floor that fits
+    public static final int MAX_FLOOR = 0xfffe;
+
+    private static final long FIELD_MASK = 0xffff;
+    private static final int NEXT_SHIFT = 16;
+    private static final int LOAD_SHIFT = 32;
+    private static final int STATE_SHIFT = 48;
+
+    private static final ElevatorState[] STATES = ElevatorState.values();
+
+    private CarState(){
+    }
+
+    /**
+     * @param floor
+     * @param state
+     * @param load Requests on board, capped at 65535
+     * @param nextStop -1 if none
+     * @return Packed state
+     */
+    public static long pack(int floor, ElevatorState state, int load, int nextStop){
+        return (floor & FIELD_MASK)
+                | ((long) (nextStop + 1) & FIELD_MASK) << NEXT_SHIFT
+                | (long) Math.min(load, (int) FIELD_MASK) << LOAD_SHIFT
+                | (long) state.ordinal() << STATE_SHIFT;
+    }
+
+    public static int floor(long packed){
+        return (int) (packed & FIELD_MASK);
+    }
+
+    /**
+     * @return Next floor the elevator moves to, -1 if none
+     */
+    public static int nextStop(long packed){
+        return (int) (packed >>> NEXT_SHIFT & FIELD_MASK) - 1;
+    }
+
+    /**
+     * @return Requests on board
+     */
+    public static int load(long packed){
+        return (int) (packed >>> LOAD_SHIFT & FIELD_MASK);
+    }
+
+    public static ElevatorState state(long packed){
+        return STATES[(int) (packed >>> STATE_SHIFT & FIELD_MASK)];
+    }
+
+    public static String toString(long packed){
+        int nextStop = nextStop(packed);
+        return "Current floor - " + floor(packed) + " | Status - " + state(packed) + " | Load - " + load(packed)
+                + (nextStop < 0 ? "" : " | Next floor - " + nextStop);
+    }
+}
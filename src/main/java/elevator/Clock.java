@@ -0,0 +1,13 @@
+package elevator;
+
+/**
+ * Source of time for the elevator system. Real-time runs use the system
+ * clock, simulations use a VirtualClock advanced by the DiscreteEventSimulator.
+ */
+public interface Clock {
+
+    /**
+     * @return Current time in milliseconds
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,136 @@
+package elevator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where requests come from, per floor and time of day, with older requests
+ * counting exponentially less. The day is split into slots, 15 minutes by
+ * default, and a request counts half as much once a half-life has passed, a
+ * day by default, so yesterday's morning peak still says where people will
+ * be waiting this morning while last month's hardly does.
+ *
+ * Decay is never applied to the counts themselves: a request is recorded
+ * with a weight that grows exponentially with its time, and counts are
+ * divided by the weight of the time they are read at. Recording is therefore
+ * a single addition, plus an exponential whenever the clock has moved, and
+ * now and then a rescale of every count so weights never overflow.
+ * Thread safe, times are milliseconds of the controller's clock, and days
+ * start at multiples of 24 hours of it, i.e. midnight UTC for the wall clock.
+ */
+public final class DemandHistogram {
+
+    public static final long DEFAULT_SLOT_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    public static final long DEFAULT_HALF_LIFE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // Rescale well before a weight could overflow
+    private static final double MAX_WEIGHT = 1e100;
+
+    private final long slotMillis;
+    private final int lowestFloor;
+    // Per millisecond
+    private final double growthRate;
+
+    // Guarded by this. [slot][floor - lowestFloor] -> decayed count times the weight of baseMillis
+    private final double[][] counts;
+    private long baseMillis;
+    private long weightMillis = Long.MIN_VALUE;
+    private double weight;
+
+    /**
+     * Histogram with 15 minute slots and a half-life of a day
+     * @param building
+     */
+    public DemandHistogram(BuildingConfig building){
+        this(building, DEFAULT_SLOT_MILLIS, DEFAULT_HALF_LIFE_MILLIS);
+    }
+
+    /**
+     * @param building
+     * @param slotMillis Length of a time of day slot, dividing a day
+     * @param halfLifeMillis Time after which a request counts half
+     */
+    public DemandHistogram(BuildingConfig building, long slotMillis, long halfLifeMillis){
+        if(slotMillis <= 0 || DAY_MILLIS % slotMillis != 0){
+            throw new IllegalArgumentException("Slots must divide a day, got " + slotMillis + "ms");
+        }
+        if(halfLifeMillis <= 0){
+            throw new IllegalArgumentException("Half-life must be positive, got " + halfLifeMillis + "ms");
+        }
+        this.slotMillis = slotMillis;
+        this.lowestFloor = building.getLowestFloor();
+        this.growthRate = Math.log(2) / halfLifeMillis;
+        this.counts = new double[(int) (DAY_MILLIS / slotMillis)][building.getHighestFloor() - lowestFloor + 1];
+    }
+
+    /**
+     * Count a request from a floor
+     * @param floor
+     * @param timeMillis Time of the request, not much before the latest recorded
+     */
+    public synchronized void record(int floor, long timeMillis){
+        if(timeMillis < baseMillis){
+            // Hardly decayed yet, counted as if at the base time
+            timeMillis = baseMillis;
+        }
+        double w = weightAt(timeMillis);
+        if(w > MAX_WEIGHT){
+            rescale(timeMillis);
+            w = 1;
+        }
+        counts[slotOf(timeMillis)][floor - lowestFloor] += w;
+    }
+
+    /**
+     * @param floor
+     * @param timeMillis Time of day to look up, and time the counts are decayed to
+     * @return Decayed number of requests from the floor in the slot of the given time
+     */
+    public synchronized double demand(int floor, long timeMillis){
+        return counts[slotOf(timeMillis)][floor - lowestFloor] / weightAt(Math.max(timeMillis, baseMillis));
+    }
+
+    /**
+     * Demand over the slot of the given time and the next one, i.e. what is
+     * expected to come shortly, for every floor
+     * @param timeMillis
+     * @param into Indexed by floor, at least as long as the highest floor plus one
+     * @return into
+     */
+    public synchronized double[] expectedDemand(long timeMillis, double[] into){
+        double w = weightAt(Math.max(timeMillis, baseMillis));
+        double[] current = counts[slotOf(timeMillis)];
+        double[] next = counts[slotOf(timeMillis + slotMillis)];
+        for(int i=0; i<current.length; i++){
+            into[lowestFloor + i] = (current[i] + next[i]) / w;
+        }
+        return into;
+    }
+
+    public long getSlotMillis() {
+        return slotMillis;
+    }
+
+    private int slotOf(long timeMillis){
+        return (int) (Math.floorMod(timeMillis, DAY_MILLIS) / slotMillis);
+    }
+
+    private double weightAt(long timeMillis){
+        if(timeMillis != weightMillis){
+            weight = Math.exp(growthRate * (timeMillis - baseMillis));
+            weightMillis = timeMillis;
+        }
+        return weight;
+    }
+
+    private void rescale(long timeMillis){
+        double w = weightAt(timeMillis);
+        for(double[] slot : counts){
+            for(int i=0; i<slot.length; i++){
+                slot[i] /= w;
+            }
+        }
+        baseMillis = timeMillis;
+        weightMillis = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,65 @@
+package elevator;
+
+import java.util.Arrays;
+
+/**
+ * Parks idle elevators at the floors requests are expected to come from
+ * next, according to the controller's DemandHistogram for the current and
+ * next slot of the day. The busiest floor gets the first idle elevator, the
+ * next busiest the second, and so on: an idle elevator goes to the busiest
+ * floor it serves that no other idle elevator waits at or is on its way to,
+ * and stays where it is if no floor with any demand is left. It also stays
+ * if its own floor is not much quieter, at least a third as busy, so evenly
+ * spread demand does not keep elevators moving for nothing.
+ */
+public final class DemandParkingPolicy implements ParkingPolicy {
+
+    // Indexed by elevator id, where every elevator was last sent to park. Guarded by this.
+    private int[] parkedAt = new int[0];
+    private double[] demand = new double[0];
+
+    @Override
+    public synchronized int parkingFloor(ElevatorController controller, Elevator elevator) {
+        BuildingConfig building = controller.getBuildingConfig();
+        if(demand.length != building.getHighestFloor() + 1){
+            demand = new double[building.getHighestFloor() + 1];
+        }
+        if(parkedAt.length != building.getNumberOfElevators()){
+            parkedAt = new int[building.getNumberOfElevators()];
+            Arrays.fill(parkedAt, -1);
+        }
+        controller.getDemand().expectedDemand(controller.getDriver().getClock().currentTimeMillis(), demand);
+
+        int selected = -1;
+        for(int floor=building.getLowestFloor(); floor<=building.getHighestFloor(); floor++){
+            if(demand[floor] > 0 && elevator.serves(floor) && (selected < 0 || demand[floor] > demand[selected])
+                    && !isCovered(controller, elevator, floor)){
+                selected = floor;
+            }
+        }
+        int currentFloor = elevator.getCurrentFloor();
+        if(selected >= 0 && selected != currentFloor && 3 * demand[currentFloor] >= demand[selected]
+                && !isCovered(controller, elevator, currentFloor)){
+            selected = currentFloor;
+        }
+        parkedAt[elevator.getId()] = selected;
+        return selected;
+    }
+
+    /**
+     * @return true if another idle elevator waits at the floor, or parks there
+     */
+    private boolean isCovered(ElevatorController controller, Elevator elevator, int floor){
+        for(Elevator other : controller.getElevatorList()){
+            if(other == elevator || other.getLoad() > 0 || !other.isInService()){
+                continue;
+            }
+            long state = other.getState();
+            boolean waiting = CarState.state(state) == ElevatorState.STATIONARY && CarState.floor(state) == floor;
+            if(waiting || parkedAt[other.getId()] == floor){
+                return true;
+            }
+        }
+        return false;
+    }
+}
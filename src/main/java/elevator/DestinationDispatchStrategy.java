@@ -0,0 +1,102 @@
+package elevator;
+
+/**
+ * Destination dispatch: users enter their target floor before boarding, so
+ * requests from the same floor going to nearby floors can share an elevator.
+ * A request joins an elevator that is yet to pick up others from its floor,
+ * going the same way, as long as their target floors stay within a window;
+ * the elevator then stops once to pick them all up and a few times to drop
+ * them off, where separate elevators would each stop for every one of them.
+ * Anything that cannot join a group is dispatched by another strategy, but
+ * starts a group of its own on another elevator rather than joining one with
+ * target floors too far from its own, if any elevator can take it.
+ */
+public final class DestinationDispatchStrategy implements DispatchStrategy {
+
+    // Target floors of a group are at most this many floors apart by default
+    public static final int DEFAULT_DESTINATION_WINDOW = 3;
+
+    private final DispatchStrategy strategy;
+    private final int destinationWindow;
+    // Picks the elevator for a new group when the strategy picked one busy with another group
+    private final EtaDispatchStrategy estimator = new EtaDispatchStrategy();
+
+    /**
+     * @param strategy Dispatches requests that cannot join a group
+     */
+    public DestinationDispatchStrategy(DispatchStrategy strategy){
+        this(strategy, DEFAULT_DESTINATION_WINDOW);
+    }
+
+    /**
+     * @param strategy Dispatches requests that cannot join a group
+     * @param destinationWindow Most floors between target floors of a group, 0 to only group the same target
+     */
+    public DestinationDispatchStrategy(DispatchStrategy strategy, int destinationWindow){
+        if(destinationWindow < 0){
+            throw new IllegalArgumentException("Destination window must not be negative, got " + destinationWindow);
+        }
+        this.strategy = strategy;
+        this.destinationWindow = destinationWindow;
+    }
+
+    @Override
+    public Elevator selectElevator(ElevatorController controller, ElevatorState direction, int requestedFloor, int targetFloor) {
+        Elevator selected = null;
+        int selectedSpan = destinationWindow + 1;
+
+        for(Elevator elevator : controller.getElevatorList()){
+            if(!canServe(elevator, requestedFloor, targetFloor)){
+                continue;
+            }
+
+            int span = elevator.destinationSpan(direction, requestedFloor, targetFloor);
+            if(span >= 0 && span < selectedSpan){
+                selected = elevator;
+                selectedSpan = span;
+            }
+        }
+        if(selected != null){
+            return selected;
+        }
+
+        selected = strategy.selectElevator(controller, direction, requestedFloor, targetFloor);
+        if(selected == null || selected.destinationSpan(direction, requestedFloor, targetFloor) < 0){
+            return selected;
+        }
+
+        // Busy with another group from the same floor
+        Elevator free = null;
+        long freeCost = Long.MAX_VALUE;
+        for(Elevator elevator : controller.getElevatorList()){
+            if(!canServe(elevator, requestedFloor, targetFloor)
+                    || elevator.destinationSpan(direction, requestedFloor, targetFloor) >= 0){
+                continue;
+            }
+            long cost = estimator.estimateCost(elevator, direction, requestedFloor);
+            if(cost < freeCost){
+                free = elevator;
+                freeCost = cost;
+            }
+        }
+        return free != null ? free : selected;
+    }
+
+    private static boolean canServe(Elevator elevator, int requestedFloor, int targetFloor){
+        return elevator.isInService() && !elevator.isFull()
+                && elevator.serves(requestedFloor) && elevator.serves(targetFloor);
+    }
+
+    /**
+     * Groups are formed by selectElevator(), whatever the target floors
+     * @return false
+     */
+    @Override
+    public boolean sharesElevatorByFloor() {
+        return false;
+    }
+
+    public int getDestinationWindow() {
+        return destinationWindow;
+    }
+}
@@ -0,0 +1,193 @@
+package elevator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Runs the elevator system in virtual time on a single thread. Every floor an
+ * elevator moves and every submitted request is an event in a priority queue
+ * ordered by time, and the clock jumps straight from one event to the next
+ * instead of sleeping. The elevators and the controller are the same ones used
+ * in real time, only the driver differs.
+ *
+ * A submitted request no elevator can take, e.g. because the ones serving
+ * its floors are full, keeps waiting like a hall call that stays lit: it is
+ * tried again every RETRY_MILLIS as long as anything else is going on.
+ */
+public final class DiscreteEventSimulator implements ElevatorDriver {
+
+    private final VirtualClock clock = new VirtualClock();
+    private final PriorityQueue<SimulationEvent> events = new PriorityQueue<SimulationEvent>();
+
+    // One reusable tick event per elevator, indexed by elevator id. An
+    // elevator never has more than one tick scheduled.
+    private SimulationEvent[] tickEvents;
+
+    private final ElevatorController controller;
+
+    // Runs ElevatorController.reassignRequests() every reassign interval
+    private final SimulationEvent reassignEvent = new SimulationEvent(SimulationEvent.Type.REASSIGN, null, null);
+
+    // Runs ElevatorController.dispatchQueuedRequests() while requests are queued
+    private final SimulationEvent intakeEvent = new SimulationEvent(SimulationEvent.Type.INTAKE, null, null);
+
+    // Tries the submitted requests no elevator could take again, oldest first
+    private final SimulationEvent retryEvent = new SimulationEvent(SimulationEvent.Type.RETRY, null, null);
+    private final List<ElevatorRequest> unassigned = new ArrayList<ElevatorRequest>();
+
+    // Time between tries of a request no elevator could take
+    static final long RETRY_MILLIS = 1000;
+
+    // Events at the same time run in the order they were scheduled, which
+    // keeps every run of the same input identical.
+    private long sequence;
+    private long processedEvents;
+
+    /**
+     * Simulate the given number of elevators serving floors 0 to 15
+     * @param numberOfElevators
+     */
+    public DiscreteEventSimulator(int numberOfElevators){
+        this(BuildingConfig.builder().elevators(numberOfElevators).build());
+    }
+
+    public DiscreteEventSimulator(BuildingConfig buildingConfig){
+        tickEvents = new SimulationEvent[buildingConfig.getNumberOfElevators()];
+        controller = new ElevatorController(buildingConfig, this);
+        controller.setConsoleOutput(false);
+    }
+
+    public ElevatorController getController() {
+        return controller;
+    }
+
+    @Override
+    public Clock getClock() {
+        return clock;
+    }
+
+    @Override
+    public void start(Elevator elevator) {
+        int id = elevator.getId();
+        if(id >= tickEvents.length){
+            tickEvents = Arrays.copyOf(tickEvents, Math.max(id + 1, tickEvents.length * 2));
+        }
+        tickEvents[id] = new SimulationEvent(SimulationEvent.Type.TICK, elevator, null);
+    }
+
+    @Override
+    public void wake(Elevator elevator) {
+        SimulationEvent tick = tickEvents[elevator.getId()];
+        if(!tick.isScheduled()){
+            schedule(tick, clock.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public void requestsQueued(ElevatorController controller) {
+        if(!intakeEvent.isScheduled()){
+            schedule(intakeEvent, clock.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Submit a request to the controller at the given virtual time
+     * @param atMillis Virtual time of the request, not before the current time
+     * @param request
+     */
+    public void submit(long atMillis, ElevatorRequest request){
+        if(atMillis < clock.currentTimeMillis()){
+            throw new IllegalArgumentException("Request at " + atMillis + " is in the past");
+        }
+        schedule(new SimulationEvent(SimulationEvent.Type.REQUEST, null, request), atMillis);
+    }
+
+    /**
+     * Process events until none are left, i.e. every elevator is idle
+     */
+    public void run(){
+        runUntil(Long.MAX_VALUE);
+    }
+
+    /**
+     * Process every event up to and including the given virtual time and
+     * leave the clock there.
+     * @param millis
+     */
+    public void runUntil(long millis){
+        while(!events.isEmpty() && events.peek().getTime() <= millis){
+            SimulationEvent event = events.poll();
+            event.fired();
+            clock.advanceTo(event.getTime());
+            processedEvents++;
+
+            switch (event.getType()){
+                case TICK:
+                    Elevator elevator = event.getElevator();
+                    long delay = elevator.step();
+                    if(delay != Elevator.IDLE && elevator.isOperating() && !event.isScheduled()){
+                        schedule(event, clock.currentTimeMillis() + delay);
+                    }
+                    break;
+                case REQUEST:
+                    if(controller.selectElevator(event.getRequest()) == null){
+                        unassigned.add(event.getRequest());
+                    }
+                    break;
+                case REASSIGN:
+                    controller.reassignRequests();
+                    break;
+                case INTAKE:
+                    if(controller.dispatchQueuedRequests() > 0){
+                        // There may be more than one batch
+                        schedule(event, clock.currentTimeMillis());
+                    }
+                    break;
+                case RETRY:
+                    for(int i=0; i<unassigned.size(); i++){
+                        if(controller.retry(unassigned.get(i)) != null){
+                            unassigned.remove(i--);
+                        }
+                    }
+                    break;
+            }
+
+            // Once more after anything else happened, e.g. elevators making
+            // room; a try changing nothing with nothing else left ends it
+            if(!unassigned.isEmpty() && !retryEvent.isScheduled()
+                    && (!events.isEmpty() || event.getType() != SimulationEvent.Type.RETRY)){
+                schedule(retryEvent, clock.currentTimeMillis() + RETRY_MILLIS);
+            }
+
+            // Keep re-evaluating pending requests as long as anything else is going on
+            long interval = controller.getReassignIntervalMillis();
+            if(interval > 0 && !reassignEvent.isScheduled() && !events.isEmpty()){
+                schedule(reassignEvent, clock.currentTimeMillis() + interval);
+            }
+        }
+
+        if(millis != Long.MAX_VALUE && millis > clock.currentTimeMillis()){
+            clock.advanceTo(millis);
+        }
+    }
+
+    /**
+     * @return Submitted requests no elevator has taken yet, oldest first.
+     * After run() they are the ones none ever could.
+     */
+    public List<ElevatorRequest> getUnassignedRequests() {
+        return Collections.unmodifiableList(unassigned);
+    }
+
+    public long getProcessedEvents() {
+        return processedEvents;
+    }
+
+    private void schedule(SimulationEvent event, long time){
+        event.schedule(time, sequence++);
+        events.add(event);
+    }
+}
@@ -0,0 +1,29 @@
+package elevator;
+
+/**
+ * Decides which elevator serves a request. The ElevatorController calls it
+ * for every request and then instructs the chosen elevator to stop at the
+ * requested and target floors.
+ */
+public interface DispatchStrategy {
+
+    /**
+     * Select the elevator that should serve a request. Must not modify the
+     * elevators.
+     * @param controller Controller owning the elevators
+     * @param direction UP or DOWN, the direction the user wants to go
+     * @param requestedFloor Floor number where request is originating from
+     * @param targetFloor Floor number where user wants to go
+     * @return Selected elevator, null if none can currently serve the request
+     */
+    Elevator selectElevator(ElevatorController controller, ElevatorState direction, int requestedFloor, int targetFloor);
+
+    /**
+     * @return true if requests queued together from the same floor, going
+     * the same way, may all be given the elevator selected for the first of
+     * them, whatever their target floors
+     */
+    default boolean sharesElevatorByFloor() {
+        return true;
+    }
+}
@@ -0,0 +1,1051 @@
+package elevator;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Objects of this class represent individual elevators
+ */
+public class Elevator implements Runnable{
+
+    private volatile boolean operating;
+    // Set by setOperating(false): the elevator takes no new requests, hands
+    // the ones it has not picked up to other elevators and goes out of
+    // service once everyone on board is dropped off. Cleared by
+    // setOperating(true).
+    private volatile boolean draining;
+    // Whether the stops nobody needs have been dropped since draining
+    // started. Only used by whoever is stepping this elevator.
+    private boolean routeTrimmed;
+    private int id;
+    private volatile ElevatorState elevatorState;
+    private volatile int currentFloor;
+
+    // Floor, state, load and next stop packed by CarState. Written once per
+    // step by whoever is stepping this elevator, so readers get all four
+    // from the same moment without taking a lock.
+    private volatile long packedState;
+
+    // Floors the elevator has committed to stop at on the leg it is
+    // travelling, all of them at or ahead of the current floor. Floors in
+    // between are passed without stopping: the segment being travelled is
+    // just the current floor and the nearest of these.
+    private volatile FloorSet floorStops;
+
+    // These legs are required to serve requests that require an elevator
+    // to move in both UP and DOWN direction.
+    // e.g. request comes from floor 8 to go to floor 2. But the
+    // elevator is at floor 0 currently. In this case, an elevator
+    // move UP towards floor 8. Picks person(s) and starts moving
+    // DOWN towards floor 2.
+    // Every leg stores UP or DOWN motion.
+    // Only ever modified by whoever is stepping this elevator, the
+    // ElevatorController posts to the inbox instead. Synchronized so
+    // dispatch strategies can read the plan while the elevator moves, and
+    // swapping the active leg takes the same lock. Floor sets of travelled
+    // legs are reused, so moving stops allocating in steady state.
+    private final PendingLegs pendingLegs;
+
+    // Stop commands posted by the ElevatorController. Any number of threads may
+    // post without blocking; only step() drains it, between floors.
+    private final Queue<StopCommand> inbox = new ConcurrentLinkedQueue<StopCommand>();
+
+    // Requests this elevator has to pick up, and the ones it is carrying.
+    // Only modified by whoever is stepping this elevator. Copied on write,
+    // which only happens on pickups and drop-offs, so FleetStore can take
+    // snapshots of them while the elevator moves.
+    private final List<ElevatorRequest> waitingRequests = new CopyOnWriteArrayList<ElevatorRequest>();
+    private final List<ElevatorRequest> onboardRequests = new CopyOnWriteArrayList<ElevatorRequest>();
+
+    // Hall calls packed by HallCall: posted by the ElevatorController like
+    // the inbox, the ones to pick up and the ones on board, the latter
+    // stamped with the time they were picked up. The arrays are only
+    // modified by whoever is stepping this elevator, under callLock so
+    // FleetStore can copy them. They start out big enough for a full car,
+    // up to MAX_POSTED_CALLS, and only ever grow past that, so serving
+    // calls never allocates in a car of that size.
+    private final Object callLock = new Object();
+    private final LongRingBuffer callInbox;
+    private long[] waitingCalls;
+    private int waitingCallCount;
+    private long[] onboardCalls;
+    private int onboardCallCount;
+
+    // Requests assigned to this elevator and not dropped off yet, on board
+    // or not. Counted up by the ElevatorController when it assigns one, down
+    // when it hands one over to another elevator or when it is dropped off.
+    private final AtomicInteger load = new AtomicInteger();
+    private final int capacity;
+
+    // Time spent moving or standing at stops, and number of direction
+    // reversals. Only written by whoever is stepping this elevator, read by
+    // ElevatorMetrics.
+    private volatile long busyMillis;
+    private volatile long reversals;
+    // Direction of the last leg travelled, to count reversals
+    private ElevatorState lastDirection;
+
+    // Floors where someone got on or off, and legs on which that happened
+    // at least once. Written and read like busyMillis.
+    private volatile long stops;
+    private volatile long trips;
+    private boolean stoppedOnLeg;
+    // Floors moved past or to, written and read like busyMillis
+    private volatile long floorsTravelled;
+
+    // Thread running this elevator, unparked whenever a new command is posted.
+    // Set by setWorker() before it starts, cleared under the lock of this
+    // elevator when it ends as the elevator is out of service.
+    private volatile Thread worker;
+
+    private final ElevatorController controller;
+
+    // Floors this elevator stops at, every floor of the building unless it
+    // belongs to a zone. Shared with the other elevators of the zone.
+    private final FloorSet servedFloors;
+
+    // Floors of the building, so stop sets never have to grow
+    private final int floorCapacity;
+
+    // How long moving between floors and stopping take
+    private final MotionProfile motion;
+    // Floor the car last stood still at, and time travelled since. A run
+    // takes as long as the profile says for the distance from there to the
+    // next stop, spread over the floors left to travel.
+    private int departureFloor;
+    private long runMillis;
+
+    // Time a floor takes with MotionProfile.UNIFORM
+    static final long FLOOR_TRAVEL_MILLIS = 1000;
+
+    // Returned by step() when there is nothing left to do
+    static final long IDLE = -1;
+
+    // Calls posted and not drained yet, at most
+    static final int MAX_POSTED_CALLS = 64;
+
+    public Elevator(int id, ElevatorController controller){
+        this.id = id;
+        this.controller = controller;
+        this.servedFloors = controller.getBuildingConfig().getServedFloors(id);
+        this.floorCapacity = controller.getBuildingConfig().getHighestFloor() + 1;
+        this.capacity = controller.getBuildingConfig().getCapacity();
+        this.motion = controller.getBuildingConfig().getMotionProfile(id);
+        this.callInbox = new LongRingBuffer(Math.min(capacity, MAX_POSTED_CALLS));
+        this.waitingCalls = new long[Math.min(capacity, MAX_POSTED_CALLS)];
+        this.onboardCalls = new long[Math.min(capacity, MAX_POSTED_CALLS)];
+        this.pendingLegs = new PendingLegs(floorCapacity);
+        this.operating = true;
+        this.elevatorState = ElevatorState.STATIONARY;
+
+        // Lowest floor we serve, e.g. the lobby
+        setCurrentFloor(servedFloors.first());
+
+        // To let controller know that this elevator is ready to serve
+        controller.updateElevatorLists(this);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public ElevatorState getElevatorState() {
+        return elevatorState;
+    }
+
+    public int getCurrentFloor() {
+        return currentFloor;
+    }
+
+    /**
+     * @return Floor, state, load and next stop as of the last step, packed
+     * by CarState
+     */
+    public long getState() {
+        return packedState;
+    }
+
+    public void setElevatorState(ElevatorState elevatorState) {
+        changeState(elevatorState);
+        publishState();
+    }
+
+    /**
+     * Change state without publishing it, step() publishes once at its end
+     */
+    private void changeState(ElevatorState elevatorState) {
+        ElevatorState previous = this.elevatorState;
+        this.elevatorState = elevatorState;
+        if(previous != elevatorState){
+            controller.logEvent(EventType.STATE_CHANGED, this, null);
+        }
+    }
+
+    /**
+     * @return true until the elevator is out of service, including while it
+     * drains
+     */
+    public boolean isOperating(){
+        return this.operating;
+    }
+
+    /**
+     * @return true if the elevator takes new requests: operating and not
+     * draining to go out of service
+     */
+    public boolean isInService(){
+        return operating && !draining;
+    }
+
+    /**
+     * @return true if this elevator has nothing to do, and nothing posted to it
+     */
+    boolean isIdle(){
+        FloorSet stops = floorStops;
+        return operating && elevatorState == ElevatorState.STATIONARY && (stops == null || stops.isEmpty())
+                && pendingLegs.isEmpty() && inbox.isEmpty() && callInbox.isEmpty();
+    }
+
+    /**
+     * @return Requests assigned to this elevator and not dropped off yet,
+     * whether on board already or not
+     */
+    public int getLoad(){
+        return load.get();
+    }
+
+    /**
+     * @return Requests this elevator carries at most
+     */
+    public int getCapacity(){
+        return capacity;
+    }
+
+    /**
+     * @return How this elevator moves and stops
+     */
+    public MotionProfile getMotionProfile(){
+        return motion;
+    }
+
+    /**
+     * @return true if this elevator cannot take any more requests
+     */
+    public boolean isFull(){
+        return load.get() >= capacity;
+    }
+
+    /**
+     * @param requests Requests assigned to this elevator, negative for requests handed over
+     */
+    void addLoad(int requests){
+        load.addAndGet(requests);
+    }
+
+    /**
+     * @return true if this elevator stops at the given floor
+     */
+    public boolean serves(int floor){
+        return servedFloors.contains(floor);
+    }
+
+    /**
+     * Take the elevator out of service or bring it back. Out of service it
+     * first drains: it stops taking requests, hands the ones it has not
+     * picked up yet over to other elevators, keeping those no other elevator
+     * can take, and drops everyone off before it stands still in
+     * MAINTAINANCE wherever that is. Back in service it is STATIONARY at
+     * that floor; if it was still draining it just carries on.
+     * @param state false to take the elevator out of service, true to bring
+     *              it back
+     */
+    public void setOperating(boolean state){
+        // Against drain() going out of service at the same time
+        synchronized (this){
+            if(!state){
+                draining = true;
+            } else if(!operating){
+                draining = false;
+                setElevatorState(ElevatorState.STATIONARY);
+                operating = true;
+            } else {
+                draining = false;
+            }
+
+            // Out of the index while draining or out of service, back in otherwise
+            controller.updateElevatorLists(this);
+        }
+
+        // Whoever steps the elevator does the draining, or carries on
+        controller.getDriver().wake(this);
+    }
+
+    /**
+     * @return Time this elevator has spent moving or standing at stops, in
+     * milliseconds of its clock
+     */
+    public long getBusyMillis() {
+        return busyMillis;
+    }
+
+    /**
+     * @return Number of times this elevator started a leg in the direction
+     * opposite to the previous one
+     */
+    public long getReversals() {
+        return reversals;
+    }
+
+    /**
+     * @return Number of times this elevator stopped to let someone on or off
+     */
+    public long getStops() {
+        return stops;
+    }
+
+    /**
+     * @return Number of legs on which this elevator stopped at least once
+     */
+    public long getTrips() {
+        return trips;
+    }
+
+    /**
+     * @return Number of floors this elevator has moved over
+     */
+    public long getFloorsTravelled() {
+        return floorsTravelled;
+    }
+
+    public void setCurrentFloor(int currentFloor) {
+        this.currentFloor = currentFloor;
+        publishState();
+    }
+
+    private void publishState(){
+        int nextStop = -1;
+        FloorSet stops = floorStops;
+        if(stops != null && !stops.isEmpty()){
+            if(elevatorState == ElevatorState.UP){
+                nextStop = stops.first();
+            } else if(elevatorState == ElevatorState.DOWN){
+                nextStop = stops.last();
+            }
+        }
+        publishState(nextStop);
+    }
+
+    /**
+     * @return Nearest floor of the current leg to stop at, -1 if there is none
+     */
+    private int nextStop(){
+        return elevatorState.equals(ElevatorState.UP) ? floorStops.first() : floorStops.last();
+    }
+
+    private void publishState(int nextStop){
+        packedState = CarState.pack(currentFloor, elevatorState, onboardRequests.size() + onboardCallCount, nextStop);
+    }
+
+    /**
+     * Post a stop command to this elevator. Never blocks, the elevator picks
+     * the command up the next time it reaches a floor. The caller is expected
+     * to wake the elevator through its ElevatorDriver afterwards.
+     * @param direction Direction in which the elevator should be travelling when it stops
+     * @param fromFloor Floor to stop at first
+     * @param toFloor Floor to stop at after fromFloor, on the same leg
+     */
+    public void submitStops(ElevatorState direction, int fromFloor, int toFloor){
+        inbox.offer(new StopCommand(direction, fromFloor, toFloor, null));
+    }
+
+    /**
+     * Post the stops for a request this elevator has been assigned, so it
+     * picks the user up at the requested floor and drops them at the target.
+     * @param request
+     */
+    void submitRequest(ElevatorRequest request){
+        inbox.offer(new StopCommand(request.getDirection(), request.getRequestFloor(), request.getTargetFloor(), request));
+    }
+
+    /**
+     * Post a hall call this elevator has been assigned. Never blocks or
+     * allocates; the caller wakes the elevator as for submitStops().
+     * @param call Packed by HallCall
+     * @return false if MAX_POSTED_CALLS are waiting to be drained already
+     */
+    boolean submitCall(long call){
+        return callInbox.offer(call);
+    }
+
+    /**
+     * @return true if submitCall() would succeed. It still does when called
+     * next, as long as calls are only ever submitted under the lock of the
+     * ElevatorController, which is the case.
+     */
+    boolean canTakeCall(){
+        return !callInbox.isFull();
+    }
+
+    /**
+     * Post a request that is already on board, e.g. restored by FleetStore,
+     * so the elevator drops the user off at the target floor.
+     * @param request
+     */
+    void submitOnboard(ElevatorRequest request){
+        inbox.offer(StopCommand.onboard(request));
+    }
+
+    /**
+     * Tell this elevator that a request it was assigned has been handed over
+     * to another elevator, so it can drop the stops nobody else needs.
+     * @param request
+     */
+    void cancelRequest(ElevatorRequest request){
+        inbox.offer(StopCommand.cancel(request));
+    }
+
+    /**
+     * Wake the thread running this elevator if it is parked waiting for work
+     * @return false if there is none, e.g. since the elevator went out of service
+     */
+    boolean wakeUp(){
+        Thread t = worker;
+        if(t != null){
+            LockSupport.unpark(t);
+        }
+        return t != null;
+    }
+
+    /**
+     * Make a thread that is about to be started the one running this elevator
+     * @param thread Runs run()
+     * @return false if another thread runs it already, or it is out of service
+     * and nobody has to
+     */
+    synchronized boolean setWorker(Thread thread){
+        if(worker != null || !operating){
+            return false;
+        }
+        worker = thread;
+        return true;
+    }
+
+    /**
+     * Move the elevator UP or DOWN by a single floor towards its next stop,
+     * and serve the floor it gets to if it is one; if the next stop is the
+     * floor it is at, just serve that. This is the only place an elevator
+     * moves, whether it is driven by its own thread in real time or by the
+     * DiscreteEventSimulator in virtual time.
+     * @return Milliseconds until the elevator is ready for the next step,
+     * i.e. the door cycle if someone got on or off here plus the time to the
+     * next floor, as given by the MotionProfile; IDLE if it has no stops left
+     */
+    long step(){
+        drainInbox();
+
+        if(draining){
+            if(drain()){
+                return IDLE;
+            }
+        } else {
+            routeTrimmed = false;
+        }
+
+        if(floorStops == null || floorStops.isEmpty()){
+            if(pendingLegs.isEmpty()){
+                if(!elevatorState.equals(ElevatorState.STATIONARY)){
+                    // Our remaining stops were handed over to other elevators
+                    changeState(ElevatorState.STATIONARY);
+                    publishState(-1);
+                    controller.updateElevatorLists(this);
+                }
+                if(!controller.park(this)){
+                    return IDLE;
+                }
+                // Somewhere better to wait for the next request
+                drainInbox();
+            }
+            startNextLeg();
+        }
+
+        int currFlr = currentFloor;
+        int nextFlr = nextStop();
+
+        if (nextFlr != currFlr) {
+            currFlr += nextFlr > currFlr ? 1 : -1;
+            floorsTravelled++;
+            currentFloor = currFlr;
+
+            // Pick up any stops the controller posted while we were
+            // travelling from the previous floor, which may be this one.
+            drainInbox();
+        }
+
+        // Only floors we committed to are stops, the others are passed by
+        boolean stop = floorStops.remove(currFlr);
+
+        nextFlr = nextStop();
+        if (nextFlr < 0 && pendingLegs.isEmpty()) {
+            changeState(ElevatorState.STATIONARY);
+        }
+
+        long delay = 0;
+        if (stop) {
+            departureFloor = currFlr;
+            runMillis = 0;
+            if (serveRequests()) {
+                delay += motion.stopMillis();
+            }
+        }
+        if (nextFlr >= 0 && nextFlr != currFlr) {
+            delay += nextFloorMillis(currFlr, nextFlr);
+        }
+
+        publishState(nextFlr);
+
+        // Keeps the controller's index of elevators by floor and direction current
+        controller.updateElevatorLists(this);
+
+        busyMillis += delay;
+
+        controller.logEvent(EventType.MOVED, this, null);
+
+        return delay;
+    }
+
+    /**
+     * Time to travel on to the next floor, so the whole run from the
+     * departure floor to the next stop takes what the MotionProfile says.
+     * If a nearer stop came up after the car got going, the rest of the run
+     * is never shorter than passing the floors at top speed.
+     */
+    private long nextFloorMillis(int floor, int nextStop){
+        int remaining = Math.abs(nextStop - floor);
+        long left = motion.travelMillis(Math.abs(nextStop - departureFloor)) - runMillis;
+        long millis = Math.max(left / remaining, motion.floorMillis());
+        runMillis += millis;
+        return millis;
+    }
+
+    /**
+     * One step of draining: hand the requests not picked up yet to other
+     * elevators and drop every stop nobody left needs. Once nobody is
+     * waiting or on board, stand still in MAINTAINANCE at the floor we are at.
+     * @return true if the elevator is out of service
+     */
+    private boolean drain(){
+        if(!operating){
+            return true;
+        }
+
+        // Indexed rather than iterated, like serveRequests()
+        for(int i=waitingRequests.size()-1; i>=0; i--){
+            ElevatorRequest request = waitingRequests.get(i);
+            if(request.getElevator() != this || controller.handBack(this, request)){
+                waitingRequests.remove(i);
+                removeUnusedStop(request.getRequestFloor());
+                removeUnusedStop(request.getTargetFloor());
+            }
+        }
+        for(int i=waitingCallCount-1; i>=0; i--){
+            long call = waitingCalls[i];
+            if(controller.handBack(this, call)){
+                synchronized (callLock){
+                    waitingCalls[i] = waitingCalls[--waitingCallCount];
+                }
+                removeUnusedStop(HallCall.origin(call));
+                removeUnusedStop(HallCall.destination(call));
+            }
+        }
+
+        if(!routeTrimmed){
+            // Plain stops, e.g. where we were going to park. Copied, as
+            // removing them may empty and drop pending legs.
+            List<FloorSet> route = new ArrayList<FloorSet>();
+            FloorSet activeStops = floorStops;
+            if(activeStops != null){
+                route.add(activeStops.copy());
+            }
+            synchronized (pendingLegs){
+                for(int i=0; i<pendingLegs.size(); i++){
+                    route.add(pendingLegs.getStops(i).copy());
+                }
+            }
+            for(FloorSet stops : route){
+                for(int floor = stops.first(); floor >= 0; floor = stops.higher(floor)){
+                    removeUnusedStop(floor);
+                }
+            }
+            routeTrimmed = true;
+        }
+
+        // Posted by a dispatch that chose us just before we started
+        // draining, handed back on the next step
+        if(!waitingRequests.isEmpty() || waitingCallCount > 0
+                || !onboardRequests.isEmpty() || onboardCallCount > 0
+                || !inbox.isEmpty() || !callInbox.isEmpty()){
+            return false;
+        }
+
+        synchronized (this){
+            if(!draining){
+                // Brought back in service in the meantime
+                return false;
+            }
+            FloorSet activeStops = floorStops;
+            if(activeStops != null){
+                activeStops.clear();
+            }
+            pendingLegs.clear();
+            operating = false;
+            changeState(ElevatorState.MAINTAINANCE);
+            publishState(-1);
+            controller.updateElevatorLists(this);
+        }
+        return true;
+    }
+
+    /**
+     * Take the next pending leg out of pendingLegs and make it the active
+     * one, starting from the floor the elevator is at. If the elevator is
+     * already past the first floor of that direction, it first travels back
+     * to it in the opposite direction.
+     */
+    private void startNextLeg(){
+        ElevatorState direction;
+        FloorSet stops;
+        synchronized (pendingLegs) {
+            FloorSet finished = floorStops;
+            direction = pendingLegs.getDirection(0);
+            stops = pendingLegs.removeFirst();
+
+            int firstFloor = direction.equals(ElevatorState.UP) ? stops.first() : stops.last();
+            if (isBehind(direction, firstFloor, getCurrentFloor())) {
+                // Still the next leg once we are back, or two legs starting
+                // behind us would send us to and fro forever
+                pendingLegs.addFirst(direction, stops);
+                direction = direction.equals(ElevatorState.UP) ? ElevatorState.DOWN : ElevatorState.UP;
+                // The leg we just finished is empty, travel back on it
+                stops = finished != null ? finished : pendingLegs.newStops();
+                stops.add(getCurrentFloor());
+                stops.add(firstFloor);
+            } else {
+                if(finished != null){
+                    pendingLegs.recycle(finished);
+                }
+                stops.add(getCurrentFloor());
+            }
+            floorStops = stops;
+        }
+
+        changeState(direction);
+
+        if(lastDirection != null && !lastDirection.equals(direction)){
+            reversals++;
+        }
+        lastDirection = direction;
+        stoppedOnLeg = false;
+    }
+
+    /**
+     * Move every posted command into the floor sets.
+     */
+    void drainInbox(){
+        StopCommand command;
+        while((command = inbox.poll()) != null){
+            if(command.isCancel()){
+                waitingRequests.remove(command.getRequest());
+                removeUnusedStop(command.getFromFloor());
+                removeUnusedStop(command.getToFloor());
+                continue;
+            }
+            if(command.isOnboard()){
+                placeStops(command, elevatorState, floorStops, pendingLegs, getCurrentFloor());
+                onboardRequests.add(command.getRequest());
+                continue;
+            }
+
+            placeStops(command, elevatorState, floorStops, pendingLegs, getCurrentFloor());
+            if(command.getRequest() != null){
+                waitingRequests.add(command.getRequest());
+            }
+        }
+
+        while(!callInbox.isEmpty()){
+            long call;
+            // Never out of both the inbox and the array for collectCalls()
+            synchronized (callLock){
+                call = callInbox.poll();
+                addWaitingCall(call);
+            }
+            placeCall(call, elevatorState, floorStops, pendingLegs, getCurrentFloor());
+        }
+    }
+
+    /**
+     * Pick up users waiting at this floor to go the way we are going, and
+     * drop off the ones who wanted to come here.
+     * @return true if anyone got on or off
+     */
+    private boolean serveRequests(){
+        int floor = getCurrentFloor();
+        long now = controller.getDriver().getClock().currentTimeMillis();
+        ElevatorMetrics metrics = controller.getMetrics();
+        boolean stopped = false;
+
+        // Indexed rather than iterated so that moving never allocates
+        for(int i=waitingRequests.size()-1; i>=0; i--){
+            ElevatorRequest request = waitingRequests.get(i);
+            if(request.getElevator() != this){
+                // Handed over to another elevator, the cancel is on its way
+                waitingRequests.remove(i);
+            } else if(request.getRequestFloor() == floor
+                    && (elevatorState.equals(request.getDirection()) || elevatorState.equals(ElevatorState.STATIONARY))
+                    && request.pickUp(this, now)){
+                // On board before it stops waiting, so a snapshot never misses it
+                onboardRequests.add(request);
+                waitingRequests.remove(i);
+                metrics.requestPickedUp(request);
+                controller.logEvent(EventType.PICKED_UP, this, request);
+                stopped = true;
+            }
+        }
+
+        for(int i=onboardRequests.size()-1; i>=0; i--){
+            ElevatorRequest request = onboardRequests.get(i);
+            if(request.getTargetFloor() == floor){
+                request.dropOff(now);
+                onboardRequests.remove(i);
+                load.decrementAndGet();
+                metrics.requestDroppedOff(request);
+                controller.logEvent(EventType.DROPPED_OFF, this, request);
+                stopped = true;
+            }
+        }
+
+        // The same for calls, removed by moving the last one into their place
+        for(int i=waitingCallCount-1; i>=0; i--){
+            long call = waitingCalls[i];
+            if(HallCall.origin(call) == floor
+                    && (elevatorState == HallCall.direction(call) || elevatorState == ElevatorState.STATIONARY)){
+                synchronized (callLock){
+                    addOnboardCall(HallCall.withTime(call, now));
+                    waitingCalls[i] = waitingCalls[--waitingCallCount];
+                }
+                metrics.requestPickedUp(HallCall.elapsedMillis(call, now));
+                controller.logEvent(EventType.PICKED_UP, this, call);
+                stopped = true;
+            }
+        }
+
+        for(int i=onboardCallCount-1; i>=0; i--){
+            long call = onboardCalls[i];
+            if(HallCall.destination(call) == floor){
+                synchronized (callLock){
+                    onboardCalls[i] = onboardCalls[--onboardCallCount];
+                }
+                load.decrementAndGet();
+                metrics.requestDroppedOff(now, HallCall.elapsedMillis(call, now));
+                controller.logEvent(EventType.DROPPED_OFF, this, call);
+                stopped = true;
+            }
+        }
+
+        if(stopped){
+            stops++;
+            if(!stoppedOnLeg){
+                trips++;
+                stoppedOnLeg = true;
+            }
+        }
+        return stopped;
+    }
+
+    /**
+     * Remove a floor from the planned route, unless one of our requests
+     * still needs it.
+     */
+    private void removeUnusedStop(int floor){
+        for(ElevatorRequest request : waitingRequests){
+            if(request.getRequestFloor() == floor || request.getTargetFloor() == floor){
+                return;
+            }
+        }
+        for(ElevatorRequest request : onboardRequests){
+            if(request.getTargetFloor() == floor){
+                return;
+            }
+        }
+        for(int i=0; i<waitingCallCount; i++){
+            if(HallCall.origin(waitingCalls[i]) == floor || HallCall.destination(waitingCalls[i]) == floor){
+                return;
+            }
+        }
+        for(int i=0; i<onboardCallCount; i++){
+            if(HallCall.destination(onboardCalls[i]) == floor){
+                return;
+            }
+        }
+
+        FloorSet activeStops = floorStops;
+        if(activeStops != null){
+            activeStops.remove(floor);
+        }
+        pendingLegs.remove(floor);
+    }
+
+    /**
+     * Floors ahead of us in the direction we are currently moving are served
+     * on this leg, anything else waits for a later leg in that direction.
+     */
+    private static void placeStops(StopCommand command, ElevatorState direction, FloorSet activeStops,
+                                   PendingLegs pendingStops, int currentFloor){
+        placeStops(command.getDirection(), command.getFromFloor(), command.getToFloor(), command.getRequest() != null,
+                direction, activeStops, pendingStops, currentFloor);
+    }
+
+    /**
+     * Place the stops of a hall call, heading for the floor it comes from
+     * first as the ElevatorController does for a request
+     */
+    private static void placeCall(long call, ElevatorState direction, FloorSet activeStops,
+                                  PendingLegs pendingStops, int currentFloor){
+        int origin = HallCall.origin(call);
+        if(origin != currentFloor){
+            ElevatorState approach = origin > currentFloor ? ElevatorState.UP : ElevatorState.DOWN;
+            placeStops(approach, origin, origin, false, direction, activeStops, pendingStops, currentFloor);
+        }
+        placeStops(HallCall.direction(call), origin, HallCall.destination(call), true,
+                direction, activeStops, pendingStops, currentFloor);
+    }
+
+    /**
+     * @param forRequest true if someone gets on at fromFloor, rather than
+     *                   it being a plain stop
+     */
+    private static void placeStops(ElevatorState stopDirection, int fromFloor, int toFloor, boolean forRequest,
+                                   ElevatorState direction, FloorSet activeStops,
+                                   PendingLegs pendingStops, int currentFloor){
+        boolean activeLeg = activeStops != null && !activeStops.isEmpty() && stopDirection.equals(direction);
+        if(activeLeg && !isBehind(direction, fromFloor, currentFloor) && !isBehind(direction, toFloor, currentFloor)){
+            // We have served the floor we are at already, so a request from
+            // it needs us to stop there once more. Nothing to do for a
+            // plain stop there.
+            if(fromFloor != currentFloor || forRequest) {
+                activeStops.add(fromFloor);
+            }
+            if(toFloor != currentFloor) {
+                activeStops.add(toFloor);
+            }
+            return;
+        }
+
+        synchronized (pendingStops) {
+            FloorSet floorSet = pendingStops.forDirection(stopDirection);
+            floorSet.add(fromFloor);
+            floorSet.add(toFloor);
+        }
+    }
+
+    private static boolean isBehind(ElevatorState direction, int floor, int currentFloor){
+        if(direction.equals(ElevatorState.UP)){
+            return floor < currentFloor;
+        }
+        return floor > currentFloor;
+    }
+
+    /**
+     * Copy of the route the elevator still has to travel, the current leg
+     * first, including stops posted to the inbox but not yet drained. Safe to
+     * call from any thread while the elevator moves.
+     * @return Legs in the order they will be travelled
+     */
+    List<Leg> getPlannedLegs(){
+        ElevatorState direction = elevatorState;
+        int floor = getCurrentFloor();
+
+        // Under the lock the active leg is swapped and recycled under
+        FloorSet active;
+        PendingLegs pending;
+        synchronized (pendingLegs){
+            FloorSet activeStops = floorStops;
+            active = activeStops != null ? activeStops.copy() : new FloorSet(floorCapacity);
+            pending = pendingLegs.copy();
+        }
+
+        for(StopCommand command : inbox){
+            if(!command.isCancel()) {
+                placeStops(command, direction, active, pending, floor);
+            }
+        }
+        for(long call : callInbox.toArray()){
+            placeCall(call, direction, active, pending, floor);
+        }
+
+        List<Leg> legs = new ArrayList<Leg>(pending.size() + 1);
+        if(!active.isEmpty()){
+            legs.add(new Leg(direction, active, true));
+        }
+        for(int i=0; i<pending.size(); i++){
+            legs.add(new Leg(pending.getDirection(i), pending.getStops(i), false));
+        }
+        return legs;
+    }
+
+    /**
+     * Collect the requests this elevator still has to serve. Safe to call
+     * from any thread while the elevator moves; a request being picked up
+     * at that moment may show up in both lists.
+     * @param waiting Gets the requests not picked up yet, including ones
+     *                posted to the inbox but not yet drained
+     * @param onboard Gets the requests on board
+     */
+    void collectRequests(List<ElevatorRequest> waiting, List<ElevatorRequest> onboard){
+        onboard.addAll(onboardRequests);
+        for(ElevatorRequest request : waitingRequests){
+            if(request.getElevator() == this){
+                waiting.add(request);
+            }
+        }
+        for(StopCommand command : inbox){
+            ElevatorRequest request = command.getRequest();
+            if(request == null || command.isCancel()){
+                continue;
+            }
+            if(command.isOnboard()){
+                onboard.add(request);
+            } else if(request.getElevator() == this){
+                waiting.add(request);
+            }
+        }
+    }
+
+    /**
+     * Hall calls this elevator has to pick up, posted ones included, or the
+     * ones it is carrying, for FleetStore to save. Safe to call from any
+     * thread; a call picked up between asking for the waiting and the
+     * onboard calls shows up in both.
+     * @param onboard true for the calls on board
+     * @return Packed calls, the ones on board stamped with the time they were picked up
+     */
+    long[] collectCalls(boolean onboard){
+        synchronized (callLock){
+            if(onboard){
+                return Arrays.copyOf(onboardCalls, onboardCallCount);
+            }
+            long[] posted = callInbox.toArray();
+            long[] calls = Arrays.copyOf(waitingCalls, waitingCallCount + posted.length);
+            System.arraycopy(posted, 0, calls, waitingCallCount, posted.length);
+            return calls;
+        }
+    }
+
+    /**
+     * Give back a hall call restored by FleetStore, with its stops. Only
+     * while nothing steps the elevator, i.e. before it is woken.
+     * @param call Packed by HallCall
+     * @param onboard true if it has been picked up, stamped with the time it was
+     */
+    void restoreCall(long call, boolean onboard){
+        synchronized (callLock){
+            if(onboard){
+                addOnboardCall(call);
+            } else {
+                addWaitingCall(call);
+            }
+        }
+        // Through the inbox, which the stepping thread drains before it looks at the calls
+        submitStops(HallCall.direction(call), onboard ? HallCall.destination(call) : HallCall.origin(call),
+                HallCall.destination(call));
+    }
+
+    // Under callLock
+    private void addWaitingCall(long call){
+        if(waitingCallCount == waitingCalls.length){
+            waitingCalls = Arrays.copyOf(waitingCalls, waitingCallCount * 2);
+        }
+        waitingCalls[waitingCallCount++] = call;
+    }
+
+    private void addOnboardCall(long call){
+        if(onboardCallCount == onboardCalls.length){
+            onboardCalls = Arrays.copyOf(onboardCalls, onboardCallCount * 2);
+        }
+        onboardCalls[onboardCallCount++] = call;
+    }
+
+    /**
+     * How far apart the target floors would be if a request joined the
+     * requests this elevator is yet to pick up from the same floor, going
+     * the same way. Safe to call from any thread.
+     * @param direction UP or DOWN
+     * @param fromFloor
+     * @param targetFloor
+     * @return Floors between the lowest and highest target, -1 if the
+     * elevator picks nobody up there
+     */
+    int destinationSpan(ElevatorState direction, int fromFloor, int targetFloor){
+        int low = targetFloor;
+        int high = targetFloor;
+        boolean found = false;
+        for(ElevatorRequest request : waitingRequests){
+            if(request.getElevator() == this && request.getRequestFloor() == fromFloor
+                    && request.getDirection() == direction && !request.isPickedUp()){
+                low = Math.min(low, request.getTargetFloor());
+                high = Math.max(high, request.getTargetFloor());
+                found = true;
+            }
+        }
+        for(StopCommand command : inbox){
+            ElevatorRequest request = command.getRequest();
+            if(request != null && !command.isCancel() && !command.isOnboard() && request.getElevator() == this
+                    && request.getRequestFloor() == fromFloor && request.getDirection() == direction){
+                low = Math.min(low, request.getTargetFloor());
+                high = Math.max(high, request.getTargetFloor());
+                found = true;
+            }
+        }
+        return found ? high - low : -1;
+    }
+
+    /**
+     * Drives this elevator in real time on the thread given to setWorker(),
+     * until the elevator goes out of service or the thread is interrupted,
+     * see RealTimeDriver
+     */
+    @Override
+    public void run() {
+        while(!Thread.currentThread().isInterrupted()){
+            if(isOperating()){
+                long delay = step();
+                if (!isOperating()) {
+                    // Drained and out of service, the thread ends below
+                    continue;
+                }
+                if (delay == IDLE) {
+                    // Nothing to do, wait for the controller to post the next command
+                    LockSupport.park(this);
+                } else {
+                    try {
+                        Thread.sleep(delay); // Let people get off the elevator :P
+                    } catch (InterruptedException e) {
+                        // Set again for the loop to stop on
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            } else {
+                // Against setOperating(true) bringing it back at the same time
+                synchronized (this){
+                    if(!operating){
+                        // Its wake() finds no thread and has the driver start one
+                        worker = null;
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package elevator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Several buildings, or banks of one building, each run by its own
+ * ElevatorController. Requests are routed by their building id and the
+ * controllers share nothing: every one has its own lock, intake queue, index
+ * and driver, so their dispatcher threads run on separate cores and
+ * throughput grows with the number of buildings rather than being limited by
+ * a single controller lock. Monitoring sees them together, see snapshot().
+ * Thread safe.
+ */
+public final class ElevatorCluster {
+
+    // By building id, in the order the controllers were given
+    private final Map<String, ElevatorController> controllers;
+
+    // Loop of every controller while started, guarded by this
+    private final List<Thread> loops = new ArrayList<Thread>();
+
+    /**
+     * @param controllers One per building, each with a driver of its own
+     * @throws IllegalArgumentException if there are none or two share a building id
+     */
+    public ElevatorCluster(Collection<ElevatorController> controllers){
+        Map<String, ElevatorController> byId = new LinkedHashMap<String, ElevatorController>();
+        for(ElevatorController controller : controllers){
+            String id = controller.getBuildingConfig().getId();
+            if(byId.put(id, controller) != null){
+                throw new IllegalArgumentException("Two controllers for building " + id);
+            }
+        }
+        if(byId.isEmpty()){
+            throw new IllegalArgumentException("A cluster needs at least one controller");
+        }
+        this.controllers = Collections.unmodifiableMap(byId);
+    }
+
+    /**
+     * Cluster of real-time controllers of the buildings configured by
+     * BuildingConfig.buildingsFromSystemProperties(), each driven as set by
+     * the elevator.driver system property. In scheduled mode the
+     * elevator.driver.threads threads, all cores by default, are divided
+     * between the buildings.
+     * @return Cluster, not started yet
+     */
+    public static ElevatorCluster fromSystemProperties(){
+        List<BuildingConfig> buildings = BuildingConfig.buildingsFromSystemProperties();
+        String mode = System.getProperty(ElevatorController.DRIVER_PROPERTY, "threads");
+        int threads = Integer.getInteger(ElevatorController.DRIVER_THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors());
+        List<ElevatorController> controllers = new ArrayList<ElevatorController>(buildings.size());
+        for(BuildingConfig building : buildings){
+            controllers.add(new ElevatorController(building,
+                    ElevatorController.createDriver(mode, Math.max(1, threads / buildings.size()))));
+        }
+        return new ElevatorCluster(controllers);
+    }
+
+    /**
+     * @param elevatorRequest
+     * @return Controller of the building the request belongs to
+     * @throws IllegalArgumentException if there is no such building, or the
+     * request has no building id and there is more than one
+     */
+    public ElevatorController route(ElevatorRequest elevatorRequest){
+        String id = elevatorRequest.getBuildingId();
+        if(id == null){
+            if(controllers.size() != 1){
+                throw new IllegalArgumentException("Request " + elevatorRequest.getId()
+                        + " has no building id, buildings are " + controllers.keySet());
+            }
+            return controllers.values().iterator().next();
+        }
+        return getController(id);
+    }
+
+    /**
+     * @param buildingId
+     * @return Controller of the building
+     * @throws IllegalArgumentException if there is no such building
+     */
+    public ElevatorController getController(String buildingId){
+        ElevatorController controller = controllers.get(buildingId);
+        if(controller == null){
+            throw new IllegalArgumentException("Unknown building " + buildingId + ", buildings are "
+                    + controllers.keySet());
+        }
+        return controller;
+    }
+
+    /**
+     * @return Controller of every building by building id
+     */
+    public Map<String, ElevatorController> getControllers() {
+        return controllers;
+    }
+
+    /**
+     * Select an elevator of the request's building, see
+     * ElevatorController.selectElevator(). Only that building's controller is
+     * locked.
+     * @param elevatorRequest
+     * @return Selected Elevator, null if no elevator can currently serve the request
+     */
+    public Elevator selectElevator(ElevatorRequest elevatorRequest){
+        return route(elevatorRequest).selectElevator(elevatorRequest);
+    }
+
+    /**
+     * Queue the request with its building's controller, see
+     * ElevatorController.submitAsync()
+     * @param elevatorRequest
+     * @return Completed with the selected elevator, or null if none can
+     * currently serve the request
+     */
+    public CompletableFuture<Elevator> submitAsync(ElevatorRequest elevatorRequest){
+        return route(elevatorRequest).submitAsync(elevatorRequest);
+    }
+
+    /**
+     * Run the loop of every controller, reassigning requests and parking
+     * idle elevators, on a thread per building
+     */
+    public synchronized void start(){
+        if(!loops.isEmpty()){
+            return;
+        }
+        for(Map.Entry<String, ElevatorController> entry : controllers.entrySet()){
+            // Before the loop starts, so a stop() right after start() is never lost
+            entry.getValue().setStopController(false);
+            Thread loop = new Thread(entry.getValue(), "elevator-controller-" + entry.getKey());
+            loop.setDaemon(true);
+            loops.add(loop);
+            loop.start();
+        }
+    }
+
+    /**
+     * Stop the loop of every controller and wait for it to end
+     * @throws InterruptedException
+     */
+    public synchronized void stop() throws InterruptedException {
+        if(loops.isEmpty()){
+            return;
+        }
+        for(ElevatorController controller : controllers.values()){
+            controller.setStopController(true);
+        }
+        for(Thread loop : loops){
+            loop.join();
+        }
+        loops.clear();
+    }
+
+    /**
+     * @return Metrics of all buildings together, elevators numbered in the
+     * order of getControllers()
+     */
+    public MetricsSnapshot snapshot(){
+        MetricsSnapshot total = null;
+        for(ElevatorController controller : controllers.values()){
+            MetricsSnapshot snapshot = controller.getMetrics().snapshot();
+            total = total == null ? snapshot : total.merge(snapshot);
+        }
+        return total;
+    }
+
+    /**
+     * @return Metrics of every building by building id
+     */
+    public Map<String, MetricsSnapshot> snapshotByBuilding(){
+        Map<String, MetricsSnapshot> snapshots = new LinkedHashMap<String, MetricsSnapshot>();
+        for(Map.Entry<String, ElevatorController> entry : controllers.entrySet()){
+            snapshots.put(entry.getKey(), entry.getValue().getMetrics().snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Register the metrics of every building with the platform MBean server,
+     * as elevator:type=ElevatorMetrics,building=&lt;id&gt;
+     * @throws IllegalStateException if a name is invalid or taken
+     */
+    public void registerMBeans(){
+        for(Map.Entry<String, ElevatorController> entry : controllers.entrySet()){
+            entry.getValue().getMetrics().registerMBean(ElevatorMetrics.DEFAULT_OBJECT_NAME + ",building=" + entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,934 @@
+package elevator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is the core component of the system. This class is responsible for
+ * the complete orchestration of elevators and elevator requests.
+ */
+public final class ElevatorController implements Runnable {
+
+    private volatile boolean stopController;
+
+    private final BuildingConfig buildingConfig;
+
+    // Operational elevators by direction and floor, one index per bank of
+    // elevators serving the same floors. Elevators update them from their
+    // own threads on every floor, so they have their own lock rather than
+    // the controller's monitor.
+    private final ElevatorIndex[] bankIndexes;
+    private final FloorSet[] bankFloors;
+    // Bank of every elevator, indexed by elevator id
+    private final int[] bankOf;
+    private final Object indexLock = new Object();
+
+    private final List<Elevator> elevatorList;
+
+    // Decides how elevators move: on their own threads in real time, or in
+    // virtual time when simulating.
+    private final ElevatorDriver driver;
+
+    // Where elevator and request events are written to, if anywhere. The
+    // console log is separate so it can be switched on and off on its own.
+    private volatile EventLog eventLog;
+    private volatile EventLog consoleLog;
+
+    // Journal of assignments since the last FleetStore snapshot, if any
+    private volatile FleetJournal journal;
+
+    private volatile DispatchStrategy dispatchStrategy = new NearestElevatorStrategy();
+
+    // Where requests come from, by floor and time of day, and where idle
+    // elevators wait for them. No parking policy leaves them where they stop.
+    private final DemandHistogram demand;
+    private volatile ParkingPolicy parkingPolicy;
+
+    // How often the real-time controller looks for idle elevators to park
+    static final long PARKING_INTERVAL_MILLIS = 10000;
+    // How often run() checks whether anything is due
+    static final long LOOP_INTERVAL_MILLIS = 100;
+
+    // Requests assigned to an elevator that has not picked them up yet
+    private final Queue<ElevatorRequest> pendingPickups = new ConcurrentLinkedQueue<ElevatorRequest>();
+
+    // How often pending pickups are re-evaluated, 0 to never hand requests over
+    private volatile long reassignIntervalMillis;
+
+    // A request only moves to another elevator if that gets there at least this much sooner
+    private volatile long reassignThresholdMillis = 2 * Elevator.FLOOR_TRAVEL_MILLIS;
+
+    private final EtaDispatchStrategy reassignEstimator = new EtaDispatchStrategy();
+
+    static final int DEFAULT_INTAKE_CAPACITY = 1024;
+    static final int MAX_BATCH_SIZE = 64;
+
+    // Requests submitted through submitAsync, waiting to be dispatched in batches
+    private final BoundedRingBuffer<ElevatorRequest> intake = new BoundedRingBuffer<ElevatorRequest>(DEFAULT_INTAKE_CAPACITY);
+    private final ElevatorRequest[] batch = new ElevatorRequest[MAX_BATCH_SIZE];
+    private final boolean[] batchAssigned = new boolean[MAX_BATCH_SIZE];
+    private final AtomicLong rejectedRequests = new AtomicLong();
+
+    private final ElevatorMetrics metrics;
+
+    // System property choosing how the real-time controller runs its elevators:
+    // threads (a thread each, the default), virtual (a virtual thread each,
+    // JDK 21 and later) or scheduled (a shared pool of elevator.driver.threads)
+    public static final String DRIVER_PROPERTY = "elevator.driver";
+    public static final String DRIVER_THREADS_PROPERTY = "elevator.driver.threads";
+    // System property choosing where idle elevators wait: none (the default) or demand
+    public static final String PARKING_PROPERTY = "elevator.parking";
+
+    // Created on first use, so simulations never start the real-time elevator threads
+    private static final class InstanceHolder {
+        static final ElevatorController instance = createInstance();
+
+        private static ElevatorController createInstance(){
+            ElevatorController controller = new ElevatorController(BuildingConfig.fromSystemProperties(),
+                    createDriver(System.getProperty(DRIVER_PROPERTY, "threads"),
+                            Integer.getInteger(DRIVER_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors())));
+            controller.getMetrics().registerMBean(ElevatorMetrics.DEFAULT_OBJECT_NAME);
+            controller.setConsoleOutput(true);
+            controller.setParkingPolicy(createParkingPolicy(System.getProperty(PARKING_PROPERTY, "none")));
+            try {
+                controller.setEventLog(EventLog.fromSystemProperties());
+            } catch (IOException e){
+                throw new UncheckedIOException("Cannot open " + System.getProperty(EventLog.FILE_PROPERTY), e);
+            }
+            try {
+                // Picks up where the previous run left off
+                FleetStore.fromSystemProperties(controller);
+            } catch (IOException e){
+                throw new UncheckedIOException("Cannot open " + System.getProperty(FleetStore.DIRECTORY_PROPERTY), e);
+            }
+            return controller;
+        }
+    }
+
+    ElevatorController(int numberOfElevators, ElevatorDriver driver){
+        this(BuildingConfig.builder().elevators(numberOfElevators).build(), driver);
+    }
+
+    /**
+     * Controller of one building or bank, e.g. a shard of an ElevatorCluster.
+     * Unlike getInstance() it neither logs nor registers an MBean, and its
+     * loop, see run(), is left to the caller to start.
+     * @param buildingConfig Layout of the building
+     * @param driver Drives the elevators of this controller only
+     */
+    public ElevatorController(BuildingConfig buildingConfig, ElevatorDriver driver){
+        this.buildingConfig = buildingConfig;
+        this.driver = driver;
+        this.metrics = new ElevatorMetrics(this);
+        this.demand = new DemandHistogram(buildingConfig);
+
+        int numberOfElevators = buildingConfig.getNumberOfElevators();
+        int floors = buildingConfig.getHighestFloor() + 1;
+        this.elevatorList = new ArrayList<Elevator>(numberOfElevators);
+
+        // Elevators of the same zone share their set of floors
+        List<FloorSet> banks = new ArrayList<FloorSet>();
+        this.bankOf = new int[numberOfElevators];
+        for(int id=0; id<numberOfElevators; id++){
+            FloorSet served = buildingConfig.getServedFloors(id);
+            int bank = 0;
+            while(bank < banks.size() && banks.get(bank) != served){
+                bank++;
+            }
+            if(bank == banks.size()){
+                banks.add(served);
+            }
+            bankOf[id] = bank;
+        }
+        this.bankFloors = banks.toArray(new FloorSet[banks.size()]);
+        this.bankIndexes = new ElevatorIndex[bankFloors.length];
+        for(int bank=0; bank<bankIndexes.length; bank++){
+            bankIndexes[bank] = new ElevatorIndex(numberOfElevators, floors);
+        }
+
+        setStopController(false);
+        initializeElevators(numberOfElevators);
+    }
+
+    /**
+     * @return The real-time controller, laid out as configured by
+     * BuildingConfig.fromSystemProperties() and driven as set by the
+     * elevator.driver system property
+     */
+    public static ElevatorController getInstance(){
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * @param mode threads, virtual or scheduled
+     * @param threads Size of the pool in scheduled mode
+     * @return Real-time driver for the given mode
+     */
+    static ElevatorDriver createDriver(String mode, int threads){
+        if("threads".equals(mode)){
+            return new RealTimeDriver();
+        } else if("virtual".equals(mode)){
+            return RealTimeDriver.virtualThreads();
+        } else if("scheduled".equals(mode)){
+            return new ScheduledDriver(threads);
+        }
+        throw new IllegalArgumentException("Unknown " + DRIVER_PROPERTY + " " + mode
+                + ", expected threads, virtual or scheduled");
+    }
+
+    static ParkingPolicy createParkingPolicy(String policy){
+        if("none".equals(policy)){
+            return null;
+        }
+        if("demand".equals(policy)){
+            return new DemandParkingPolicy();
+        }
+        throw new IllegalArgumentException("Unknown " + PARKING_PROPERTY + " " + policy + ", expected none or demand");
+    }
+
+    /**
+     * Select an elevator from the pool of operational elevators that can serve the
+     * the request optimally, as decided by the DispatchStrategy
+     * @param elevatorRequest  Represents the request for an elevator
+     * @return Selected Elevator, null if no elevator can currently serve the request
+     */
+    public synchronized Elevator selectElevator(ElevatorRequest elevatorRequest) {
+        long lockedAt = System.nanoTime();
+
+        Elevator elevator = null;
+
+        ElevatorState elevatorState = getRequestedElevatorDirection(elevatorRequest);
+        int requestedFloor = elevatorRequest.getRequestFloor();
+        int targetFloor = elevatorRequest.getTargetFloor();
+
+        validateFloors(elevatorRequest);
+        submitted(elevatorRequest);
+
+        elevator = dispatchStrategy.selectElevator(this, elevatorState, requestedFloor, targetFloor);
+        assign(elevatorRequest, elevator);
+
+        metrics.lockHeld(System.nanoTime() - lockedAt);
+        return elevator;
+    }
+
+    /**
+     * Try again to find an elevator for a request none could take when it
+     * was submitted, e.g. because every elevator serving its floors was
+     * full. Unlike selectElevator() the request is not counted or timed as
+     * submitted again, so its wait goes on from the first time.
+     * @param elevatorRequest Submitted before, and still unassigned
+     * @return Selected elevator, null if there is still none
+     */
+    synchronized Elevator retry(ElevatorRequest elevatorRequest) {
+        long lockedAt = System.nanoTime();
+
+        Elevator elevator = dispatchStrategy.selectElevator(this, getRequestedElevatorDirection(elevatorRequest),
+                elevatorRequest.getRequestFloor(), elevatorRequest.getTargetFloor());
+        if(elevator != null){
+            elevatorRequest.setElevator(elevator);
+            logEvent(EventType.ASSIGNED, elevator, elevatorRequest);
+            assignElevator(elevator, elevatorRequest);
+            pendingPickups.add(elevatorRequest);
+            // Time spent dispatching, not waiting for an elevator to have room
+            metrics.requestAssigned(System.nanoTime() - lockedAt);
+        }
+
+        metrics.lockHeld(System.nanoTime() - lockedAt);
+        return elevator;
+    }
+
+    /**
+     * Dispatch a hall call packed by HallCall, like selectElevator() does a
+     * request but without allocating anything, so steady traffic causes no
+     * garbage. The call is timed and logged like a request, under the id it
+     * was packed with, and journaled for FleetStore, but neither handed over
+     * by reassignRequests() nor grouped by DestinationDispatchStrategy.
+     * Allocation free with the NearestElevatorStrategy; the
+     * EtaDispatchStrategy copies the route of every elevator it considers.
+     * @param call
+     * @return Selected elevator, null if none can currently serve the call
+     */
+    public synchronized Elevator dispatch(long call) {
+        long lockedAt = System.nanoTime();
+
+        int requestedFloor = HallCall.origin(call);
+        int targetFloor = HallCall.destination(call);
+        validateFloors(requestedFloor, targetFloor);
+        metrics.requestSubmitted();
+        demand.record(requestedFloor, driver.getClock().currentTimeMillis());
+
+        Elevator elevator = dispatchStrategy.selectElevator(this, HallCall.direction(call), requestedFloor, targetFloor);
+        if(elevator != null && elevator.canTakeCall()){
+            // Logged before the elevator can see the call, as for requests
+            logEvent(EventType.ASSIGNED, elevator, call);
+            elevator.submitCall(call);
+            elevator.addLoad(1);
+            if(elevator.isFull()){
+                updateElevatorLists(elevator);
+            }
+            driver.wake(elevator);
+            metrics.requestAssigned(System.nanoTime() - lockedAt);
+        } else {
+            // Also if the elevator has too many calls posted already
+            elevator = null;
+            metrics.requestUnassigned();
+            logEvent(EventType.UNASSIGNED, null, call);
+        }
+
+        metrics.lockHeld(System.nanoTime() - lockedAt);
+        return elevator;
+    }
+
+    /**
+     * Queue a request to be dispatched together with other queued requests.
+     * Never blocks: if the queue is full the request is rejected right away.
+     * @param elevatorRequest Represents the request for an elevator
+     * @return Completed with the selected elevator, or null if none can
+     * currently serve the request. Fails with a RejectedExecutionException
+     * if the queue is full.
+     */
+    public CompletableFuture<Elevator> submitAsync(ElevatorRequest elevatorRequest) {
+        validateFloors(elevatorRequest);
+        // Timed before the dispatcher can see it
+        elevatorRequest.submitted(driver.getClock().currentTimeMillis());
+
+        CompletableFuture<Elevator> future = new CompletableFuture<Elevator>();
+        elevatorRequest.setAssignment(future);
+        if(!intake.offer(elevatorRequest)){
+            // Shed, so counted neither as submitted nor as demand
+            rejectedRequests.incrementAndGet();
+            future.completeExceptionally(new RejectedExecutionException("Too many queued requests, "
+                    + intake.capacity() + " at most"));
+            return future;
+        }
+
+        countSubmitted(elevatorRequest);
+        driver.requestsQueued(this);
+        return future;
+    }
+
+    /**
+     * Dispatch the next batch of queued requests. Requests from the same
+     * floor going the same way are all given the same elevator, unless the
+     * DispatchStrategy groups requests itself. Only ever
+     * called by the driver, from a single thread.
+     * @return Number of requests dispatched, 0 if none were queued
+     */
+    int dispatchQueuedRequests() {
+        int count;
+        synchronized (this) {
+            long lockedAt = System.nanoTime();
+            DispatchStrategy strategy = dispatchStrategy;
+            count = intake.drainTo(batch, batch.length);
+            Arrays.fill(batchAssigned, 0, count, false);
+            for (int i = 0; i < count; i++) {
+                ElevatorRequest request = batch[i];
+                if (batchAssigned[i]) {
+                    // Already assigned along with an earlier request of this batch
+                    continue;
+                }
+
+                ElevatorState direction = request.getDirection();
+                Elevator elevator = strategy.selectElevator(this, direction,
+                        request.getRequestFloor(), request.getTargetFloor());
+                assign(request, elevator);
+
+                for (int j = i + 1; j < count && elevator != null && strategy.sharesElevatorByFloor(); j++) {
+                    if (elevator.isFull()) {
+                        // The rest are dispatched on their own
+                        break;
+                    }
+                    ElevatorRequest other = batch[j];
+                    if (!batchAssigned[j] && other.getRequestFloor() == request.getRequestFloor()
+                            && other.getDirection().equals(direction)) {
+                        assign(other, elevator);
+                        batchAssigned[j] = true;
+                    }
+                }
+            }
+            if (count > 0) {
+                metrics.lockHeld(System.nanoTime() - lockedAt);
+            }
+        }
+
+        // Outside the lock, callbacks may well submit more requests
+        for (int i = 0; i < count; i++) {
+            ElevatorRequest request = batch[i];
+            batch[i] = null;
+            request.getAssignment().complete(request.getElevator());
+        }
+        return count;
+    }
+
+    /**
+     * @return true if requests are waiting for dispatchQueuedRequests()
+     */
+    boolean hasQueuedRequests() {
+        return !intake.isEmpty();
+    }
+
+    /**
+     * @return Number of requests rejected by submitAsync because the queue was full
+     */
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    private void validateFloors(ElevatorRequest elevatorRequest){
+        String buildingId = elevatorRequest.getBuildingId();
+        if(buildingId != null && !buildingId.equals(buildingConfig.getId())){
+            throw new IllegalArgumentException("Request for building " + buildingId
+                    + " submitted to building " + buildingConfig.getId());
+        }
+        validateFloors(elevatorRequest.getRequestFloor(), elevatorRequest.getTargetFloor());
+    }
+
+    private void validateFloors(int requestFloor, int targetFloor){
+        if(!buildingConfig.hasFloor(requestFloor) || !buildingConfig.hasFloor(targetFloor)){
+            throw new IllegalArgumentException("Floors are " + buildingConfig.getLowestFloor() + " to "
+                    + buildingConfig.getHighestFloor() + ", got " + requestFloor + " to " + targetFloor);
+        }
+    }
+
+    private void submitted(ElevatorRequest elevatorRequest){
+        elevatorRequest.submitted(driver.getClock().currentTimeMillis());
+        countSubmitted(elevatorRequest);
+    }
+
+    private void countSubmitted(ElevatorRequest elevatorRequest){
+        metrics.requestSubmitted();
+        demand.record(elevatorRequest.getRequestFloor(), elevatorRequest.getSubmittedMillis());
+    }
+
+    /**
+     * Send an elevator that has run out of stops to where the ParkingPolicy
+     * wants it to wait, if anywhere else. The caller wakes the elevator if
+     * it is not the one stepping it.
+     * @param elevator
+     * @return true if the elevator was given a stop
+     */
+    boolean park(Elevator elevator){
+        ParkingPolicy policy = parkingPolicy;
+        if(policy == null || !elevator.isInService()){
+            return false;
+        }
+        int floor = policy.parkingFloor(this, elevator);
+        int currentFloor = elevator.getCurrentFloor();
+        if(floor < 0 || floor == currentFloor || !elevator.serves(floor)){
+            return false;
+        }
+        elevator.submitStops(floor > currentFloor ? ElevatorState.UP : ElevatorState.DOWN, floor, floor);
+        return true;
+    }
+
+    /**
+     * Park every elevator that has nothing to do, e.g. the ones that have
+     * been waiting where they started since before there was any demand.
+     * Elevators are parked whenever they run out of stops anyway.
+     * @return Number of elevators sent somewhere
+     */
+    public int parkIdleElevators(){
+        int parked = 0;
+        for(Elevator elevator : elevatorList){
+            if(elevator.isIdle() && park(elevator)){
+                driver.wake(elevator);
+                parked++;
+            }
+        }
+        return parked;
+    }
+
+    private void assign(ElevatorRequest elevatorRequest, Elevator elevator){
+        elevatorRequest.setElevator(elevator);
+        if(elevator != null){
+            // Logged before the elevator gets its stops, or a fast one could
+            // log picking the user up first
+            logEvent(EventType.ASSIGNED, elevator, elevatorRequest);
+            assignElevator(elevator, elevatorRequest);
+            pendingPickups.add(elevatorRequest);
+            metrics.requestAssigned(elevatorRequest);
+        } else {
+            metrics.requestUnassigned();
+            logEvent(EventType.UNASSIGNED, null, elevatorRequest);
+        }
+    }
+
+    /**
+     * Write an event to the event log and the console, if enabled. Never blocks.
+     * @param type
+     * @param elevator Elevator the event is about, null if none
+     * @param request Request the event is about, null if none
+     */
+    void logEvent(EventType type, Elevator elevator, ElevatorRequest request){
+        FleetJournal fleetJournal = journal;
+        long requestId = request == null ? -1 : request.getId();
+        int fromFloor = request == null ? -1 : request.getRequestFloor();
+        int toFloor = request == null ? -1 : request.getTargetFloor();
+        if(fleetJournal != null && elevator != null && request != null){
+            fleetJournal.append(type, elevator.getId(), requestId, fromFloor, toFloor,
+                    type == EventType.ASSIGNED ? request.getSubmittedMillis() : driver.getClock().currentTimeMillis());
+        }
+        logEvent(type, elevator, requestId, fromFloor, toFloor);
+    }
+
+    /**
+     * Write an event about a hall call packed by HallCall to the event log
+     * and the console, if enabled, and to the journal if attached. Never
+     * blocks or allocates.
+     */
+    void logEvent(EventType type, Elevator elevator, long call){
+        FleetJournal fleetJournal = journal;
+        if(fleetJournal != null && elevator != null){
+            fleetJournal.appendCall(type, elevator.getId(), call, driver.getClock().currentTimeMillis());
+        }
+        logEvent(type, elevator, HallCall.id(call), HallCall.origin(call), HallCall.destination(call));
+    }
+
+    private void logEvent(EventType type, Elevator elevator, long requestId, int fromFloor, int toFloor){
+        EventLog log = eventLog;
+        EventLog console = consoleLog;
+        if(log == null && console == null){
+            return;
+        }
+        long now = driver.getClock().currentTimeMillis();
+        int elevatorId = elevator == null ? -1 : elevator.getId();
+        int floor = elevator == null ? -1 : elevator.getCurrentFloor();
+        ElevatorState state = elevator == null ? null : elevator.getElevatorState();
+        if(log != null){
+            log.log(now, type, elevatorId, floor, state, requestId, fromFloor, toFloor);
+        }
+        if(console != null){
+            console.log(now, type, elevatorId, floor, state, requestId, fromFloor, toFloor);
+        }
+    }
+
+    /**
+     * Give a request restored by FleetStore back to its elevator. The
+     * elevator has to be woken afterwards.
+     * @param elevator
+     * @param request Picked up already or not
+     */
+    void restoreRequest(Elevator elevator, ElevatorRequest request){
+        request.setElevator(elevator);
+        elevator.addLoad(1);
+        if(request.isPickedUp()){
+            elevator.submitOnboard(request);
+        } else {
+            elevator.submitRequest(request);
+            pendingPickups.add(request);
+        }
+    }
+
+    /**
+     * The same for a hall call packed by HallCall
+     * @param elevator
+     * @param call
+     * @param onboard true if it has been picked up, stamped with the time it was
+     */
+    void restoreCall(Elevator elevator, long call, boolean onboard){
+        elevator.addLoad(1);
+        elevator.restoreCall(call, onboard);
+    }
+
+    void setJournal(FleetJournal journal) {
+        this.journal = journal;
+    }
+
+    private void initializeElevators(int numberOfElevators){
+        for(int i=0; i<numberOfElevators; i++){
+            Elevator elevator = new Elevator(i, this);
+            driver.start(elevator);
+
+            elevatorList.add(elevator);
+        }
+    }
+
+    private static ElevatorState getRequestedElevatorDirection(ElevatorRequest elevatorRequest){
+        ElevatorState elevatorState = null;
+        int requestedFloor = elevatorRequest.getRequestFloor();
+        int targetFloor = elevatorRequest.getTargetFloor();
+
+        if(targetFloor - requestedFloor > 0){
+            elevatorState = ElevatorState.UP;
+        } else {
+            elevatorState = ElevatorState.DOWN;
+        }
+
+        return elevatorState;
+    }
+
+    /**
+     * Internal method to select the nearest eligible elevator serving the
+     * requested floor. Has no side effects.
+     * @param elevatorState UP or DOWN
+     * @param requestedFloor Floor number where request is originating from
+     * @return selected elevator, null if every elevator is busy moving away
+     * from the requested floor
+     */
+    Elevator findElevator(ElevatorState elevatorState, int requestedFloor) {
+        return findElevator(elevatorState, requestedFloor, requestedFloor);
+    }
+
+    /**
+     * Internal method to select the nearest eligible elevator. Has no side effects.
+     * Elevators serving both floors that are moving in the requested direction
+     * and have not passed the requested floor are eligible, and so are
+     * STATIONARY ones, unless they are full.
+     * @param elevatorState UP or DOWN
+     * @param requestedFloor Floor number where request is originating from
+     * @param targetFloor Floor the user wants to go to
+     * @return selected elevator, null if every elevator serving both floors
+     * is busy moving away from the requested floor
+     */
+    Elevator findElevator(ElevatorState elevatorState, int requestedFloor, int targetFloor) {
+        int elevatorId = -1;
+        int distance = Integer.MAX_VALUE;
+        synchronized (indexLock){
+            for(int bank=0; bank<bankIndexes.length; bank++){
+                if(!bankFloors[bank].contains(requestedFloor) || !bankFloors[bank].contains(targetFloor)){
+                    continue;
+                }
+                ElevatorIndex index = bankIndexes[bank];
+                int id = index.nearest(elevatorState, requestedFloor);
+                if(id >= 0 && Math.abs(index.floorOf(id) - requestedFloor) < distance){
+                    elevatorId = id;
+                    distance = Math.abs(index.floorOf(id) - requestedFloor);
+                }
+            }
+        }
+        return elevatorId < 0 ? null : elevatorList.get(elevatorId);
+    }
+
+    /**
+     * Internal method to generate UP and/or DOWN paths for the selected elevator.
+     * @param elevator Elevator selected by findElevator
+     * @param elevatorRequest Request the elevator has been selected for
+     */
+    private void assignElevator(Elevator elevator, ElevatorRequest elevatorRequest) {
+        int requestedFloor = elevatorRequest.getRequestFloor();
+        int targetFloor = elevatorRequest.getTargetFloor();
+
+        // Instructing the selected elevator to stop/pass by relavent floors
+        int currentFloor = elevator.getCurrentFloor();
+        ElevatorState elevatorDirection = requestedFloor > currentFloor
+                ? ElevatorState.UP : ElevatorState.DOWN;
+
+        // Posted to the elevator's inbox, the elevator applies them between floors
+        // so we never have to wait for it to finish moving. The first one is
+        // helpful if we are moving in opposite direction to than that of request;
+        // none if we are there already, or it would be a leg going nowhere
+        if(requestedFloor != currentFloor){
+            elevator.submitStops(elevatorDirection, requestedFloor, requestedFloor);
+        }
+        elevator.submitRequest(elevatorRequest);
+        elevator.addLoad(1);
+        if(elevator.isFull()){
+            // Out of the index until it drops someone off
+            updateElevatorLists(elevator);
+        }
+        driver.wake(elevator);
+    }
+
+    /**
+     * Re-evaluate every request that has been assigned but not picked up yet,
+     * and hand it over to another elevator that can get there sooner, e.g.
+     * because a later request extended the path of the original elevator.
+     * @return Number of requests handed over
+     */
+    public synchronized int reassignRequests(){
+        long lockedAt = System.nanoTime();
+        int reassigned = 0;
+        long threshold = reassignThresholdMillis;
+
+        Iterator<ElevatorRequest> iter = pendingPickups.iterator();
+        while(iter.hasNext()){
+            ElevatorRequest request = iter.next();
+            Elevator current = request.getElevator();
+            if(request.isPickedUp() || current == null){
+                iter.remove();
+                continue;
+            }
+
+            ElevatorState direction = request.getDirection();
+            int requestedFloor = request.getRequestFloor();
+            long currentCost = reassignEstimator.estimateCost(current, direction, requestedFloor);
+
+            Elevator best = null;
+            long bestCost = currentCost - threshold;
+            for(Elevator elevator : elevatorList){
+                if(elevator == current || !elevator.isInService() || elevator.isFull()
+                        || !elevator.serves(requestedFloor) || !elevator.serves(request.getTargetFloor())){
+                    continue;
+                }
+                long cost = reassignEstimator.estimateCost(elevator, direction, requestedFloor);
+                if(cost < bestCost){
+                    best = elevator;
+                    bestCost = cost;
+                }
+            }
+
+            // Fails if the current elevator picked the user up in the meantime
+            if(best != null && request.reassign(current, best)){
+                logEvent(EventType.REASSIGNED, best, request);
+                assignElevator(best, request);
+                current.addLoad(-1);
+                updateElevatorLists(current);
+                current.cancelRequest(request);
+                driver.wake(current);
+                metrics.requestReassigned();
+                reassigned++;
+            }
+        }
+
+        metrics.lockHeld(System.nanoTime() - lockedAt);
+        return reassigned;
+    }
+
+
+    /**
+     * Hand a request an elevator going out of service has not picked up yet
+     * over to the elevator the DispatchStrategy selects, as
+     * reassignRequests() does. Called by whoever is stepping the draining
+     * elevator, which drops the stops nobody needs itself.
+     * @param from Draining elevator
+     * @param request
+     * @return false if no other elevator can take the request, so the
+     * draining one still has to serve it
+     */
+    synchronized boolean handBack(Elevator from, ElevatorRequest request){
+        long lockedAt = System.nanoTime();
+        Elevator to = dispatchStrategy.selectElevator(this, request.getDirection(),
+                request.getRequestFloor(), request.getTargetFloor());
+        boolean handed = to != null && to != from && request.reassign(from, to);
+        if(handed){
+            logEvent(EventType.REASSIGNED, to, request);
+            assignElevator(to, request);
+            from.addLoad(-1);
+            metrics.requestReassigned();
+        }
+        metrics.lockHeld(System.nanoTime() - lockedAt);
+        return handed;
+    }
+
+    /**
+     * The same for a hall call packed by HallCall, which keeps the time it
+     * was made at so its wait is measured from then
+     * @param from Draining elevator
+     * @param call
+     * @return false if no other elevator can take the call
+     */
+    synchronized boolean handBack(Elevator from, long call){
+        long lockedAt = System.nanoTime();
+        Elevator to = dispatchStrategy.selectElevator(this, HallCall.direction(call),
+                HallCall.origin(call), HallCall.destination(call));
+        boolean handed = to != null && to != from && to.canTakeCall();
+        if(handed){
+            logEvent(EventType.REASSIGNED, to, call);
+            to.submitCall(call);
+            to.addLoad(1);
+            if(to.isFull()){
+                updateElevatorLists(to);
+            }
+            driver.wake(to);
+            from.addLoad(-1);
+            metrics.requestReassigned();
+        }
+        metrics.lockHeld(System.nanoTime() - lockedAt);
+        return handed;
+    }
+
+    /**
+     * update the state of elevator as soon as it changes the direction or
+     * the floor it is at, or becomes full or has room again.
+     * @param elevator
+     */
+    public void updateElevatorLists(Elevator elevator){
+        synchronized (indexLock){
+            ElevatorIndex index = bankIndexes[bankOf[elevator.getId()]];
+            if(elevator.isFull() || !elevator.isInService()){
+                // Cannot take new requests wherever it is
+                index.remove(elevator.getId());
+            } else {
+                index.update(elevator.getId(), elevator.getElevatorState(), elevator.getCurrentFloor());
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        long lastReassign = driver.getClock().currentTimeMillis();
+        long lastParking = lastReassign;
+        while(true){
+            try {
+                Thread.sleep(LOOP_INTERVAL_MILLIS);
+                if(stopController){
+                    break;
+                }
+
+                long now = driver.getClock().currentTimeMillis();
+                long interval = reassignIntervalMillis;
+                if(interval > 0 && now - lastReassign >= interval){
+                    reassignRequests();
+                    lastReassign = now;
+                }
+                if(parkingPolicy != null && now - lastParking >= PARKING_INTERVAL_MILLIS){
+                    parkIdleElevators();
+                    lastParking = now;
+                }
+            } catch (InterruptedException e){
+                System.out.println(e.getStackTrace());
+            }
+        }
+    }
+
+    public void setStopController(boolean stop){
+        this.stopController = stop;
+
+    }
+
+    /**
+     * Not synchronized: the list is filled in by the constructor and never
+     * changes afterwards, so status reads do not wait for dispatching.
+     */
+    public List<Elevator> getElevatorList() {
+        return elevatorList;
+    }
+
+    /**
+     * Read the state every elevator last published, without locking
+     * @return Packed state of each elevator, indexed by elevator id, see CarState
+     */
+    public long[] snapshotCarStates() {
+        return snapshotCarStates(new long[elevatorList.size()]);
+    }
+
+    /**
+     * @param into Array to fill in, at least as long as the list of elevators
+     * @return into
+     */
+    public long[] snapshotCarStates(long[] into) {
+        for(int id=0; id<elevatorList.size(); id++){
+            into[id] = elevatorList.get(id).getState();
+        }
+        return into;
+    }
+
+    public boolean isStopController() {
+        return stopController;
+    }
+
+    /**
+     * @return Latency and utilization metrics of this controller
+     */
+    public ElevatorMetrics getMetrics() {
+        return metrics;
+    }
+
+    public BuildingConfig getBuildingConfig() {
+        return buildingConfig;
+    }
+
+    public ElevatorDriver getDriver() {
+        return driver;
+    }
+
+    public long getReassignIntervalMillis() {
+        return reassignIntervalMillis;
+    }
+
+    /**
+     * How often requests not picked up yet are re-evaluated and possibly
+     * handed over to another elevator, while the controller is running.
+     * @param reassignIntervalMillis Interval, 0 to never hand requests over
+     */
+    public void setReassignIntervalMillis(long reassignIntervalMillis) {
+        this.reassignIntervalMillis = reassignIntervalMillis;
+    }
+
+    public long getReassignThresholdMillis() {
+        return reassignThresholdMillis;
+    }
+
+    /**
+     * @param reassignThresholdMillis How much sooner another elevator has to
+     *                                arrive for a request to be handed over
+     */
+    public void setReassignThresholdMillis(long reassignThresholdMillis) {
+        this.reassignThresholdMillis = reassignThresholdMillis;
+    }
+
+    public DispatchStrategy getDispatchStrategy() {
+        return dispatchStrategy;
+    }
+
+    /**
+     * Change how elevators are selected for requests from now on
+     * @param dispatchStrategy
+     */
+    public void setDispatchStrategy(DispatchStrategy dispatchStrategy) {
+        this.dispatchStrategy = dispatchStrategy;
+    }
+
+    /**
+     * @return Where requests have come from, by floor and time of day
+     */
+    public DemandHistogram getDemand() {
+        return demand;
+    }
+
+    public ParkingPolicy getParkingPolicy() {
+        return parkingPolicy;
+    }
+
+    /**
+     * Change where idle elevators wait from now on
+     * @param parkingPolicy null to leave them where they stop
+     */
+    public void setParkingPolicy(ParkingPolicy parkingPolicy) {
+        this.parkingPolicy = parkingPolicy;
+    }
+
+    public EventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Write elevator and request events to the given log from now on. The
+     * previous log is not closed.
+     * @param eventLog Log, null to stop logging
+     */
+    public void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * @return true if elevators print every floor they pass to the console
+     */
+    public boolean isConsoleOutput() {
+        return consoleLog != null;
+    }
+
+    /**
+     * Print every floor elevators pass, and what happens to every request, to
+     * System.out. Printing happens on a background thread of its own.
+     * @param consoleOutput
+     */
+    public synchronized void setConsoleOutput(boolean consoleOutput) {
+        if(consoleOutput && consoleLog == null){
+            consoleLog = EventLog.console();
+        } else if(!consoleOutput && consoleLog != null){
+            EventLog console = consoleLog;
+            consoleLog = null;
+            try {
+                console.close();
+            } catch (IOException e){
+                // Nothing left to print to
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package elevator;
+
+/**
+ * Decides when and on which thread elevators get to move. The ElevatorController
+ * hands every elevator to its driver and wakes the elevator through the driver
+ * whenever it posts new stops to it.
+ */
+public interface ElevatorDriver {
+
+    /**
+     * @return Clock elevators driven by this driver run on
+     */
+    Clock getClock();
+
+    /**
+     * Start driving a newly created elevator
+     * @param elevator
+     */
+    void start(Elevator elevator);
+
+    /**
+     * Let an elevator know that there are new stops waiting in its inbox
+     * @param elevator
+     */
+    void wake(Elevator elevator);
+
+    /**
+     * Let the driver know that requests have been queued through
+     * ElevatorController.submitAsync(). The driver must make sure
+     * ElevatorController.dispatchQueuedRequests() gets called, never from two
+     * threads at once, until the queue is empty.
+     * @param controller
+     */
+    void requestsQueued(ElevatorController controller);
+}
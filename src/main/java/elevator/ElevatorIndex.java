@@ -0,0 +1,197 @@
+package elevator;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index of operational elevators by direction and floor. For each of
+ * UP, DOWN and STATIONARY it keeps a bitset of floors holding at least one
+ * such elevator, plus an intrusive linked list of the elevator ids on every
+ * floor. Updates are O(1) and finding the nearest eligible elevator only
+ * scans bitset words, without boxing or allocating.
+ * Not thread safe, the ElevatorController guards it.
+ */
+final class ElevatorIndex {
+
+    private static final int UP = 0;
+    private static final int DOWN = 1;
+    private static final int STATIONARY = 2;
+    private static final int GROUPS = 3;
+
+    // Group of an elevator that is not indexed, e.g. under maintenance
+    private static final int NONE = -1;
+
+    private int floors;
+
+    // [group] -> bitset of floors that have at least one elevator of that group
+    private long[][] occupied = new long[GROUPS][];
+
+    // [group][floor] -> first elevator id in that floor's list, -1 if empty
+    private int[][] heads = new int[GROUPS][];
+
+    // Indexed by elevator id
+    private int[] next;
+    private int[] prev;
+    private int[] group;
+    private int[] floor;
+
+    ElevatorIndex(int numberOfElevators, int floors){
+        this.floors = Math.max(floors, 1);
+        for(int g=0; g<GROUPS; g++){
+            occupied[g] = new long[FloorBits.words(this.floors)];
+            heads[g] = new int[this.floors];
+            Arrays.fill(heads[g], -1);
+        }
+        next = new int[numberOfElevators];
+        prev = new int[numberOfElevators];
+        group = new int[numberOfElevators];
+        floor = new int[numberOfElevators];
+        Arrays.fill(group, NONE);
+    }
+
+    /**
+     * Move an elevator to its current group and floor
+     * @param id Elevator id
+     * @param state Current state of the elevator
+     * @param currentFloor Current floor of the elevator
+     */
+    void update(int id, ElevatorState state, int currentFloor){
+        if(id >= group.length){
+            growElevators(id + 1);
+        }
+        if(currentFloor >= floors){
+            growFloors(currentFloor + 1);
+        }
+
+        int newGroup = groupOf(state);
+        if(newGroup == group[id] && currentFloor == floor[id]){
+            return;
+        }
+
+        unlink(id);
+        if(newGroup != NONE){
+            link(id, newGroup, currentFloor);
+        }
+    }
+
+    /**
+     * Take an elevator out of the index until it is updated again
+     * @param id Elevator id
+     */
+    void remove(int id){
+        if(id < group.length){
+            unlink(id);
+        }
+    }
+
+    /**
+     * Find the elevator nearest to the requested floor that can still serve a
+     * request in the given direction: elevators already moving that way which
+     * have not passed the floor, or stationary ones. On equal distance an
+     * elevator already moving in the requested direction wins.
+     * @param direction UP or DOWN
+     * @param requestedFloor Floor number where request is originating from
+     * @return Elevator id, -1 if none is eligible
+     */
+    int nearest(ElevatorState direction, int requestedFloor){
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+
+        if(direction.equals(ElevatorState.UP)){
+            int below = FloorBits.previousSetBit(occupied[UP], requestedFloor);
+            if(below >= 0){
+                best = heads[UP][below];
+                bestDistance = requestedFloor - below;
+            }
+        } else {
+            int above = FloorBits.nextSetBit(occupied[DOWN], requestedFloor);
+            if(above >= 0){
+                best = heads[DOWN][above];
+                bestDistance = above - requestedFloor;
+            }
+        }
+
+        int below = FloorBits.previousSetBit(occupied[STATIONARY], requestedFloor);
+        if(below >= 0 && requestedFloor - below < bestDistance){
+            best = heads[STATIONARY][below];
+            bestDistance = requestedFloor - below;
+        }
+        int above = FloorBits.nextSetBit(occupied[STATIONARY], requestedFloor);
+        if(above >= 0 && above - requestedFloor < bestDistance){
+            best = heads[STATIONARY][above];
+        }
+
+        return best;
+    }
+
+    /**
+     * @return Floor the elevator was last indexed at
+     */
+    int floorOf(int id){
+        return floor[id];
+    }
+
+    private static int groupOf(ElevatorState state){
+        switch (state){
+            case UP:
+                return UP;
+            case DOWN:
+                return DOWN;
+            case STATIONARY:
+                return STATIONARY;
+            default:
+                return NONE;
+        }
+    }
+
+    private void link(int id, int g, int f){
+        int head = heads[g][f];
+        next[id] = head;
+        prev[id] = -1;
+        if(head >= 0){
+            prev[head] = id;
+        }
+        heads[g][f] = id;
+        FloorBits.set(occupied[g], f);
+        group[id] = g;
+        floor[id] = f;
+    }
+
+    private void unlink(int id){
+        int g = group[id];
+        if(g == NONE){
+            return;
+        }
+        int f = floor[id];
+        if(prev[id] >= 0){
+            next[prev[id]] = next[id];
+        } else {
+            heads[g][f] = next[id];
+        }
+        if(next[id] >= 0){
+            prev[next[id]] = prev[id];
+        }
+        if(heads[g][f] < 0){
+            FloorBits.clear(occupied[g], f);
+        }
+        group[id] = NONE;
+    }
+
+    private void growElevators(int numberOfElevators){
+        int old = group.length;
+        next = Arrays.copyOf(next, numberOfElevators);
+        prev = Arrays.copyOf(prev, numberOfElevators);
+        floor = Arrays.copyOf(floor, numberOfElevators);
+        group = Arrays.copyOf(group, numberOfElevators);
+        Arrays.fill(group, old, numberOfElevators, NONE);
+    }
+
+    private void growFloors(int minFloors){
+        int newFloors = Math.max(minFloors, floors * 2);
+        for(int g=0; g<GROUPS; g++){
+            occupied[g] = Arrays.copyOf(occupied[g], FloorBits.words(newFloors));
+            heads[g] = Arrays.copyOf(heads[g], newFloors);
+            Arrays.fill(heads[g], floors, newFloors, -1);
+        }
+        floors = newFloors;
+    }
+}
@@ -1,3 +1,4 @@
+package elevator;
 
 import java.util.Scanner;
 
@@ -12,6 +13,11 @@ public class ElevatorMain {
     public static void main(String [ ] args){
 
         elevatorController = ElevatorController.getInstance();
+        BuildingConfig building = elevatorController.getBuildingConfig();
+        int lastElevator = building.getNumberOfElevators() - 1;
+        String floors = "(" + building.getLowestFloor() + " to " + building.getHighestFloor() + ")";
+        // Hand requests over to elevators that become free sooner
+        elevatorController.setReassignIntervalMillis(1000);
         elevatorControllerThread = new Thread(elevatorController);
         elevatorControllerThread.start();
 
@@ -31,27 +37,38 @@ public class ElevatorMain {
 
             // Allows a person to enter his/her name
             Scanner input = new Scanner(System.in);
-            System.out.println("Enter choice (number): \n 1. Elevator status \n 2. Request elevator");
+            System.out.println("Enter choice (number): \n 1. Elevator status \n 2. Request elevator \n 3. Metrics");
             choice = input.nextInt();
 
             if(choice == 1){
                 input = new Scanner(System.in);
-                System.out.println("Enter the elevator number (from 0 to 15): ");
-                choice = input.nextInt();
+                System.out.println("Enter the elevator number (from 0 to " + lastElevator + "): ");
+                int elevatorNumber = input.nextInt();
+                if(elevatorNumber < 0 || elevatorNumber > lastElevator){
+                    System.out.println("No such elevator");
+                    continue;
+                }
+
+                Elevator elevator = ElevatorController.getInstance().getElevatorList().get(elevatorNumber);
+                System.out.println("Elevator - " + elevator.getId() + " | " + CarState.toString(elevator.getState()));
+            }
 
-                Elevator elevator = ElevatorController.getInstance().getElevatorList().get(choice);
-                System.out.println("Elevator - " + elevator.getId() + " | Current floor - " + elevator.getCurrentFloor()
-                        + " | Status - " + elevator.getElevatorState());
+            if(choice == 3){
+                System.out.println(elevatorController.getMetrics().snapshot());
             }
 
             if(choice == 2) {
                 input = new Scanner(System.in);
-                System.out.println("Enter the floor where elevator is requested from (0 to 15): ");
+                System.out.println("Enter the floor where elevator is requested from " + floors + ": ");
                 int reqestFloor = input.nextInt();
 
                 input = new Scanner(System.in);
-                System.out.println("Enter the destination floor(0 to 15): ");
+                System.out.println("Enter the destination floor" + floors + ": ");
                 int targetFloor = input.nextInt();
+                if(!building.hasFloor(reqestFloor) || !building.hasFloor(targetFloor)){
+                    System.out.println("No such floor");
+                    continue;
+                }
 
                 ElevatorRequest elevatorRequest = new ElevatorRequest(reqestFloor, targetFloor);
                 Elevator elevator = elevatorRequest.submitRequest();
@@ -0,0 +1,298 @@
+package elevator;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Latency and utilization metrics of one ElevatorController. Every request
+ * is timed from submission to assignment, pickup and drop-off; elevators
+ * count the time they spend moving and how often they reverse; drop-offs
+ * are also counted per clock minute of the last day, for the busiest
+ * stretch of deliveries; and the controller times how long it holds its lock. Recording never locks, so it
+ * is cheap enough to stay on in production. Read it through snapshot(),
+ * periodically through publishEvery(), or over JMX once registered.
+ */
+public final class ElevatorMetrics implements ElevatorMetricsMXBean {
+
+    public static final String DEFAULT_OBJECT_NAME = "elevator:type=ElevatorMetrics";
+
+    // Anything slower is recorded as this
+    static final long MAX_TRACKED_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long MAX_TRACKED_NANOS = TimeUnit.MINUTES.toNanos(1);
+    static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    static final int TRACKED_MINUTES = (int) TimeUnit.MILLISECONDS.toMinutes(MAX_TRACKED_MILLIS);
+
+    private final ElevatorController controller;
+    private final long startMillis;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong assigned = new AtomicLong();
+    private final AtomicLong unassigned = new AtomicLong();
+    private final AtomicLong reassigned = new AtomicLong();
+    private final AtomicLong pickedUp = new AtomicLong();
+    private final AtomicLong droppedOff = new AtomicLong();
+
+    private final LatencyHistogram waitMillis = new LatencyHistogram(MAX_TRACKED_MILLIS);
+    private final LatencyHistogram rideMillis = new LatencyHistogram(MAX_TRACKED_MILLIS);
+    private final LatencyHistogram assignmentNanos = new LatencyHistogram(MAX_TRACKED_NANOS);
+    private final LatencyHistogram lockHoldNanos = new LatencyHistogram(MAX_TRACKED_NANOS);
+    // Drop-offs of a clock minute in the low half, the minute in the high half,
+    // slot by minute modulo the length
+    private final AtomicLongArray deliveriesPerMinute = new AtomicLongArray(TRACKED_MINUTES);
+
+    ElevatorMetrics(ElevatorController controller){
+        this.controller = controller;
+        this.startMillis = controller.getDriver().getClock().currentTimeMillis();
+    }
+
+    void requestSubmitted(){
+        submitted.incrementAndGet();
+    }
+
+    void requestAssigned(ElevatorRequest request){
+        requestAssigned(System.nanoTime() - request.getSubmittedNanos());
+    }
+
+    void requestAssigned(long assignmentNanos){
+        assigned.incrementAndGet();
+        this.assignmentNanos.record(assignmentNanos);
+    }
+
+    void requestUnassigned(){
+        unassigned.incrementAndGet();
+    }
+
+    void requestReassigned(){
+        reassigned.incrementAndGet();
+    }
+
+    void requestPickedUp(ElevatorRequest request){
+        requestPickedUp(request.getPickedUpMillis() - request.getSubmittedMillis());
+    }
+
+    void requestPickedUp(long waitMillis){
+        pickedUp.incrementAndGet();
+        this.waitMillis.record(waitMillis);
+    }
+
+    void requestDroppedOff(ElevatorRequest request){
+        requestDroppedOff(request.getDroppedOffMillis(), request.getDroppedOffMillis() - request.getPickedUpMillis());
+    }
+
+    void requestDroppedOff(long nowMillis, long rideMillis){
+        droppedOff.incrementAndGet();
+        this.rideMillis.record(rideMillis);
+        long minute = nowMillis / MINUTE_MILLIS;
+        int slot = (int) (minute % TRACKED_MINUTES);
+        while(true){
+            long bucket = deliveriesPerMinute.get(slot);
+            long counted = bucket >>> 32 == minute ? bucket + 1 : minute << 32 | 1;
+            if(bucket >>> 32 > minute || deliveriesPerMinute.compareAndSet(slot, bucket, counted)){
+                return;
+            }
+        }
+    }
+
+    void lockHeld(long nanos){
+        lockHoldNanos.record(nanos);
+    }
+
+    /**
+     * @return Everything recorded since the controller started
+     */
+    public MetricsSnapshot snapshot(){
+        long now = controller.getDriver().getClock().currentTimeMillis();
+        List<Elevator> elevators = controller.getElevatorList();
+        long[] busy = new long[elevators.size()];
+        long[] reversals = new long[elevators.size()];
+        long[] stops = new long[elevators.size()];
+        long[] trips = new long[elevators.size()];
+        long[] floors = new long[elevators.size()];
+        for(int i=0; i<busy.length; i++){
+            Elevator elevator = elevators.get(i);
+            busy[i] = elevator.getBusyMillis();
+            reversals[i] = elevator.getReversals();
+            stops[i] = elevator.getStops();
+            trips[i] = elevator.getTrips();
+            floors[i] = elevator.getFloorsTravelled();
+        }
+        long lastMinute = now / MINUTE_MILLIS;
+        long firstMinute = Math.max(startMillis / MINUTE_MILLIS, lastMinute - TRACKED_MINUTES + 1);
+        long[] deliveries = new long[(int) (lastMinute - firstMinute + 1)];
+        for(int i=0; i<deliveries.length; i++){
+            long minute = firstMinute + i;
+            long bucket = deliveriesPerMinute.get((int) (minute % TRACKED_MINUTES));
+            deliveries[i] = bucket >>> 32 == minute ? bucket & 0xffffffffL : 0;
+        }
+        return new MetricsSnapshot(now, now - startMillis, submitted.get(), assigned.get(), unassigned.get(),
+                controller.getRejectedRequests(), reassigned.get(), pickedUp.get(), droppedOff.get(),
+                waitMillis.snapshot(), rideMillis.snapshot(), assignmentNanos.snapshot(), lockHoldNanos.snapshot(),
+                busy, reversals, stops, trips, floors, firstMinute, deliveries);
+    }
+
+    /**
+     * Hand a snapshot of what happened during every period to the listener
+     * @param executor Runs the listener
+     * @param period
+     * @param unit
+     * @param listener Gets the interval since the previous call, the first
+     *                 time since the controller started
+     * @return Cancel it to stop publishing
+     */
+    public ScheduledFuture<?> publishEvery(ScheduledExecutorService executor, long period, TimeUnit unit,
+                                           final Consumer<MetricsSnapshot> listener){
+        return executor.scheduleAtFixedRate(new Runnable() {
+            private MetricsSnapshot previous;
+
+            @Override
+            public void run() {
+                MetricsSnapshot current = snapshot();
+                listener.accept(previous == null ? current : current.since(previous));
+                previous = current;
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Register with the platform MBean server
+     * @param name Object name, e.g. DEFAULT_OBJECT_NAME
+     * @throws IllegalStateException if the name is invalid or taken
+     */
+    public void registerMBean(String name){
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(name));
+        } catch (JMException e){
+            throw new IllegalStateException("Cannot register " + name, e);
+        }
+    }
+
+    @Override
+    public long getRequestsSubmitted() {
+        return submitted.get();
+    }
+
+    @Override
+    public long getRequestsAssigned() {
+        return assigned.get();
+    }
+
+    @Override
+    public long getRequestsUnassigned() {
+        return unassigned.get();
+    }
+
+    @Override
+    public long getRequestsRejected() {
+        return controller.getRejectedRequests();
+    }
+
+    @Override
+    public long getRequestsReassigned() {
+        return reassigned.get();
+    }
+
+    @Override
+    public long getRequestsPickedUp() {
+        return pickedUp.get();
+    }
+
+    @Override
+    public long getRequestsDroppedOff() {
+        return droppedOff.get();
+    }
+
+    @Override
+    public long getWaitMillisP50() {
+        return waitMillis.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getWaitMillisP99() {
+        return waitMillis.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getWaitMillisP999() {
+        return waitMillis.snapshot().getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getWaitMillisMax() {
+        return waitMillis.snapshot().getMax();
+    }
+
+    @Override
+    public long getRideMillisP50() {
+        return rideMillis.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getRideMillisP99() {
+        return rideMillis.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getRideMillisP999() {
+        return rideMillis.snapshot().getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getAssignmentNanosP50() {
+        return assignmentNanos.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getAssignmentNanosP99() {
+        return assignmentNanos.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getAssignmentNanosP999() {
+        return assignmentNanos.snapshot().getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getLockHoldNanosP50() {
+        return lockHoldNanos.snapshot().getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getLockHoldNanosP99() {
+        return lockHoldNanos.snapshot().getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getLockHoldNanosP999() {
+        return lockHoldNanos.snapshot().getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public double[] getCarUtilization() {
+        return snapshot().getCarUtilization();
+    }
+
+    @Override
+    public long[] getCarReversals() {
+        return snapshot().getCarReversals();
+    }
+
+    @Override
+    public double getStopsPerTrip() {
+        return snapshot().getStopsPerTrip();
+    }
+
+    @Override
+    public double getPassengersPerFiveMinutes() {
+        return snapshot().getPassengersPerFiveMinutes();
+    }
+}
@@ -0,0 +1,71 @@
+package elevator;
+
+/**
+ * Live view of ElevatorMetrics over JMX. Times are cumulative since the
+ * controller started; use ElevatorMetrics.snapshot() for intervals.
+ */
+public interface ElevatorMetricsMXBean {
+
+    long getRequestsSubmitted();
+
+    long getRequestsAssigned();
+
+    /**
+     * @return Requests no elevator could serve when they were dispatched
+     */
+    long getRequestsUnassigned();
+
+    long getRequestsRejected();
+
+    long getRequestsReassigned();
+
+    long getRequestsPickedUp();
+
+    long getRequestsDroppedOff();
+
+    long getWaitMillisP50();
+
+    long getWaitMillisP99();
+
+    long getWaitMillisP999();
+
+    long getWaitMillisMax();
+
+    long getRideMillisP50();
+
+    long getRideMillisP99();
+
+    long getRideMillisP999();
+
+    long getAssignmentNanosP50();
+
+    long getAssignmentNanosP99();
+
+    long getAssignmentNanosP999();
+
+    long getLockHoldNanosP50();
+
+    long getLockHoldNanosP99();
+
+    long getLockHoldNanosP999();
+
+    /**
+     * @return Fraction of the time every elevator spent moving, indexed by elevator id
+     */
+    double[] getCarUtilization();
+
+    /**
+     * @return Number of times every elevator reversed direction, indexed by elevator id
+     */
+    long[] getCarReversals();
+
+    /**
+     * @return Stops to let someone on or off per leg travelled
+     */
+    double getStopsPerTrip();
+
+    /**
+     * @return Requests dropped off during the busiest five clock minutes of the last day
+     */
+    double getPassengersPerFiveMinutes();
+}
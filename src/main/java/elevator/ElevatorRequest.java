@@ -0,0 +1,208 @@
+package elevator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a request for an user to use the elevator
+ */
+public class ElevatorRequest {
+    private static final AtomicLong ids = new AtomicLong();
+
+    // Identifies the request in event logs and FleetStore journals
+    private final long id;
+
+    // Building the request belongs to, null for the only one there is
+    private final String buildingId;
+
+    private int requestFloor;
+    private int targetFloor;
+
+    // Elevator the controller selected for this request, null until then.
+    // May change until the request is picked up.
+    private volatile Elevator elevator;
+
+    // Completed with the selected elevator when submitted asynchronously
+    private CompletableFuture<Elevator> assignment;
+
+    private volatile boolean pickedUp;
+    private volatile boolean droppedOff;
+
+    // Clock time of every stage, -1 until it happens
+    private volatile long submittedMillis = -1;
+    private volatile long pickedUpMillis = -1;
+    private volatile long droppedOffMillis = -1;
+    // System.nanoTime() at submission, to time the assignment
+    private volatile long submittedNanos;
+
+    public ElevatorRequest(int requestFloor, int targetFloor){
+        this(null, requestFloor, targetFloor);
+    }
+
+    /**
+     * @param buildingId Id of the building, see BuildingConfig.getId(), null
+     * if the request goes to the only building there is
+     * @param requestFloor
+     * @param targetFloor
+     */
+    public ElevatorRequest(String buildingId, int requestFloor, int targetFloor){
+        this.id = ids.getAndIncrement();
+        this.buildingId = buildingId;
+        this.requestFloor = requestFloor;
+        this.targetFloor = targetFloor;
+    }
+
+    /**
+     * Recreate a request saved by FleetStore. Requests created afterwards get
+     * higher ids.
+     * @param id Id of the saved request
+     * @param submittedMillis
+     * @param pickedUpMillis -1 if the request has not been picked up
+     */
+    ElevatorRequest(long id, int requestFloor, int targetFloor, long submittedMillis, long pickedUpMillis){
+        this.id = id;
+        this.buildingId = null;
+        this.requestFloor = requestFloor;
+        this.targetFloor = targetFloor;
+        this.submittedMillis = submittedMillis;
+        this.pickedUpMillis = pickedUpMillis;
+        this.pickedUp = pickedUpMillis >= 0;
+        ids.accumulateAndGet(id + 1, Math::max);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return Id of the building the request belongs to, null if not given
+     */
+    public String getBuildingId() {
+        return buildingId;
+    }
+
+    public int getRequestFloor() {
+        return requestFloor;
+    }
+
+    public int getTargetFloor() {
+        return targetFloor;
+    }
+
+    /**
+     * @return UP if the user wants to go up, DOWN otherwise
+     */
+    public ElevatorState getDirection() {
+        return targetFloor - requestFloor > 0 ? ElevatorState.UP : ElevatorState.DOWN;
+    }
+
+    public Elevator getElevator() {
+        return elevator;
+    }
+
+    synchronized void setElevator(Elevator elevator) {
+        this.elevator = elevator;
+    }
+
+    CompletableFuture<Elevator> getAssignment() {
+        return assignment;
+    }
+
+    void setAssignment(CompletableFuture<Elevator> assignment) {
+        this.assignment = assignment;
+    }
+
+    public boolean isPickedUp() {
+        return pickedUp;
+    }
+
+    public boolean isDroppedOff() {
+        return droppedOff;
+    }
+
+    /**
+     * @return Clock time the request was submitted at, -1 if it has not been
+     */
+    public long getSubmittedMillis() {
+        return submittedMillis;
+    }
+
+    /**
+     * @return Clock time the user got on, -1 if they have not
+     */
+    public long getPickedUpMillis() {
+        return pickedUpMillis;
+    }
+
+    /**
+     * @return Clock time the user got off, -1 if they have not
+     */
+    public long getDroppedOffMillis() {
+        return droppedOffMillis;
+    }
+
+    long getSubmittedNanos() {
+        return submittedNanos;
+    }
+
+    void submitted(long nowMillis){
+        submittedNanos = System.nanoTime();
+        submittedMillis = nowMillis;
+    }
+
+    /**
+     * Called by an elevator arriving at the requested floor. Fails if the
+     * request has been handed over to another elevator in the meantime.
+     * @param elevator Elevator that arrived
+     * @param nowMillis Clock time of the arrival
+     * @return true if the user got on this elevator
+     */
+    synchronized boolean pickUp(Elevator elevator, long nowMillis){
+        if(pickedUp || this.elevator != elevator){
+            return false;
+        }
+        pickedUpMillis = nowMillis;
+        pickedUp = true;
+        return true;
+    }
+
+    void dropOff(long nowMillis){
+        droppedOffMillis = nowMillis;
+        droppedOff = true;
+    }
+
+    /**
+     * Hand the request over to another elevator, unless it has been picked
+     * up already.
+     * @param from Elevator currently assigned
+     * @param to Elevator taking over
+     * @return true if the request now belongs to the new elevator
+     */
+    synchronized boolean reassign(Elevator from, Elevator to){
+        if(pickedUp || elevator != from){
+            return false;
+        }
+        elevator = to;
+        return true;
+    }
+
+    /**
+     * Submit the request to the ElevatorController to select the
+     * optimal elevator for this request
+     * @return Selected elevator, null if none can currently serve the request
+     */
+    public Elevator submitRequest(){
+        return ElevatorController.getInstance().selectElevator(this);
+    }
+
+    /**
+     * Queue the request with the ElevatorController, which dispatches it
+     * together with other queued requests without blocking the caller
+     * @return Completed with the selected elevator, or null if none can
+     * currently serve the request. Fails with a RejectedExecutionException
+     * if too many requests are queued already.
+     */
+    public CompletableFuture<Elevator> submitAsync(){
+        return ElevatorController.getInstance().submitAsync(this);
+    }
+}
@@ -1,3 +1,4 @@
+package elevator;
 
 public enum ElevatorState {
     UP,
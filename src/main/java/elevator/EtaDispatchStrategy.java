@@ -0,0 +1,171 @@
+package elevator;
+
+import java.util.List;
+
+/**
+ * Selects the elevator with the lowest estimated cost of serving a request,
+ * considering every operational elevator and the route it has already
+ * committed to rather than just its direction and floor. The cost is the
+ * estimated time until the elevator arrives at the requested floor, plus the
+ * time the extra stop adds for every floor the elevator has already
+ * committed to after it. Minimising that keeps both the mean and the tail
+ * of waiting times down, where raw floor distance favours whichever
+ * elevator happens to be close even if it has a long way to go first.
+ * Every request an elevator already has to carry adds to the cost, so a
+ * crowded elevator only wins by being clearly closer, and full ones never do.
+ * Times come from every elevator's MotionProfile, so a run is timed from
+ * one committed stop to the next and a long express run is not mistaken
+ * for as many single floor hops.
+ */
+public final class EtaDispatchStrategy implements DispatchStrategy {
+
+    // Timing of every elevator, null to use each elevator's own
+    private final MotionProfile motionProfile;
+    private final long reversalMillis;
+    private final long loadMillis;
+
+    /**
+     * Strategy timing every elevator by its own MotionProfile, where starting
+     * a new leg costs another FLOOR_TRAVEL_MILLIS and every request already
+     * assigned a quarter of that.
+     */
+    public EtaDispatchStrategy(){
+        this(null, Elevator.FLOOR_TRAVEL_MILLIS, Elevator.FLOOR_TRAVEL_MILLIS / 4);
+    }
+
+    /**
+     * Strategy ignoring how many requests an elevator carries, unless it is full
+     * @param floorTravelMillis Time to travel a single floor
+     * @param stopDwellMillis Extra time spent at every floor the elevator stops at
+     * @param reversalMillis Extra time spent starting a new leg, e.g. reversing direction
+     */
+    public EtaDispatchStrategy(long floorTravelMillis, long stopDwellMillis, long reversalMillis){
+        this(floorTravelMillis, stopDwellMillis, reversalMillis, 0);
+    }
+
+    /**
+     * @param floorTravelMillis Time to travel a single floor
+     * @param stopDwellMillis Extra time spent at every floor the elevator stops at
+     * @param reversalMillis Extra time spent starting a new leg, e.g. reversing direction
+     * @param loadMillis Extra cost of every request the elevator has been assigned and not dropped off yet
+     */
+    public EtaDispatchStrategy(long floorTravelMillis, long stopDwellMillis, long reversalMillis, long loadMillis){
+        this(MotionProfile.uniform(floorTravelMillis, stopDwellMillis), reversalMillis, loadMillis);
+    }
+
+    /**
+     * @param motionProfile Timing of every elevator, null to use each elevator's own
+     * @param reversalMillis Extra time spent starting a new leg, e.g. reversing direction
+     * @param loadMillis Extra cost of every request the elevator has been assigned and not dropped off yet
+     */
+    public EtaDispatchStrategy(MotionProfile motionProfile, long reversalMillis, long loadMillis){
+        this.motionProfile = motionProfile;
+        this.reversalMillis = reversalMillis;
+        this.loadMillis = loadMillis;
+    }
+
+    @Override
+    public Elevator selectElevator(ElevatorController controller, ElevatorState direction, int requestedFloor, int targetFloor) {
+        Elevator selected = null;
+        long selectedCost = Long.MAX_VALUE;
+
+        for(Elevator elevator : controller.getElevatorList()){
+            if(!elevator.isInService() || elevator.isFull()
+                    || !elevator.serves(requestedFloor) || !elevator.serves(targetFloor)){
+                continue;
+            }
+
+            long cost = estimateCost(elevator, direction, requestedFloor) + elevator.getLoad() * loadMillis;
+            if(cost < selectedCost){
+                selected = elevator;
+                selectedCost = cost;
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Estimated cost for the elevator to serve a request from the requested
+     * floor in the given direction, on top of what it has already committed to.
+     * @param elevator
+     * @param direction UP or DOWN
+     * @param requestedFloor
+     * @return Estimated arrival time in milliseconds plus the delay imposed on committed stops
+     */
+    long estimateCost(Elevator elevator, ElevatorState direction, int requestedFloor){
+        MotionProfile motion = motionProfile != null ? motionProfile : elevator.getMotionProfile();
+        List<Leg> legs = elevator.getPlannedLegs();
+        int position = elevator.getCurrentFloor();
+        long time = 0;
+
+        for(int i=0; i<legs.size(); i++){
+            Leg leg = legs.get(i);
+
+            if(!leg.isActive()) {
+                // Get to where the leg starts if we are not there already
+                time += motion.travelMillis(Math.abs(leg.getFirstFloor() - position)) + reversalMillis;
+                position = leg.getFirstFloor();
+            }
+
+            if(leg.getDirection().equals(direction) && !isBehind(direction, requestedFloor, position)){
+                // Served on this leg, extending it if the requested floor is beyond its end
+                FloorSet floors = leg.getFloors();
+                time += runMillis(motion, floors, direction, position, requestedFloor);
+
+                // Everything committed after the requested floor waits for the extra stop, and
+                // later legs also for the detour if the requested floor extends this one
+                int laterOnLeg = direction.equals(ElevatorState.UP)
+                        ? floors.count(requestedFloor + 1, Integer.MAX_VALUE) : floors.count(0, requestedFloor - 1);
+                int laterLegs = remainingFloors(legs, i + 1);
+                int lastFloor = leg.getLastFloor();
+                long extension = isBehind(direction, lastFloor, requestedFloor)
+                        ? 2L * motion.travelMillis(Math.abs(requestedFloor - lastFloor)) : 0;
+                long stopDelay = motion.stopDelayMillis();
+                return time + laterOnLeg * stopDelay + laterLegs * (stopDelay + extension);
+            }
+
+            // Stops at both ends of the run are not counted by runMillis
+            FloorSet floors = leg.getFloors();
+            int lastFloor = leg.getLastFloor();
+            int ends = (floors.contains(position) ? 1 : 0) + (lastFloor != position && floors.contains(lastFloor) ? 1 : 0);
+            time += runMillis(motion, floors, leg.getDirection(), position, lastFloor) + ends * motion.stopMillis();
+            position = lastFloor;
+        }
+
+        // Served once everything else is done
+        return time + motion.travelMillis(Math.abs(requestedFloor - position)) + reversalMillis;
+    }
+
+    /**
+     * Time to travel from one floor to another on a leg, stopping at every
+     * floor of the leg in between
+     */
+    private static long runMillis(MotionProfile motion, FloorSet floors, ElevatorState direction, int from, int to){
+        boolean up = direction.equals(ElevatorState.UP);
+        long millis = 0;
+        int at = from;
+        int stop = up ? floors.higher(from) : floors.lower(from);
+        while(stop >= 0 && (up ? stop < to : stop > to)){
+            millis += motion.travelMillis(Math.abs(stop - at)) + motion.stopMillis();
+            at = stop;
+            stop = up ? floors.higher(stop) : floors.lower(stop);
+        }
+        return millis + motion.travelMillis(Math.abs(to - at));
+    }
+
+    private static int remainingFloors(List<Leg> legs, int from){
+        int count = 0;
+        for(int i=from; i<legs.size(); i++){
+            count += legs.get(i).getFloors().size();
+        }
+        return count;
+    }
+
+    private static boolean isBehind(ElevatorState direction, int floor, int currentFloor){
+        if(direction.equals(ElevatorState.UP)){
+            return floor < currentFloor;
+        }
+        return floor > currentFloor;
+    }
+}
@@ -0,0 +1,427 @@
+package elevator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured log of elevator events, written asynchronously. Logging an event
+ * claims a slot of a preallocated ring buffer and copies a few primitives into
+ * it, so it never allocates, locks or waits for I/O; if the buffer is full the
+ * event is dropped and counted. A single background thread encodes the events
+ * and writes them through NIO, either as JSON lines, as fixed size binary
+ * records, or as plain text for the console. Every event type can be sampled,
+ * e.g. only every 10th MOVED event written.
+ *
+ * Binary records are BINARY_RECORD_SIZE bytes, big endian: time (long), type
+ * ordinal (int), elevator id (int), floor (int), state ordinal (int), request
+ * id (long), request floor (int), target floor (int). Absent values are -1.
+ */
+public final class EventLog implements Closeable {
+
+    public enum Format {
+        JSONL,
+        BINARY,
+        TEXT
+    }
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int BINARY_RECORD_SIZE = 40;
+
+    // System properties read by fromSystemProperties()
+    public static final String FILE_PROPERTY = "elevator.eventlog";
+    public static final String FORMAT_PROPERTY = "elevator.eventlog.format";
+    public static final String SAMPLE_PROPERTY_PREFIX = "elevator.eventlog.sample.";
+
+    private static final EventType[] TYPES = EventType.values();
+    private static final ElevatorState[] STATES = ElevatorState.values();
+    private static final byte[][] TYPE_NAMES = names(TYPES);
+    private static final byte[][] STATE_NAMES = names(STATES);
+
+    // Longest encoded event, so the writer knows when to flush its buffer
+    private static final int MAX_RECORD_BYTES = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final Format format;
+
+    // Ring buffer of events, one array per field. Slot sequences work as in BoundedRingBuffer.
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final long[] times;
+    private final int[] types;
+    private final int[] elevators;
+    private final int[] floors;
+    private final int[] states;
+    private final long[] requests;
+    private final int[] fromFloors;
+    private final int[] toFloors;
+
+    // Write every nth event of a type, 0 to write none
+    private final int[] sampleRates = new int[TYPES.length];
+    private final AtomicLongArray sampleCounters = new AtomicLongArray(TYPES.length);
+
+    private final AtomicLong droppedEvents = new AtomicLong();
+    // Events written out, advanced by the writer thread only
+    private volatile long writtenEvents;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    private final Thread writer;
+
+    /**
+     * @param channel Where events are written to, closed with the log
+     * @param format
+     * @param capacity Events that can wait to be written, rounded up to a power of two
+     */
+    public EventLog(WritableByteChannel channel, Format format, int capacity){
+        this(channel, true, format, capacity);
+    }
+
+    private EventLog(WritableByteChannel channel, boolean closeChannel, Format format, int capacity){
+        if(capacity < 1){
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.format = format;
+
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity){
+            size <<= 1;
+        }
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        for(int i=0; i<size; i++){
+            sequences.set(i, i);
+        }
+        times = new long[size];
+        types = new int[size];
+        elevators = new int[size];
+        floors = new int[size];
+        states = new int[size];
+        requests = new long[size];
+        fromFloors = new int[size];
+        toFloors = new int[size];
+        for(int i=0; i<sampleRates.length; i++){
+            sampleRates[i] = 1;
+        }
+
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeEvents();
+            }
+        }, "elevator-event-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Append events to a file, creating it if needed
+     */
+    public static EventLog open(Path file, Format format) throws IOException {
+        return new EventLog(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND), format, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Log to System.out in plain text: where every elevator is, and what
+     * happens to every request. State changes are not written.
+     */
+    public static EventLog console(){
+        OutputStream out = System.out;
+        EventLog log = new EventLog(Channels.newChannel(out), false, Format.TEXT, DEFAULT_CAPACITY);
+        log.setSampleRate(EventType.STATE_CHANGED, 0);
+        return log;
+    }
+
+    /**
+     * Open the file named by the elevator.eventlog system property, in the
+     * format given by elevator.eventlog.format (jsonl by default), sampling
+     * every type as set by elevator.eventlog.sample.type, e.g.
+     * elevator.eventlog.sample.moved=10
+     * @return null if no file is configured
+     * @throws IOException if the file cannot be opened
+     */
+    public static EventLog fromSystemProperties() throws IOException {
+        String file = System.getProperty(FILE_PROPERTY);
+        if(file == null){
+            return null;
+        }
+        Format format = Format.valueOf(System.getProperty(FORMAT_PROPERTY, "jsonl").toUpperCase(Locale.ROOT));
+        EventLog log = open(Paths.get(file), format);
+        for(EventType type : TYPES){
+            Integer rate = Integer.getInteger(SAMPLE_PROPERTY_PREFIX + type.name().toLowerCase(Locale.ROOT));
+            if(rate != null){
+                log.setSampleRate(type, rate);
+            }
+        }
+        return log;
+    }
+
+    /**
+     * @param type
+     * @param everyNth Write every nth event of the type, 1 for all, 0 for none
+     * @return This log
+     */
+    public EventLog setSampleRate(EventType type, int everyNth){
+        if(everyNth < 0){
+            throw new IllegalArgumentException("Sample rate must not be negative, got " + everyNth);
+        }
+        sampleRates[type.ordinal()] = everyNth;
+        return this;
+    }
+
+    /**
+     * Queue an event to be written. Never blocks.
+     * @param timeMillis Clock time of the event
+     * @param type
+     * @param elevator Elevator id, -1 if none
+     * @param floor Floor of the elevator, -1 if none
+     * @param state State of the elevator, null if none
+     * @param request Request id, -1 if none
+     * @param fromFloor Floor of the request, -1 if none
+     * @param toFloor Target floor of the request, -1 if none
+     * @return false if the event was dropped because too many are waiting to be written
+     */
+    boolean log(long timeMillis, EventType type, int elevator, int floor, ElevatorState state,
+                long request, int fromFloor, int toFloor){
+        int t = type.ordinal();
+        int rate = sampleRates[t];
+        if(rate != 1 && (rate == 0 || sampleCounters.getAndIncrement(t) % rate != 0)){
+            return true;
+        }
+        if(closed){
+            return false;
+        }
+
+        while(true){
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if(sequence == position){
+                if(tail.compareAndSet(position, position + 1)){
+                    times[index] = timeMillis;
+                    types[index] = t;
+                    elevators[index] = elevator;
+                    floors[index] = floor;
+                    states[index] = state == null ? -1 : state.ordinal();
+                    requests[index] = request;
+                    fromFloors[index] = fromFloor;
+                    toFloors[index] = toFloor;
+                    // Publishes the fields to the writer
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if(sequence < position){
+                droppedEvents.incrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return Events dropped because the writer could not keep up
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * @return Events written so far
+     */
+    public long getWrittenEvents() {
+        return writtenEvents;
+    }
+
+    /**
+     * Wait until every event logged so far has been written. Not for the hot path.
+     * @throws IOException if writing failed
+     */
+    public void flush() throws IOException {
+        long target = tail.get();
+        while(writtenEvents < target && writer.isAlive()){
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        if(failure != null){
+            throw failure;
+        }
+    }
+
+    /**
+     * Write every event logged so far, stop the writer and close the channel.
+     * Events logged afterwards are dropped.
+     * @throws IOException if writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        if(closeChannel){
+            channel.close();
+        }
+        if(failure != null){
+            throw failure;
+        }
+    }
+
+    private void writeEvents(){
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        byte[] digits = new byte[20];
+        long head = 0;
+
+        while(true){
+            boolean wasClosed = closed;
+            long start = head;
+            while(true){
+                int index = (int) head & mask;
+                if(sequences.get(index) != head + 1){
+                    break;
+                }
+                if(buffer.remaining() < MAX_RECORD_BYTES){
+                    write(buffer, head);
+                }
+                encode(buffer, index, digits);
+                sequences.set(index, head + mask + 1);
+                head++;
+            }
+            write(buffer, head);
+
+            if(head == start){
+                if(wasClosed){
+                    // Nothing was published after we saw the log closed
+                    return;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void write(ByteBuffer buffer, long head){
+        buffer.flip();
+        try {
+            while(buffer.hasRemaining() && failure == null){
+                channel.write(buffer);
+            }
+        } catch (IOException e){
+            // Keep draining so producers are never stuck, but stop writing
+            failure = e;
+        }
+        buffer.clear();
+        writtenEvents = head;
+    }
+
+    private void encode(ByteBuffer buffer, int index, byte[] digits){
+        switch (format){
+            case BINARY:
+                buffer.putLong(times[index]).putInt(types[index]).putInt(elevators[index]).putInt(floors[index])
+                        .putInt(states[index]).putLong(requests[index]).putInt(fromFloors[index]).putInt(toFloors[index]);
+                break;
+            case JSONL:
+                ascii(buffer, "{\"time\":");
+                number(buffer, times[index], digits);
+                ascii(buffer, ",\"type\":\"");
+                buffer.put(TYPE_NAMES[types[index]]);
+                buffer.put((byte) '"');
+                if(elevators[index] >= 0){
+                    ascii(buffer, ",\"elevator\":");
+                    number(buffer, elevators[index], digits);
+                    ascii(buffer, ",\"floor\":");
+                    number(buffer, floors[index], digits);
+                }
+                if(states[index] >= 0){
+                    ascii(buffer, ",\"state\":\"");
+                    buffer.put(STATE_NAMES[states[index]]);
+                    buffer.put((byte) '"');
+                }
+                if(requests[index] >= 0){
+                    ascii(buffer, ",\"request\":");
+                    number(buffer, requests[index], digits);
+                    ascii(buffer, ",\"from\":");
+                    number(buffer, fromFloors[index], digits);
+                    ascii(buffer, ",\"to\":");
+                    number(buffer, toFloors[index], digits);
+                }
+                ascii(buffer, "}\n");
+                break;
+            case TEXT:
+                if(types[index] == EventType.MOVED.ordinal()){
+                    ascii(buffer, "Elevator ID ");
+                    number(buffer, elevators[index], digits);
+                    ascii(buffer, " | Current floor - ");
+                    number(buffer, floors[index], digits);
+                    ascii(buffer, " | next move - ");
+                    buffer.put(STATE_NAMES[states[index]]);
+                } else {
+                    buffer.put(TYPE_NAMES[types[index]]);
+                    if(requests[index] >= 0){
+                        ascii(buffer, " | Request ");
+                        number(buffer, requests[index], digits);
+                        ascii(buffer, " from floor ");
+                        number(buffer, fromFloors[index], digits);
+                        ascii(buffer, " to ");
+                        number(buffer, toFloors[index], digits);
+                    }
+                    if(elevators[index] >= 0){
+                        ascii(buffer, " | Elevator ID ");
+                        number(buffer, elevators[index], digits);
+                        ascii(buffer, " at floor ");
+                        number(buffer, floors[index], digits);
+                    }
+                }
+                buffer.put((byte) '\n');
+                break;
+        }
+    }
+
+    private static void ascii(ByteBuffer buffer, String text){
+        for(int i=0; i<text.length(); i++){
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private static void number(ByteBuffer buffer, long value, byte[] digits){
+        if(value < 0){
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while(value != 0);
+        while(count > 0){
+            buffer.put(digits[--count]);
+        }
+    }
+
+    private static byte[][] names(Enum<?>[] values){
+        byte[][] names = new byte[values.length][];
+        for(int i=0; i<values.length; i++){
+            names[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,19 @@
+package elevator;
+
+/**
+ * Kinds of events written to an EventLog
+ */
+public enum EventType {
+    // An elevator arrived at a floor
+    MOVED,
+    // An elevator changed its state, e.g. started moving DOWN
+    STATE_CHANGED,
+    // The controller gave a request to an elevator
+    ASSIGNED,
+    // No elevator could serve a request when it was dispatched
+    UNASSIGNED,
+    // A request was handed over to another elevator
+    REASSIGNED,
+    PICKED_UP,
+    DROPPED_OFF
+}
@@ -0,0 +1,174 @@
+package elevator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only journal of what happened to requests since the last FleetStore
+ * snapshot: assigned, reassigned, picked up and dropped off. Kept in two
+ * memory-mapped files, one for odd and one for even snapshot epochs, so the
+ * journal of the last complete snapshot is never overwritten while the next
+ * one is being taken. Appending copies a fixed size record into the mapping,
+ * which the operating system keeps even if the JVM dies.
+ *
+ * Records are RECORD_SIZE bytes, big endian: epoch (long), event type ordinal
+ * (int, CALL_FLAG set for hall calls), elevator id (int), request id (long,
+ * the call packed by HallCall for hall calls), request floor (int), target
+ * floor (int), time (long). Every append is followed by an end marker, a
+ * record of epoch 0, so records an epoch left further along the file are
+ * never read as part of a later one.
+ */
+final class FleetJournal implements Closeable {
+
+    static final int RECORD_SIZE = 40;
+
+    // Set in the type of records about hall calls
+    private static final int CALL_FLAG = 0x100;
+
+    private static final int INITIAL_RECORDS = 16 * 1024;
+
+    private final FileChannel[] channels = new FileChannel[2];
+    private final MappedByteBuffer[] buffers = new MappedByteBuffer[2];
+
+    // Guarded by this
+    private long epoch;
+    private int position;
+
+    FleetJournal(Path directory) throws IOException {
+        for(int i=0; i<2; i++){
+            channels[i] = FileChannel.open(directory.resolve("journal." + i), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffers[i] = channels[i].map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(channels[i].size(), (long) INITIAL_RECORDS * RECORD_SIZE));
+        }
+    }
+
+    /**
+     * Append records for the given epoch from now on, replacing whatever the
+     * journal of the epoch before the previous one held. An epoch is only
+     * ever started once.
+     * @param epoch Epoch of the snapshot about to be taken, 1 or more
+     */
+    synchronized void startEpoch(long epoch){
+        this.epoch = epoch;
+        this.position = 0;
+        buffers[(int) (epoch & 1)].putLong(0, 0);
+    }
+
+    /**
+     * @return Epoch records are appended for, 0 before the first startEpoch()
+     */
+    synchronized long getEpoch(){
+        return epoch;
+    }
+
+    /**
+     * @param epoch
+     * @return Epoch of the first record in the file the epoch after the given
+     * one goes to, whatever number it was given, 0 if there is none
+     */
+    synchronized long followingEpoch(long epoch){
+        return buffers[(int) ((epoch + 1) & 1)].getLong(0);
+    }
+
+    /**
+     * @param type ASSIGNED, REASSIGNED, PICKED_UP or DROPPED_OFF
+     */
+    void append(EventType type, int elevator, long request, int fromFloor, int toFloor, long timeMillis){
+        append(type.ordinal(), elevator, request, fromFloor, toFloor, timeMillis);
+    }
+
+    /**
+     * The same for a hall call. Never allocates unless the file has to grow.
+     * @param call Packed by HallCall
+     */
+    void appendCall(EventType type, int elevator, long call, long timeMillis){
+        append(type.ordinal() | CALL_FLAG, elevator, call, HallCall.origin(call), HallCall.destination(call), timeMillis);
+    }
+
+    private synchronized void append(int type, int elevator, long request, int fromFloor, int toFloor, long timeMillis){
+        if(epoch == 0){
+            // Not attached to a FleetStore yet
+            return;
+        }
+        int file = (int) (epoch & 1);
+        MappedByteBuffer buffer = buffers[file];
+        if(position + 2 * RECORD_SIZE > buffer.capacity()){
+            buffer = grow(file);
+        }
+        // Before the record counts, so a crash never leaves it followed by
+        // one of an older life of the same epoch
+        buffer.putLong(position + RECORD_SIZE, 0);
+        buffer.putInt(position + 8, type);
+        buffer.putInt(position + 12, elevator);
+        buffer.putLong(position + 16, request);
+        buffer.putInt(position + 24, fromFloor);
+        buffer.putInt(position + 28, toFloor);
+        buffer.putLong(position + 32, timeMillis);
+        // Last, so a record cut short by a crash still belongs to an old epoch
+        buffer.putLong(position, epoch);
+        position += RECORD_SIZE;
+    }
+
+    /**
+     * @return Every record of the given epoch, in the order they were appended
+     */
+    synchronized List<Entry> read(long epoch){
+        List<Entry> entries = new ArrayList<Entry>();
+        MappedByteBuffer buffer = buffers[(int) (epoch & 1)];
+        for(int offset=0; offset + RECORD_SIZE <= buffer.capacity(); offset += RECORD_SIZE){
+            if(buffer.getLong(offset) != epoch){
+                break;
+            }
+            int type = buffer.getInt(offset + 8);
+            entries.add(new Entry(EventType.values()[type & ~CALL_FLAG], (type & CALL_FLAG) != 0,
+                    buffer.getInt(offset + 12), buffer.getLong(offset + 16), buffer.getInt(offset + 24),
+                    buffer.getInt(offset + 28), buffer.getLong(offset + 32)));
+        }
+        return entries;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for(int i=0; i<2; i++){
+            buffers[i].force();
+            channels[i].close();
+        }
+    }
+
+    private MappedByteBuffer grow(int file){
+        try {
+            buffers[file] = channels[file].map(FileChannel.MapMode.READ_WRITE, 0, 2L * buffers[file].capacity());
+        } catch (IOException e){
+            throw new IllegalStateException("Cannot grow journal", e);
+        }
+        return buffers[file];
+    }
+
+    static final class Entry {
+        final EventType type;
+        // request is a call packed by HallCall
+        final boolean call;
+        final int elevator;
+        final long request;
+        final int fromFloor;
+        final int toFloor;
+        final long timeMillis;
+
+        Entry(EventType type, boolean call, int elevator, long request, int fromFloor, int toFloor, long timeMillis){
+            this.type = type;
+            this.call = call;
+            this.elevator = elevator;
+            this.request = request;
+            this.fromFloor = fromFloor;
+            this.toFloor = toFloor;
+            this.timeMillis = timeMillis;
+        }
+    }
+}
@@ -0,0 +1,615 @@
+package elevator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the state of a fleet on disk so it survives a restart: where every
+ * elevator is, the route it has planned, and the requests and hall calls it
+ * is still serving. Snapshots are taken while the elevators keep moving and written
+ * to one of two memory-mapped slot files, the other one keeping the previous
+ * snapshot until the new one is complete. Between snapshots a FleetJournal
+ * records every assignment, pickup and drop-off. Opening a store restores
+ * the latest complete snapshot and replays the journal after it.
+ *
+ * Slots are big endian: magic (int), version (int), epoch (long, 0 while the
+ * slot is being written), body length (int), then the body: clock time
+ * (long), elevators (int), lowest and highest floor (int), and per elevator
+ * its id, service (1 in service, 2 draining, 0 out of service), state
+ * ordinal and floor (int), its legs (count,
+ * then direction ordinal, active flag, floor count and floors), its waiting
+ * requests (count, then id (long), request and target floor (int) and time
+ * submitted (long)), its requests on board (the same plus time picked up),
+ * its waiting hall calls (count, then the call packed by HallCall (long)) and
+ * its hall calls on board (the same, stamped with the time picked up). Slots
+ * of version 1 end before the hall calls.
+ */
+public final class FleetStore implements Closeable {
+
+    // System properties read by fromSystemProperties()
+    public static final String DIRECTORY_PROPERTY = "elevator.store";
+    public static final String SNAPSHOT_MILLIS_PROPERTY = "elevator.store.snapshot.millis";
+
+    private static final int MAGIC = 0x454c5653;
+    private static final int VERSION = 2;
+    private static final int EPOCH_OFFSET = 8;
+    private static final int LENGTH_OFFSET = 16;
+    private static final int BODY_OFFSET = 20;
+    private static final int OUT_OF_SERVICE = 0;
+    private static final int IN_SERVICE = 1;
+    private static final int DRAINING = 2;
+
+    private final ElevatorController controller;
+    private final FleetJournal journal;
+    private final FileChannel[] slots = new FileChannel[2];
+    // Mappings of the slots, remapped only when a snapshot outgrows them
+    private final MappedByteBuffer[] slotBuffers = new MappedByteBuffer[2];
+
+    // Epoch of the latest complete snapshot, and of the next one, which is
+    // never one a snapshot was ever started for. Guarded by this.
+    private long epoch;
+    private long nextEpoch = 1;
+    // Reused by every snapshot
+    private ByteBuffer body = ByteBuffer.allocate(64 * 1024);
+    private final List<ElevatorRequest> waiting = new ArrayList<ElevatorRequest>();
+    private final List<ElevatorRequest> onboard = new ArrayList<ElevatorRequest>();
+    private final Set<Long> onboardCallKeys = new HashSet<Long>();
+    private int restoredRequests;
+    private int restoredCalls;
+    // Of snapshots taken by snapshotEvery(), the latest failure is cleared
+    // by the next snapshot that succeeds
+    private final AtomicLong failedSnapshots = new AtomicLong();
+    private volatile IOException snapshotFailure;
+
+    private FleetStore(Path directory, ElevatorController controller) throws IOException {
+        this.controller = controller;
+        Files.createDirectories(directory);
+        this.journal = new FleetJournal(directory);
+        for(int i=0; i<2; i++){
+            slots[i] = FileChannel.open(directory.resolve("snapshot." + i), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+    }
+
+    /**
+     * Open the store in the given directory for a controller that has not
+     * been given any requests yet. Any state saved there is restored first,
+     * then a fresh snapshot is taken and the controller journals to the
+     * store from then on.
+     * @param directory Created if needed
+     * @param controller
+     * @return Store, close it to stop journaling
+     * @throws IOException if the store cannot be read or written
+     * @throws IllegalStateException if the saved state is of a different building
+     */
+    public static FleetStore open(Path directory, ElevatorController controller) throws IOException {
+        FleetStore store = new FleetStore(directory, controller);
+        try {
+            store.restore();
+        } catch (IOException | RuntimeException e){
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * Open the store in the directory named by the elevator.store system
+     * property, and take a snapshot every elevator.store.snapshot.millis
+     * (1000 by default) on a daemon thread.
+     * @return null if no directory is configured
+     * @throws IOException if the store cannot be read or written
+     */
+    public static FleetStore fromSystemProperties(ElevatorController controller) throws IOException {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if(directory == null){
+            return null;
+        }
+        FleetStore store = open(Paths.get(directory), controller);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "elevator-snapshots");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        long period = Long.getLong(SNAPSHOT_MILLIS_PROPERTY, 1000);
+        store.snapshotEvery(executor, period, TimeUnit.MILLISECONDS);
+        return store;
+    }
+
+    /**
+     * @return Epoch of the latest complete snapshot, counting from 1
+     */
+    public synchronized long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return Requests given back to their elevators when the store was opened
+     */
+    public int getRestoredRequests() {
+        return restoredRequests;
+    }
+
+    /**
+     * @return Hall calls given back to their elevators when the store was opened
+     */
+    public int getRestoredCalls() {
+        return restoredCalls;
+    }
+
+    /**
+     * @return Snapshots taken by snapshotEvery() that failed
+     */
+    public long getFailedSnapshots() {
+        return failedSnapshots.get();
+    }
+
+    /**
+     * @return Why the latest snapshot taken by snapshotEvery() failed, null
+     * if it succeeded
+     */
+    public IOException getSnapshotFailure() {
+        return snapshotFailure;
+    }
+
+    /**
+     * Write the state of every elevator to disk while they keep moving. The
+     * journal restarts with the snapshot, so restoring never needs more than
+     * the journal since the last snapshot.
+     * @return Epoch of the snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized long snapshot() throws IOException {
+        long next = nextEpoch;
+        // Anything that happens while we copy the elevators goes to the new
+        // journal, and is replayed over this snapshot if needed. Kept if the
+        // last attempt failed, it holds everything since the last snapshot.
+        if(journal.getEpoch() != next){
+            journal.startEpoch(next);
+        }
+
+        body.clear();
+        BuildingConfig building = controller.getBuildingConfig();
+        List<Elevator> elevators = controller.getElevatorList();
+        putLong(controller.getDriver().getClock().currentTimeMillis());
+        putInt(elevators.size());
+        putInt(building.getLowestFloor());
+        putInt(building.getHighestFloor());
+        for(Elevator elevator : elevators){
+            putElevator(elevator);
+        }
+        body.flip();
+
+        int index = (int) (next & 1);
+        MappedByteBuffer slot = slotBuffers[index];
+        if(slot == null || slot.capacity() < BODY_OFFSET + body.remaining()){
+            slot = slots[index].map(FileChannel.MapMode.READ_WRITE, 0, BODY_OFFSET + body.capacity());
+            slotBuffers[index] = slot;
+        }
+        slot.clear();
+        slot.putLong(EPOCH_OFFSET, 0);
+        slot.force();
+        slot.putInt(0, MAGIC);
+        slot.putInt(4, VERSION);
+        slot.putInt(LENGTH_OFFSET, body.remaining());
+        slot.position(BODY_OFFSET);
+        slot.put(body);
+        slot.force();
+        // Only now does the slot count
+        slot.putLong(EPOCH_OFFSET, next);
+        slot.force();
+
+        epoch = next;
+        nextEpoch = next + 1;
+        return next;
+    }
+
+    /**
+     * Take a snapshot every period. A snapshot that fails is counted, see
+     * getFailedSnapshots(), and tried again the next period; the journal
+     * keeps everything since the last one meanwhile.
+     * @param executor Runs the snapshots
+     * @param period
+     * @param unit
+     * @return Cancel it to stop taking snapshots
+     */
+    public ScheduledFuture<?> snapshotEvery(ScheduledExecutorService executor, long period, TimeUnit unit){
+        return executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    snapshot();
+                    snapshotFailure = null;
+                } catch (IOException e){
+                    failedSnapshots.incrementAndGet();
+                    snapshotFailure = e;
+                }
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stop journaling and close the files. Does not take a snapshot, the
+     * journal already has everything since the last one.
+     * @throws IOException if the files cannot be closed, or the latest
+     * snapshot taken by snapshotEvery() failed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        controller.setJournal(null);
+        journal.close();
+        for(FileChannel slot : slots){
+            slot.close();
+        }
+        IOException failure = snapshotFailure;
+        if(failure != null){
+            throw failure;
+        }
+    }
+
+    private void putElevator(Elevator elevator){
+        putInt(elevator.getId());
+        putInt(elevator.isInService() ? IN_SERVICE : elevator.isOperating() ? DRAINING : OUT_OF_SERVICE);
+        putInt(elevator.getElevatorState().ordinal());
+        putInt(elevator.getCurrentFloor());
+
+        List<Leg> legs = elevator.getPlannedLegs();
+        putInt(legs.size());
+        for(Leg leg : legs){
+            putInt(leg.getDirection().ordinal());
+            putInt(leg.isActive() ? 1 : 0);
+            FloorSet floors = leg.getFloors();
+            putInt(floors.size());
+            for(int floor = floors.first(); floor >= 0; floor = floors.higher(floor)){
+                putInt(floor);
+            }
+        }
+
+        waiting.clear();
+        onboard.clear();
+        elevator.collectRequests(waiting, onboard);
+        // Picked up while we looked, on board counts
+        waiting.removeAll(onboard);
+        putInt(waiting.size());
+        for(ElevatorRequest request : waiting){
+            putRequest(request);
+        }
+        putInt(onboard.size());
+        for(ElevatorRequest request : onboard){
+            putRequest(request);
+            putLong(request.getPickedUpMillis());
+        }
+
+        // Waiting ones first, so a call picked up in between is on board
+        // too and counts there
+        long[] waitingCalls = elevator.collectCalls(false);
+        long[] onboardCalls = elevator.collectCalls(true);
+        onboardCallKeys.clear();
+        for(long call : onboardCalls){
+            onboardCallKeys.add(HallCall.key(call));
+        }
+        int waitingCallCount = 0;
+        for(long call : waitingCalls){
+            if(!onboardCallKeys.contains(HallCall.key(call))){
+                waitingCalls[waitingCallCount++] = call;
+            }
+        }
+        putInt(waitingCallCount);
+        for(int i=0; i<waitingCallCount; i++){
+            putLong(waitingCalls[i]);
+        }
+        putInt(onboardCalls.length);
+        for(long call : onboardCalls){
+            putLong(call);
+        }
+    }
+
+    private void putRequest(ElevatorRequest request){
+        putLong(request.getId());
+        putInt(request.getRequestFloor());
+        putInt(request.getTargetFloor());
+        putLong(request.getSubmittedMillis());
+    }
+
+    private void putInt(int value){
+        ensureRemaining(4);
+        body.putInt(value);
+    }
+
+    private void putLong(long value){
+        ensureRemaining(8);
+        body.putLong(value);
+    }
+
+    private void ensureRemaining(int bytes){
+        if(body.remaining() < bytes){
+            ByteBuffer larger = ByteBuffer.allocate(body.capacity() * 2);
+            body.flip();
+            larger.put(body);
+            body = larger;
+        }
+    }
+
+    /**
+     * Restore the latest complete snapshot and everything journaled after it,
+     * give the requests back to the elevators, take a fresh snapshot and set
+     * the elevators going.
+     */
+    private synchronized void restore() throws IOException {
+        ByteBuffer saved = null;
+        long savedEpoch = 0;
+        int savedVersion = 0;
+        for(FileChannel channel : slots){
+            if(channel.size() < BODY_OFFSET){
+                continue;
+            }
+            MappedByteBuffer slot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long slotEpoch = slot.getLong(EPOCH_OFFSET);
+            int version = slot.getInt(4);
+            if(slot.getInt(0) == MAGIC && version >= 1 && version <= VERSION && slotEpoch > savedEpoch
+                    && BODY_OFFSET + slot.getInt(LENGTH_OFFSET) <= slot.capacity()){
+                savedEpoch = slotEpoch;
+                savedVersion = version;
+                slot.position(BODY_OFFSET);
+                slot.limit(BODY_OFFSET + slot.getInt(LENGTH_OFFSET));
+                saved = slot.slice();
+            }
+        }
+
+        List<Elevator> elevators = controller.getElevatorList();
+        if(saved != null){
+            int[] floors = new int[elevators.size()];
+            int[] service = new int[elevators.size()];
+            List<List<Leg>> legs = new ArrayList<List<Leg>>();
+            Map<Long, ElevatorRequest> requests = new LinkedHashMap<Long, ElevatorRequest>();
+            Map<Long, Integer> assignedTo = new HashMap<Long, Integer>();
+            RestoredCalls calls = new RestoredCalls();
+            try {
+                readSnapshot(saved, savedVersion, floors, service, legs, requests, assignedTo, calls);
+            } catch (BufferUnderflowException e){
+                throw new IOException("Snapshot " + savedEpoch + " is truncated", e);
+            }
+
+            // The snapshot after it may have been started but not finished
+            long following = journal.followingEpoch(savedEpoch);
+            replay(journal.read(savedEpoch), floors, requests, assignedTo, calls);
+            if(following > savedEpoch){
+                replay(journal.read(following), floors, requests, assignedTo, calls);
+            }
+
+            for(Elevator elevator : elevators){
+                if(!elevator.isOperating()){
+                    continue;
+                }
+                elevator.setCurrentFloor(floors[elevator.getId()]);
+                controller.updateElevatorLists(elevator);
+                for(Leg leg : legs.get(elevator.getId())){
+                    FloorSet legFloors = leg.getFloors();
+                    for(int floor = legFloors.first(); floor >= 0; floor = legFloors.higher(floor)){
+                        elevator.submitStops(leg.getDirection(), floor, floor);
+                    }
+                }
+            }
+            for(ElevatorRequest request : requests.values()){
+                controller.restoreRequest(elevators.get(assignedTo.get(request.getId())), request);
+            }
+            for(Map.Entry<Long, Long> call : calls.calls.entrySet()){
+                controller.restoreCall(elevators.get(calls.assignedTo.get(call.getKey())), call.getValue(),
+                        calls.onboard.contains(call.getKey()));
+            }
+            restoredRequests = requests.size();
+            restoredCalls = calls.calls.size();
+            for(Elevator elevator : elevators){
+                if(service[elevator.getId()] != IN_SERVICE){
+                    // Drains what it was given back, or has nothing, and stands still in MAINTAINANCE
+                    elevator.setOperating(false);
+                }
+            }
+            // The next snapshot only overwrites the journal we replayed last,
+            // this one and its journal stay until it is complete. Numbered
+            // past any snapshot that was started, so no journal record of
+            // an earlier life ever passes for one of ours.
+            epoch = savedEpoch;
+            nextEpoch = Math.max(savedEpoch + 1, following) + 1;
+            if((nextEpoch & 1) == (savedEpoch & 1)){
+                nextEpoch++;
+            }
+        }
+
+        // Restored requests are in the elevators' inboxes, which the snapshot includes
+        controller.setJournal(journal);
+        snapshot();
+        for(Elevator elevator : elevators){
+            controller.getDriver().wake(elevator);
+        }
+    }
+
+    private void readSnapshot(ByteBuffer saved, int version, int[] floors, int[] service, List<List<Leg>> legs,
+                              Map<Long, ElevatorRequest> requests, Map<Long, Integer> assignedTo,
+                              RestoredCalls calls){
+        BuildingConfig building = controller.getBuildingConfig();
+        saved.getLong();
+        int elevators = saved.getInt();
+        int lowestFloor = saved.getInt();
+        int highestFloor = saved.getInt();
+        if(elevators != building.getNumberOfElevators() || lowestFloor != building.getLowestFloor()
+                || highestFloor != building.getHighestFloor()){
+            throw new IllegalStateException("Saved state is of " + elevators + " elevators, floors "
+                    + lowestFloor + "-" + highestFloor + ", not " + building);
+        }
+
+        ElevatorState[] states = ElevatorState.values();
+        for(int i=0; i<elevators; i++){
+            int id = saved.getInt();
+            service[id] = saved.getInt();
+            if(states[saved.getInt()] == ElevatorState.MAINTAINANCE){
+                service[id] = OUT_OF_SERVICE;
+            }
+            floors[id] = saved.getInt();
+
+            int legCount = saved.getInt();
+            List<Leg> elevatorLegs = new ArrayList<Leg>(legCount);
+            for(int j=0; j<legCount; j++){
+                ElevatorState direction = states[saved.getInt()];
+                boolean active = saved.getInt() == 1;
+                FloorSet legFloors = new FloorSet(highestFloor + 1);
+                int floorCount = saved.getInt();
+                for(int k=0; k<floorCount; k++){
+                    legFloors.add(saved.getInt());
+                }
+                if(!legFloors.isEmpty()){
+                    elevatorLegs.add(new Leg(direction, legFloors, active));
+                }
+            }
+            legs.add(elevatorLegs);
+
+            int waitingCount = saved.getInt();
+            for(int j=0; j<waitingCount; j++){
+                ElevatorRequest request = new ElevatorRequest(saved.getLong(), saved.getInt(), saved.getInt(),
+                        saved.getLong(), -1);
+                requests.put(request.getId(), request);
+                assignedTo.put(request.getId(), id);
+            }
+            int onboardCount = saved.getInt();
+            for(int j=0; j<onboardCount; j++){
+                ElevatorRequest request = new ElevatorRequest(saved.getLong(), saved.getInt(), saved.getInt(),
+                        saved.getLong(), saved.getLong());
+                requests.put(request.getId(), request);
+                assignedTo.put(request.getId(), id);
+            }
+
+            if(version < 2){
+                continue;
+            }
+            int waitingCallCount = saved.getInt();
+            for(int j=0; j<waitingCallCount; j++){
+                calls.waiting(saved.getLong(), id);
+            }
+            int onboardCallCount = saved.getInt();
+            for(int j=0; j<onboardCallCount; j++){
+                calls.pickedUp(saved.getLong(), id);
+            }
+        }
+    }
+
+    /**
+     * Apply journaled events to the restored state. Applying an event the
+     * snapshot already includes changes nothing.
+     */
+    private static void replay(List<FleetJournal.Entry> entries, int[] floors,
+                               Map<Long, ElevatorRequest> requests, Map<Long, Integer> assignedTo,
+                               RestoredCalls calls){
+        for(FleetJournal.Entry entry : entries){
+            if(entry.call){
+                replayCall(entry, floors, calls);
+                continue;
+            }
+            ElevatorRequest request = requests.get(entry.request);
+            switch (entry.type){
+                case ASSIGNED:
+                case REASSIGNED:
+                    if(request == null && entry.type == EventType.ASSIGNED){
+                        request = new ElevatorRequest(entry.request, entry.fromFloor, entry.toFloor, entry.timeMillis, -1);
+                        requests.put(entry.request, request);
+                    }
+                    if(request != null && !request.isPickedUp()){
+                        assignedTo.put(entry.request, entry.elevator);
+                    }
+                    break;
+                case PICKED_UP:
+                    long submitted = request == null ? -1 : request.getSubmittedMillis();
+                    requests.put(entry.request, new ElevatorRequest(entry.request, entry.fromFloor, entry.toFloor,
+                            submitted, entry.timeMillis));
+                    assignedTo.put(entry.request, entry.elevator);
+                    floors[entry.elevator] = entry.fromFloor;
+                    break;
+                case DROPPED_OFF:
+                    requests.remove(entry.request);
+                    assignedTo.remove(entry.request);
+                    floors[entry.elevator] = entry.toFloor;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static void replayCall(FleetJournal.Entry entry, int[] floors, RestoredCalls calls){
+        long key = HallCall.key(entry.request);
+        switch (entry.type){
+            case ASSIGNED:
+                calls.waiting(entry.request, entry.elevator);
+                break;
+            case REASSIGNED:
+                if(calls.calls.containsKey(key) && !calls.onboard.contains(key)){
+                    calls.assignedTo.put(key, entry.elevator);
+                }
+                break;
+            case PICKED_UP:
+                calls.pickedUp(HallCall.withTime(entry.request, entry.timeMillis), entry.elevator);
+                floors[entry.elevator] = entry.fromFloor;
+                break;
+            case DROPPED_OFF:
+                calls.calls.remove(key);
+                calls.assignedTo.remove(key);
+                calls.onboard.remove(key);
+                floors[entry.elevator] = entry.toFloor;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Hall calls being restored, keyed by HallCall.key() as their time
+     * changes when they are picked up
+     */
+    private static final class RestoredCalls {
+        final Map<Long, Long> calls = new LinkedHashMap<Long, Long>();
+        final Map<Long, Integer> assignedTo = new HashMap<Long, Integer>();
+        final Set<Long> onboard = new HashSet<Long>();
+
+        /**
+         * Add a waiting call unless it is known already, e.g. still in the
+         * inbox of the elevator it was handed over to from another
+         */
+        void waiting(long call, int elevator){
+            long key = HallCall.key(call);
+            if(!calls.containsKey(key)){
+                calls.put(key, call);
+                assignedTo.put(key, elevator);
+            }
+        }
+
+        void pickedUp(long call, int elevator){
+            long key = HallCall.key(call);
+            calls.put(key, call);
+            assignedTo.put(key, elevator);
+            onboard.add(key);
+        }
+    }
+}
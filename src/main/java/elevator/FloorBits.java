@@ -0,0 +1,78 @@
+package elevator;
+
+/**
+ * Helpers for bitsets of floors packed into long words, bit n set meaning
+ * floor n is in the set.
+ */
+final class FloorBits {
+
+    private FloorBits(){
+    }
+
+    static int words(int floors){
+        return (floors + 63) >>> 6;
+    }
+
+    static void set(long[] bits, int floor){
+        bits[floor >>> 6] |= 1L << floor;
+    }
+
+    static void clear(long[] bits, int floor){
+        bits[floor >>> 6] &= ~(1L << floor);
+    }
+
+    static boolean get(long[] bits, int floor){
+        int word = floor >>> 6;
+        return word < bits.length && (bits[word] & (1L << floor)) != 0;
+    }
+
+    /**
+     * @return Lowest floor in the set at or above the given floor, -1 if none
+     */
+    static int nextSetBit(long[] bits, int from){
+        if(from < 0){
+            from = 0;
+        }
+        int u = from >>> 6;
+        if(u >= bits.length){
+            return -1;
+        }
+        long word = bits[u] & (-1L << from);
+        while(true){
+            if(word != 0){
+                return (u << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if(++u == bits.length){
+                return -1;
+            }
+            word = bits[u];
+        }
+    }
+
+    /**
+     * @return Highest floor in the set at or below the given floor, -1 if none
+     */
+    static int previousSetBit(long[] bits, int from){
+        if(from < 0){
+            return -1;
+        }
+        int u = from >>> 6;
+        if(u >= bits.length){
+            u = bits.length - 1;
+            from = (bits.length << 6) - 1;
+        }
+        if(u < 0){
+            return -1;
+        }
+        long word = bits[u] & (-1L >>> -(from + 1));
+        while(true){
+            if(word != 0){
+                return ((u + 1) << 6) - 1 - Long.numberOfLeadingZeros(word);
+            }
+            if(u-- == 0){
+                return -1;
+            }
+            word = bits[u];
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package elevator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of floors an elevator stops at, kept as a bitset of long words. Adding,
+ * removing and finding the next floor up or down never box or allocate,
+ * unless a floor beyond the current capacity is added and the words grow.
+ * Thread safe: changes are made under the set's lock, which only the
+ * elevator stepping it takes once it is the active leg, and reads never
+ * lock, so dispatch strategies can read the set while the elevator moves.
+ */
+final class FloorSet {
+
+    // Floors a new set can hold before it has to grow, one word
+    static final int DEFAULT_FLOORS = 64;
+
+    private volatile AtomicLongArray words;
+
+    FloorSet(){
+        this(DEFAULT_FLOORS);
+    }
+
+    FloorSet(int floors){
+        words = new AtomicLongArray(Math.max(FloorBits.words(floors), 1));
+    }
+
+    /**
+     * @return true if the floor was not in the set already
+     */
+    synchronized boolean add(int floor){
+        if(floor < 0){
+            throw new IllegalArgumentException("Negative floor " + floor);
+        }
+        AtomicLongArray w = words;
+        if(floor >>> 6 >= w.length()){
+            w = grow((floor >>> 6) + 1);
+        }
+        return setBits(w, floor >>> 6, 1L << floor);
+    }
+
+    /**
+     * Add every floor from low to high, both included
+     */
+    synchronized void addRange(int low, int high){
+        if(low > high){
+            return;
+        }
+        add(low);
+        add(high);
+        AtomicLongArray w = words;
+        int lowWord = low >>> 6;
+        int highWord = high >>> 6;
+        for(int i=lowWord; i<=highWord; i++){
+            long mask = -1L;
+            if(i == lowWord){
+                mask &= -1L << low;
+            }
+            if(i == highWord){
+                mask &= -1L >>> -(high + 1);
+            }
+            setBits(w, i, mask);
+        }
+    }
+
+    /**
+     * @return true if the floor was in the set
+     */
+    synchronized boolean remove(int floor){
+        AtomicLongArray w = words;
+        if(floor < 0 || floor >>> 6 >= w.length()){
+            return false;
+        }
+        return clearBits(w, floor >>> 6, 1L << floor);
+    }
+
+    boolean contains(int floor){
+        AtomicLongArray w = words;
+        return floor >= 0 && floor >>> 6 < w.length() && (w.get(floor >>> 6) & (1L << floor)) != 0;
+    }
+
+    boolean isEmpty(){
+        AtomicLongArray w = words;
+        for(int i=0; i<w.length(); i++){
+            if(w.get(i) != 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int size(){
+        AtomicLongArray w = words;
+        int size = 0;
+        for(int i=0; i<w.length(); i++){
+            size += Long.bitCount(w.get(i));
+        }
+        return size;
+    }
+
+    /**
+     * @return Number of floors in the set from low to high, both included
+     */
+    int count(int low, int high){
+        int count = 0;
+        for(int floor = nextSetBit(low); floor >= 0 && floor <= high; floor = nextSetBit(floor + 1)){
+            count++;
+        }
+        return count;
+    }
+
+    synchronized void clear(){
+        AtomicLongArray w = words;
+        for(int i=0; i<w.length(); i++){
+            w.set(i, 0);
+        }
+    }
+
+    /**
+     * @return Independent set holding the same floors
+     */
+    FloorSet copy(){
+        AtomicLongArray w = words;
+        FloorSet copy = new FloorSet(w.length() << 6);
+        for(int i=0; i<w.length(); i++){
+            copy.words.set(i, w.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * @return Lowest floor in the set, -1 if it is empty
+     */
+    int first(){
+        return nextSetBit(0);
+    }
+
+    /**
+     * @return Highest floor in the set, -1 if it is empty
+     */
+    int last(){
+        return previousSetBit(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Lowest floor in the set strictly above the given floor, -1 if none
+     */
+    int higher(int floor){
+        return floor == Integer.MAX_VALUE ? -1 : nextSetBit(floor + 1);
+    }
+
+    /**
+     * @return Highest floor in the set strictly below the given floor, -1 if none
+     */
+    int lower(int floor){
+        return previousSetBit(floor - 1);
+    }
+
+    /**
+     * Remove and return the lowest floor, -1 if the set is empty
+     */
+    synchronized int pollFirst(){
+        int floor = nextSetBit(0);
+        if(floor >= 0){
+            remove(floor);
+        }
+        return floor;
+    }
+
+    /**
+     * Remove and return the highest floor, -1 if the set is empty
+     */
+    synchronized int pollLast(){
+        int floor = previousSetBit(Integer.MAX_VALUE);
+        if(floor >= 0){
+            remove(floor);
+        }
+        return floor;
+    }
+
+    /**
+     * @return Lowest floor in the set at or above the given floor, -1 if none
+     */
+    int nextSetBit(int from){
+        if(from < 0){
+            from = 0;
+        }
+        AtomicLongArray w = words;
+        int u = from >>> 6;
+        if(u >= w.length()){
+            return -1;
+        }
+        long word = w.get(u) & (-1L << from);
+        while(true){
+            if(word != 0){
+                return (u << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if(++u == w.length()){
+                return -1;
+            }
+            word = w.get(u);
+        }
+    }
+
+    /**
+     * @return Highest floor in the set at or below the given floor, -1 if none
+     */
+    int previousSetBit(int from){
+        if(from < 0){
+            return -1;
+        }
+        AtomicLongArray w = words;
+        int u = from >>> 6;
+        if(u >= w.length()){
+            u = w.length() - 1;
+            from = (w.length() << 6) - 1;
+        }
+        long word = w.get(u) & (-1L >>> -(from + 1));
+        while(true){
+            if(word != 0){
+                return ((u + 1) << 6) - 1 - Long.numberOfLeadingZeros(word);
+            }
+            if(u-- == 0){
+                return -1;
+            }
+            word = w.get(u);
+        }
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder builder = new StringBuilder("[");
+        for(int floor = nextSetBit(0); floor >= 0; floor = nextSetBit(floor + 1)){
+            if(builder.length() > 1){
+                builder.append(", ");
+            }
+            builder.append(floor);
+        }
+        return builder.append(']').toString();
+    }
+
+    // Callers hold the lock, so the words never change under us and an
+    // ordered store is enough for lock-free readers to see the update
+    private static boolean setBits(AtomicLongArray w, int index, long mask){
+        long current = w.get(index);
+        if((current | mask) == current){
+            return false;
+        }
+        w.lazySet(index, current | mask);
+        return true;
+    }
+
+    private static boolean clearBits(AtomicLongArray w, int index, long mask){
+        long current = w.get(index);
+        if((current & mask) == 0){
+            return false;
+        }
+        w.lazySet(index, current & ~mask);
+        return true;
+    }
+
+    private AtomicLongArray grow(int minWords){
+        AtomicLongArray w = words;
+        AtomicLongArray grown = new AtomicLongArray(Math.max(w.length() * 2, minWords));
+        for(int i=0; i<w.length(); i++){
+            grown.set(i, w.get(i));
+        }
+        words = grown;
+        return grown;
+    }
+}
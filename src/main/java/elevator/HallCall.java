@@ -0,0 +1,110 @@
+package elevator;
+
+/**
+ * A hall call packed into a single long, so it can be dispatched and carried
+ * by an elevator without allocating a request object, see
+ * ElevatorController.dispatch(long). Bits 0-15 hold the floor the call comes
+ * from, 16-31 the floor it goes to, so every floor a BuildingConfig accepts
+ * fits, 32-43 the low 12 bits of its id, and 44-63 the clock time it was
+ * made at, in TIME_UNIT_MILLIS modulo 2^20, which wraps every 2^24 ms, about
+ * four and a half hours. Times in between are measured to TIME_UNIT_MILLIS
+ * and modulo the same, so a call that waits or rides longer than
+ * MAX_ELAPSED_MILLIS is timed 2^24 ms too short.
+ *
+ * Ids repeat every MAX_IDS calls. Event logs and FleetStore tell calls apart
+ * by id, origin and destination, so no more than MAX_IDS calls may be made
+ * while one of them is still waiting or riding.
+ */
+public final class HallCall {
+
+    // Highest floor that fits, the same as for CarState
+    public static final int MAX_FLOOR = CarState.MAX_FLOOR;
+    // Longest wait or ride that is timed right
+    public static final long MAX_ELAPSED_MILLIS = 0xffffff;
+    // Calls that can be told apart
+    public static final int MAX_IDS = 1 << 12;
+    // Resolution of the times kept
+    public static final int TIME_UNIT_MILLIS = 16;
+
+    private static final long FLOOR_MASK = 0xffff;
+    private static final long ID_MASK = MAX_IDS - 1;
+    private static final long TIME_MASK = 0xfffff;
+    private static final int TIME_UNIT_SHIFT = 4;
+    private static final int DESTINATION_SHIFT = 16;
+    private static final int ID_SHIFT = 32;
+    private static final int TIME_SHIFT = 44;
+
+    private HallCall(){
+    }
+
+    /**
+     * @param origin Floor the call comes from
+     * @param destination Floor the user wants to go to
+     * @param id Tells calls apart in event logs and FleetStore, only the low
+     *           12 bits are kept, so ids taken from a counter repeat every
+     *           MAX_IDS calls
+     * @param timeMillis Clock time of the controller's driver the call was made
+     *                   at, only kept to TIME_UNIT_MILLIS and modulo 2^24 ms
+     * @return Packed call
+     * @throws IllegalArgumentException if a floor does not fit
+     */
+    public static long pack(int origin, int destination, long id, long timeMillis){
+        if(origin < 0 || origin > MAX_FLOOR || destination < 0 || destination > MAX_FLOOR){
+            throw new IllegalArgumentException("Floors are 0 to " + MAX_FLOOR + ", got " + origin + " to " + destination);
+        }
+        return origin
+                | (long) destination << DESTINATION_SHIFT
+                | (id & ID_MASK) << ID_SHIFT
+                | (timeMillis >>> TIME_UNIT_SHIFT & TIME_MASK) << TIME_SHIFT;
+    }
+
+    public static int origin(long call){
+        return (int) (call & FLOOR_MASK);
+    }
+
+    public static int destination(long call){
+        return (int) (call >>> DESTINATION_SHIFT & FLOOR_MASK);
+    }
+
+    /**
+     * @return Low 12 bits of the id the call was packed with
+     */
+    public static int id(long call){
+        return (int) (call >>> ID_SHIFT & ID_MASK);
+    }
+
+    /**
+     * @return UP if the user wants to go up, DOWN otherwise
+     */
+    public static ElevatorState direction(long call){
+        return destination(call) > origin(call) ? ElevatorState.UP : ElevatorState.DOWN;
+    }
+
+    /**
+     * @param call
+     * @param nowMillis Clock time, later than the time of the call
+     * @return Milliseconds since the time of the call, in TIME_UNIT_MILLIS
+     * and modulo MAX_ELAPSED_MILLIS + 1
+     */
+    public static long elapsedMillis(long call, long nowMillis){
+        return ((nowMillis >>> TIME_UNIT_SHIFT) - (call >>> TIME_SHIFT) & TIME_MASK) << TIME_UNIT_SHIFT;
+    }
+
+    /**
+     * @return The same call made at another time, e.g. the time it was picked up
+     */
+    public static long withTime(long call, long timeMillis){
+        return key(call) | (timeMillis >>> TIME_UNIT_SHIFT & TIME_MASK) << TIME_SHIFT;
+    }
+
+    /**
+     * @return The call without its time, the same for every event about it
+     */
+    public static long key(long call){
+        return call & ~(TIME_MASK << TIME_SHIFT);
+    }
+
+    public static String toString(long call){
+        return "Call " + id(call) + " from " + origin(call) + " to " + destination(call);
+    }
+}
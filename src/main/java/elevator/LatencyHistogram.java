@@ -0,0 +1,188 @@
+package elevator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values with a bounded relative error,
+ * in the style of HdrHistogram. Values below 128 get a bucket each; above
+ * that every power of two is split into 64 buckets, so a reported percentile
+ * is within 1.6% of the recorded value. Recording is a couple of shifts and
+ * an atomic increment, safe from any number of threads.
+ */
+public final class LatencyHistogram {
+
+    // Buckets per power of two above the linear range
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below this get a bucket each
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param highestTrackableValue Larger values are recorded as this value
+     */
+    public LatencyHistogram(long highestTrackableValue){
+        if(highestTrackableValue < 1){
+            throw new IllegalArgumentException("Highest trackable value must be positive, got " + highestTrackableValue);
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(indexOf(highestTrackableValue) + 1);
+    }
+
+    /**
+     * @param value Negative values are recorded as 0
+     */
+    public void record(long value){
+        if(value < 0){
+            value = 0;
+        } else if(value > highestTrackableValue){
+            value = highestTrackableValue;
+        }
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        sum.addAndGet(value);
+
+        long current;
+        while(value > (current = max.get()) && !max.compareAndSet(current, value)){
+            // Another thread raised the maximum, check against the new one
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Copy of the histogram as it is now. Values recorded concurrently may
+     * or may not be included.
+     */
+    public Snapshot snapshot(){
+        long[] copy = new long[counts.length()];
+        long total = 0;
+        for(int i=0; i<copy.length; i++){
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.get(), max.get());
+    }
+
+    static int indexOf(long value){
+        if(value < LINEAR_LIMIT){
+            return (int) value;
+        }
+        // Keep the top SUB_BUCKET_BITS + 1 bits of the value
+        int shift = 64 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS + 1);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @return Highest value recorded in the bucket at the given index
+     */
+    static long highestValueAt(int index){
+        if(index < LINEAR_LIMIT){
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long top = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Immutable copy of a LatencyHistogram
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long totalCount;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long totalCount, long sum, long max){
+            this.counts = counts;
+            this.totalCount = totalCount;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * @return Largest value recorded so far, 0 if none
+         */
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return totalCount == 0 ? 0 : (double) sum / totalCount;
+        }
+
+        /**
+         * @param percentile Between 0 and 100, e.g. 99.9
+         * @return Value that the given percentage of recorded values are at or
+         * below, 0 if nothing has been recorded
+         */
+        public long getValueAtPercentile(double percentile){
+            if(totalCount == 0){
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * totalCount));
+            long seen = 0;
+            for(int i=0; i<counts.length; i++){
+                seen += counts[i];
+                if(seen >= rank){
+                    return Math.min(highestValueAt(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Values recorded after an earlier snapshot of the same histogram. The
+         * maximum is that of the whole histogram.
+         * @param earlier
+         * @return Snapshot of the interval between the two
+         */
+        public Snapshot since(Snapshot earlier){
+            long[] interval = new long[counts.length];
+            long total = 0;
+            for(int i=0; i<interval.length; i++){
+                interval[i] = counts[i] - earlier.counts[i];
+                total += interval[i];
+            }
+            return new Snapshot(interval, total, sum - earlier.sum, max);
+        }
+
+        /**
+         * Values recorded by this histogram or another one tracking the same
+         * range, e.g. the same metric of another controller
+         * @param other
+         * @return Snapshot of both
+         * @throws IllegalArgumentException if the histograms track different ranges
+         */
+        public Snapshot merge(Snapshot other){
+            if(other.counts.length != counts.length){
+                throw new IllegalArgumentException("Cannot merge histograms of " + counts.length
+                        + " and " + other.counts.length + " buckets");
+            }
+            long[] merged = new long[counts.length];
+            for(int i=0; i<merged.length; i++){
+                merged[i] = counts[i] + other.counts[i];
+            }
+            return new Snapshot(merged, totalCount + other.totalCount, sum + other.sum, Math.max(max, other.max));
+        }
+
+        @Override
+        public String toString(){
+            return "count=" + totalCount + " p50=" + getValueAtPercentile(50) + " p99=" + getValueAtPercentile(99)
+                    + " p99.9=" + getValueAtPercentile(99.9) + " max=" + max;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package elevator;
+
+/**
+ * Part of an elevator's planned route: the floors it will stop at while
+ * travelling in one direction, not the ones it passes by.
+ */
+final class Leg {
+    private final ElevatorState direction;
+    private final FloorSet floors;
+
+    // true for the leg the elevator is travelling right now
+    private final boolean active;
+
+    Leg(ElevatorState direction, FloorSet floors, boolean active){
+        this.direction = direction;
+        this.floors = floors;
+        this.active = active;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public ElevatorState getDirection() {
+        return direction;
+    }
+
+    public FloorSet getFloors() {
+        return floors;
+    }
+
+    /**
+     * @return Floor the leg starts from
+     */
+    public int getFirstFloor() {
+        return direction.equals(ElevatorState.UP) ? floors.first() : floors.last();
+    }
+
+    /**
+     * @return Floor the leg ends at
+     */
+    public int getLastFloor() {
+        return direction.equals(ElevatorState.UP) ? floors.last() : floors.first();
+    }
+}
@@ -0,0 +1,121 @@
+package elevator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * BoundedRingBuffer of primitive longs, so offering and polling never
+ * allocate. Any number of threads can offer, one thread at a time polls.
+ */
+final class LongRingBuffer {
+
+    private final int mask;
+    private final AtomicLongArray slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    // Only advanced by the consumer, volatile as in BoundedRingBuffer
+    private volatile long head;
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     */
+    LongRingBuffer(int capacity){
+        if(capacity < 1){
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity){
+            size <<= 1;
+        }
+        mask = size - 1;
+        slots = new AtomicLongArray(size);
+        sequences = new AtomicLongArray(size);
+        for(int i=0; i<size; i++){
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity(){
+        return mask + 1;
+    }
+
+    /**
+     * @param element
+     * @return false if the buffer is full
+     */
+    boolean offer(long element){
+        while(true){
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if(sequence == position){
+                if(tail.compareAndSet(position, position + 1)){
+                    slots.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if(sequence < position){
+                // The consumer has not freed this slot since the last lap
+                return false;
+            }
+            // Another producer took this slot, try the next one
+        }
+    }
+
+    /**
+     * Remove the oldest element. Consumer only, and only if isEmpty() has
+     * just returned false.
+     * @return The element
+     * @throws IllegalStateException if the buffer is empty
+     */
+    long poll(){
+        int index = (int) head & mask;
+        if(sequences.get(index) != head + 1){
+            throw new IllegalStateException("Nothing to poll");
+        }
+        long element = slots.get(index);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    /**
+     * @return true if offer() would fail now. Never wrongly false, as the
+     * consumer only ever frees slots.
+     */
+    boolean isFull(){
+        return tail.get() - head >= capacity();
+    }
+
+    boolean isEmpty(){
+        long position = head;
+        return sequences.get((int) position & mask) != position + 1;
+    }
+
+    /**
+     * Copy of the elements, oldest first. Safe to call from any thread; like
+     * the iterator of a concurrent queue it may miss elements offered or
+     * polled while it runs.
+     */
+    long[] toArray(){
+        long[] elements = new long[capacity()];
+        int count = 0;
+        long position = head;
+        while(count < elements.length){
+            int index = (int) position & mask;
+            if(sequences.get(index) != position + 1){
+                break;
+            }
+            long element = slots.get(index);
+            if(sequences.get(index) != position + 1){
+                // Polled and offered again while we read it
+                break;
+            }
+            elements[count++] = element;
+            position++;
+        }
+        return Arrays.copyOf(elements, count);
+    }
+}
@@ -0,0 +1,315 @@
+package elevator;
+
+import java.util.Arrays;
+
+/**
+ * Point in time copy of ElevatorMetrics. Waiting and riding times are in
+ * milliseconds of the controller's clock, so virtual time when simulating;
+ * assignment latency and lock hold times are real nanoseconds. Drop-offs
+ * are also kept per clock minute, for at most the last day.
+ */
+public final class MetricsSnapshot {
+    private final long timeMillis;
+    private final long elapsedMillis;
+
+    private final long submitted;
+    private final long assigned;
+    private final long unassigned;
+    private final long rejected;
+    private final long reassigned;
+    private final long pickedUp;
+    private final long droppedOff;
+
+    private final LatencyHistogram.Snapshot waitMillis;
+    private final LatencyHistogram.Snapshot rideMillis;
+    private final LatencyHistogram.Snapshot assignmentNanos;
+    private final LatencyHistogram.Snapshot lockHoldNanos;
+
+    // Indexed by elevator id
+    private final long[] busyMillis;
+    private final long[] reversals;
+    private final long[] stops;
+    private final long[] trips;
+    private final long[] floors;
+
+    // Drop-offs per clock minute, from firstMinute on
+    private final long firstMinute;
+    private final long[] deliveriesPerMinute;
+
+    MetricsSnapshot(long timeMillis, long elapsedMillis, long submitted, long assigned, long unassigned,
+                    long rejected, long reassigned, long pickedUp, long droppedOff,
+                    LatencyHistogram.Snapshot waitMillis, LatencyHistogram.Snapshot rideMillis,
+                    LatencyHistogram.Snapshot assignmentNanos, LatencyHistogram.Snapshot lockHoldNanos,
+                    long[] busyMillis, long[] reversals, long[] stops, long[] trips, long[] floors,
+                    long firstMinute, long[] deliveriesPerMinute){
+        this.timeMillis = timeMillis;
+        this.elapsedMillis = elapsedMillis;
+        this.submitted = submitted;
+        this.assigned = assigned;
+        this.unassigned = unassigned;
+        this.rejected = rejected;
+        this.reassigned = reassigned;
+        this.pickedUp = pickedUp;
+        this.droppedOff = droppedOff;
+        this.waitMillis = waitMillis;
+        this.rideMillis = rideMillis;
+        this.assignmentNanos = assignmentNanos;
+        this.lockHoldNanos = lockHoldNanos;
+        this.busyMillis = busyMillis;
+        this.reversals = reversals;
+        this.stops = stops;
+        this.trips = trips;
+        this.floors = floors;
+        this.firstMinute = firstMinute;
+        this.deliveriesPerMinute = deliveriesPerMinute;
+    }
+
+    /**
+     * What happened between an earlier snapshot of the same controller and this one
+     * @param earlier
+     * @return Snapshot of the interval
+     */
+    public MetricsSnapshot since(MetricsSnapshot earlier){
+        long[] busy = new long[busyMillis.length];
+        long[] reversed = new long[reversals.length];
+        long[] stopped = new long[stops.length];
+        long[] travelled = new long[trips.length];
+        long[] moved = new long[floors.length];
+        for(int i=0; i<busy.length; i++){
+            busy[i] = busyMillis[i] - earlier.busyMillis[i];
+            reversed[i] = reversals[i] - earlier.reversals[i];
+            stopped[i] = stops[i] - earlier.stops[i];
+            travelled[i] = trips[i] - earlier.trips[i];
+            moved[i] = floors[i] - earlier.floors[i];
+        }
+        // The minute the earlier snapshot was taken in is shared, older ones are not part of the interval
+        long from = Math.max(firstMinute, earlier.timeMillis / ElevatorMetrics.MINUTE_MILLIS);
+        long[] deliveries = new long[(int) Math.max(0, firstMinute + deliveriesPerMinute.length - from)];
+        for(int i=0; i<deliveries.length; i++){
+            deliveries[i] = deliveriesIn(from + i) - earlier.deliveriesIn(from + i);
+        }
+        return new MetricsSnapshot(timeMillis, timeMillis - earlier.timeMillis,
+                submitted - earlier.submitted, assigned - earlier.assigned, unassigned - earlier.unassigned,
+                rejected - earlier.rejected, reassigned - earlier.reassigned,
+                pickedUp - earlier.pickedUp, droppedOff - earlier.droppedOff,
+                waitMillis.since(earlier.waitMillis), rideMillis.since(earlier.rideMillis),
+                assignmentNanos.since(earlier.assignmentNanos), lockHoldNanos.since(earlier.lockHoldNanos),
+                busy, reversed, stopped, travelled, moved, from, deliveries);
+    }
+
+    /**
+     * Combine with a snapshot of another controller, e.g. another building of
+     * an ElevatorCluster. Counts and latencies add up, drop-offs of the same
+     * clock minute too, per elevator figures of the other controller follow
+     * those of this one, and the covered time is the longer of the two.
+     * @param other
+     * @return Snapshot of both controllers
+     */
+    public MetricsSnapshot merge(MetricsSnapshot other){
+        long from = Math.min(firstMinute, other.firstMinute);
+        long to = Math.max(firstMinute + deliveriesPerMinute.length, other.firstMinute + other.deliveriesPerMinute.length);
+        long[] deliveries = new long[(int) (to - from)];
+        for(int i=0; i<deliveries.length; i++){
+            deliveries[i] = deliveriesIn(from + i) + other.deliveriesIn(from + i);
+        }
+        return new MetricsSnapshot(Math.max(timeMillis, other.timeMillis), Math.max(elapsedMillis, other.elapsedMillis),
+                submitted + other.submitted, assigned + other.assigned, unassigned + other.unassigned,
+                rejected + other.rejected, reassigned + other.reassigned,
+                pickedUp + other.pickedUp, droppedOff + other.droppedOff,
+                waitMillis.merge(other.waitMillis), rideMillis.merge(other.rideMillis),
+                assignmentNanos.merge(other.assignmentNanos), lockHoldNanos.merge(other.lockHoldNanos),
+                concat(busyMillis, other.busyMillis), concat(reversals, other.reversals),
+                concat(stops, other.stops), concat(trips, other.trips), concat(floors, other.floors),
+                from, deliveries);
+    }
+
+    private long deliveriesIn(long minute){
+        long i = minute - firstMinute;
+        return i < 0 || i >= deliveriesPerMinute.length ? 0 : deliveriesPerMinute[(int) i];
+    }
+
+    private static long[] concat(long[] first, long[] second){
+        long[] both = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
+    }
+
+    /**
+     * @return Clock time the snapshot was taken at
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @return Time covered by the snapshot
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getRequestsSubmitted() {
+        return submitted;
+    }
+
+    public long getRequestsAssigned() {
+        return assigned;
+    }
+
+    public long getRequestsUnassigned() {
+        return unassigned;
+    }
+
+    public long getRequestsRejected() {
+        return rejected;
+    }
+
+    public long getRequestsReassigned() {
+        return reassigned;
+    }
+
+    public long getRequestsPickedUp() {
+        return pickedUp;
+    }
+
+    public long getRequestsDroppedOff() {
+        return droppedOff;
+    }
+
+    /**
+     * @return Time from submitting a request until the user got on
+     */
+    public LatencyHistogram.Snapshot getWaitMillis() {
+        return waitMillis;
+    }
+
+    /**
+     * @return Time from getting on until getting off
+     */
+    public LatencyHistogram.Snapshot getRideMillis() {
+        return rideMillis;
+    }
+
+    /**
+     * @return Time from submitting a request until an elevator was selected, queueing included
+     */
+    public LatencyHistogram.Snapshot getAssignmentNanos() {
+        return assignmentNanos;
+    }
+
+    /**
+     * @return Time the controller's lock was held for every dispatch or hand-over round
+     */
+    public LatencyHistogram.Snapshot getLockHoldNanos() {
+        return lockHoldNanos;
+    }
+
+    /**
+     * @return Fraction of the covered time every elevator spent moving, indexed by elevator id
+     */
+    public double[] getCarUtilization() {
+        double[] utilization = new double[busyMillis.length];
+        for(int i=0; i<utilization.length; i++){
+            utilization[i] = elapsedMillis <= 0 ? 0 : Math.min(1.0, (double) busyMillis[i] / elapsedMillis);
+        }
+        return utilization;
+    }
+
+    /**
+     * @return Number of times every elevator reversed direction, indexed by elevator id
+     */
+    public long[] getCarReversals() {
+        return reversals.clone();
+    }
+
+    /**
+     * @return Number of times every elevator stopped to let someone on or off, indexed by elevator id
+     */
+    public long[] getCarStops() {
+        return stops.clone();
+    }
+
+    /**
+     * @return Number of floors every elevator moved over, indexed by elevator id
+     */
+    public long[] getCarFloorsTravelled() {
+        return floors.clone();
+    }
+
+    /**
+     * @return Number of floors all elevators moved over together
+     */
+    public long getFloorsTravelled() {
+        long total = 0;
+        for(long f : floors){
+            total += f;
+        }
+        return total;
+    }
+
+    /**
+     * @return Stops per leg travelled, counting legs with at least one stop
+     */
+    public double getStopsPerTrip() {
+        long totalStops = 0;
+        long totalTrips = 0;
+        for(int i=0; i<stops.length; i++){
+            totalStops += stops[i];
+            totalTrips += trips[i];
+        }
+        return totalTrips == 0 ? 0 : (double) totalStops / totalTrips;
+    }
+
+    /**
+     * @return Requests dropped off during every clock minute, the first one
+     *         being the minute the covered time (or the last day of it) starts in
+     */
+    public long[] getDeliveriesPerMinute() {
+        return deliveriesPerMinute.clone();
+    }
+
+    /**
+     * @return Handling capacity: requests dropped off during the busiest five
+     *         consecutive clock minutes, all of them if less time is covered
+     */
+    public double getPassengersPerFiveMinutes() {
+        long busiest = 0;
+        long window = 0;
+        for(int i=0; i<deliveriesPerMinute.length; i++){
+            window += deliveriesPerMinute[i];
+            if(i >= 5){
+                window -= deliveriesPerMinute[i - 5];
+            }
+            busiest = Math.max(busiest, window);
+        }
+        return busiest;
+    }
+
+    /**
+     * @return Mean utilization of all elevators
+     */
+    public double getMeanUtilization() {
+        double total = 0;
+        for(double utilization : getCarUtilization()){
+            total += utilization;
+        }
+        return busyMillis.length == 0 ? 0 : total / busyMillis.length;
+    }
+
+    @Override
+    public String toString(){
+        long totalReversals = 0;
+        for(long r : reversals){
+            totalReversals += r;
+        }
+        return "requests submitted=" + submitted + " assigned=" + assigned + " unassigned=" + unassigned
+                + " rejected=" + rejected + " reassigned=" + reassigned + " picked up=" + pickedUp
+                + " dropped off=" + droppedOff + "\n"
+                + "wait ms: " + waitMillis + "\n"
+                + "ride ms: " + rideMillis + "\n"
+                + "assignment ns: " + assignmentNanos + "\n"
+                + "lock hold ns: " + lockHoldNanos + "\n"
+                + String.format("utilization %.1f%%, reversals %d, stops per trip %.2f, passengers per 5 min %.1f",
+                getMeanUtilization() * 100, totalReversals, getStopsPerTrip(), getPassengersPerFiveMinutes());
+    }
+}
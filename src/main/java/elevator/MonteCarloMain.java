@@ -0,0 +1,142 @@
+package elevator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Sizes a fleet by simulating every combination of car counts and dispatch
+ * strategies many times over with different seeds, in parallel, and prints
+ * one merged report per combination. The building is configured as for the
+ * real-time system, see BuildingConfig.fromSystemProperties(), except for
+ * the number of cars; zones are left out when cars are given, as they name
+ * cars by number, and every car moves like the first configured one. Arguments are key=value:
+ * <pre>
+ * pattern=up-peak|lunch|down-peak|interfloor  (default up-peak)
+ * rate=60          requests per minute
+ * minutes=30       how long requests keep arriving
+ * cars=4,6,8       fleet sizes to compare, the configured one by default
+ * strategy=nearest,eta,destination
+ *                  strategies to compare, destination dispatches by
+ *                  target floor on top of eta
+ * parking=none|demand
+ * runs=100         seeds per combination
+ * seed=1           first seed
+ * threads=N        size of the fork-join pool, all cores by default
+ * </pre>
+ */
+public class MonteCarloMain {
+
+    public static void main(String[] args) {
+        String pattern = "up-peak";
+        double rate = 60;
+        long minutes = 30;
+        String cars = null;
+        String strategies = "nearest";
+        String parking = "none";
+        int runs = 100;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for(String arg : args){
+            int split = arg.indexOf('=');
+            if(split < 0){
+                usage("Expected key=value, got " + arg);
+                return;
+            }
+            String key = arg.substring(0, split);
+            String value = arg.substring(split + 1);
+            if("pattern".equals(key)){
+                pattern = value;
+            } else if("rate".equals(key)){
+                rate = Double.parseDouble(value);
+            } else if("minutes".equals(key)){
+                minutes = Long.parseLong(value);
+            } else if("cars".equals(key)){
+                cars = value;
+            } else if("strategy".equals(key)){
+                strategies = value;
+            } else if("parking".equals(key)){
+                parking = value;
+            } else if("runs".equals(key)){
+                runs = Integer.parseInt(value);
+            } else if("seed".equals(key)){
+                seed = Long.parseLong(value);
+            } else if("threads".equals(key)){
+                threads = Integer.parseInt(value);
+            } else {
+                usage("Unknown argument " + key);
+                return;
+            }
+        }
+
+        TrafficGenerator.Pattern trafficPattern =
+                TrafficGenerator.Pattern.valueOf(pattern.toUpperCase(Locale.ROOT).replace('-', '_'));
+        BuildingConfig configured = BuildingConfig.fromSystemProperties();
+        List<BuildingConfig> buildings = new ArrayList<BuildingConfig>();
+        if(cars == null){
+            buildings.add(configured);
+        } else {
+            for(String count : cars.split(",")){
+                buildings.add(BuildingConfig.builder().id(configured.getId())
+                        .elevators(Integer.parseInt(count.trim()))
+                        .floors(configured.getLowestFloor(), configured.getHighestFloor())
+                        .capacity(configured.getCapacity())
+                        .motionProfile(configured.getMotionProfile(0)).build());
+            }
+        }
+
+        final String parkingName = parking;
+        try {
+            ElevatorController.createParkingPolicy(parkingName);
+        } catch (IllegalArgumentException e){
+            usage(e.getMessage());
+            return;
+        }
+
+        List<MonteCarloRunner.Scenario> grid = new ArrayList<MonteCarloRunner.Scenario>();
+        for(BuildingConfig building : buildings){
+            for(String strategy : strategies.split(",")){
+                strategy = strategy.trim();
+                Supplier<DispatchStrategy> dispatchStrategy;
+                if("nearest".equals(strategy)){
+                    dispatchStrategy = NearestElevatorStrategy::new;
+                } else if("eta".equals(strategy)){
+                    dispatchStrategy = EtaDispatchStrategy::new;
+                } else if("destination".equals(strategy)){
+                    dispatchStrategy = () -> new DestinationDispatchStrategy(new EtaDispatchStrategy());
+                } else {
+                    usage("Unknown strategy " + strategy);
+                    return;
+                }
+                grid.add(new MonteCarloRunner.Scenario(building.getNumberOfElevators() + " cars, " + strategy,
+                        building, trafficPattern, rate, minutes * 60000)
+                        .dispatchStrategy(dispatchStrategy)
+                        .parkingPolicy(() -> ElevatorController.createParkingPolicy(parkingName)));
+            }
+        }
+
+        System.out.println(configured + ", " + pattern + " at " + rate + "/min for " + minutes + " min, parking "
+                + parking + ", " + runs + " runs from seed " + seed + " on " + threads + " threads");
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<MonteCarloReport> reports = new MonteCarloRunner(pool).run(grid, seed, runs);
+            for(MonteCarloReport report : reports){
+                System.out.println(report);
+            }
+            System.out.printf("%d simulations in %.1f s%n", grid.size() * runs, (System.nanoTime() - start) / 1e9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void usage(String error){
+        System.err.println(error);
+        System.err.println("Usage: MonteCarloMain [pattern=up-peak|lunch|down-peak|interfloor] [rate=60] [minutes=30]"
+                + " [cars=4,6,8] [strategy=nearest,eta,destination] [parking=none|demand] [runs=100] [seed=1]"
+                + " [threads=N]");
+    }
+}
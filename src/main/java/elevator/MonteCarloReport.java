@@ -0,0 +1,179 @@
+package elevator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of many seeded simulations of one scenario, merged: request
+ * counts add up and wait and ride percentiles are those of every request of
+ * every run. Merging only adds counts, so the report is the same whatever
+ * order the runs finished in.
+ *
+ * Energy is estimated in floor units: moving over a floor costs one, and
+ * every stop costs STOP_ENERGY_FLOORS more for braking and starting again.
+ * Good enough to compare fleets and strategies with, not to size a supply.
+ */
+public final class MonteCarloReport {
+
+    /**
+     * Energy of braking for a stop and accelerating away from it, in floors of travel
+     */
+    public static final double STOP_ENERGY_FLOORS = 2;
+
+    private final String scenario;
+    private final int runs;
+    private final long requests;
+    private final long delivered;
+    private final long unassigned;
+    private final long unserved;
+    private final long simulatedMillis;
+    private final long floorsTravelled;
+    private final long stops;
+    private final LatencyHistogram.Snapshot waitMillis;
+    private final LatencyHistogram.Snapshot rideMillis;
+
+    private MonteCarloReport(String scenario, int runs, long requests, long delivered, long unassigned,
+                             long unserved, long simulatedMillis, long floorsTravelled, long stops,
+                             LatencyHistogram.Snapshot waitMillis, LatencyHistogram.Snapshot rideMillis){
+        this.scenario = scenario;
+        this.runs = runs;
+        this.requests = requests;
+        this.delivered = delivered;
+        this.unassigned = unassigned;
+        this.unserved = unserved;
+        this.simulatedMillis = simulatedMillis;
+        this.floorsTravelled = floorsTravelled;
+        this.stops = stops;
+        this.waitMillis = waitMillis;
+        this.rideMillis = rideMillis;
+    }
+
+    /**
+     * @param scenario Name of the scenario
+     * @param run Report of a single run
+     * @return Report of that run alone
+     */
+    static MonteCarloReport of(String scenario, TrafficReport run){
+        MetricsSnapshot metrics = run.getMetrics();
+        long totalStops = 0;
+        for(long s : metrics.getCarStops()){
+            totalStops += s;
+        }
+        return new MonteCarloReport(scenario, 1, run.getRequests(), run.getDelivered(), run.getUnassigned(),
+                run.getUnserved(), run.getSimulatedMillis(), metrics.getFloorsTravelled(), totalStops,
+                run.getWaitMillis(), run.getRideMillis());
+    }
+
+    /**
+     * @param other Report of other runs of the same scenario
+     * @return Report of the runs of both
+     */
+    MonteCarloReport merge(MonteCarloReport other){
+        return new MonteCarloReport(scenario, runs + other.runs, requests + other.requests,
+                delivered + other.delivered, unassigned + other.unassigned, unserved + other.unserved,
+                simulatedMillis + other.simulatedMillis, floorsTravelled + other.floorsTravelled,
+                stops + other.stops, waitMillis.merge(other.waitMillis), rideMillis.merge(other.rideMillis));
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    /**
+     * @return Number of simulations merged
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * @return Requests generated over all runs
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return Requests taken to their target floor over all runs
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * @return Requests no elevator could serve when they arrived, over all runs
+     */
+    public long getUnassigned() {
+        return unassigned;
+    }
+
+    /**
+     * @return Requests no elevator ever took, over all runs
+     */
+    public long getUnserved() {
+        return unserved;
+    }
+
+    /**
+     * @return Virtual time of all runs together
+     */
+    public long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    public long getFloorsTravelled() {
+        return floorsTravelled;
+    }
+
+    /**
+     * @return Stops to let someone on or off over all runs
+     */
+    public long getStops() {
+        return stops;
+    }
+
+    /**
+     * @return Time from arrival to pickup of every request of every run, or
+     * to the end of the run for requests never served
+     */
+    public LatencyHistogram.Snapshot getWaitMillis() {
+        return waitMillis;
+    }
+
+    /**
+     * @return Time from pickup to drop-off of every request of every run
+     */
+    public LatencyHistogram.Snapshot getRideMillis() {
+        return rideMillis;
+    }
+
+    /**
+     * @return Estimated energy of all runs, in floors of travel
+     */
+    public double getEnergy() {
+        return floorsTravelled + STOP_ENERGY_FLOORS * stops;
+    }
+
+    /**
+     * @return Estimated energy per delivered request, in floors of travel
+     */
+    public double getEnergyPerPassenger() {
+        return delivered == 0 ? 0 : getEnergy() / delivered;
+    }
+
+    /**
+     * @return Estimated energy per hour of simulated time, in floors of travel
+     */
+    public double getEnergyPerHour() {
+        return simulatedMillis == 0 ? 0 : getEnergy() * TimeUnit.HOURS.toMillis(1) / simulatedMillis;
+    }
+
+    @Override
+    public String toString(){
+        return scenario + ": runs=" + runs + " requests=" + requests + " delivered=" + delivered
+                + " unassigned=" + unassigned + " unserved=" + unserved
+                + "\nwait ms: " + waitMillis + String.format(" mean=%.0f", waitMillis.getMean())
+                + "\nride ms: " + rideMillis + String.format(" mean=%.0f", rideMillis.getMean())
+                + String.format("\nenergy: %.1f floors per passenger, %.0f per hour",
+                        getEnergyPerPassenger(), getEnergyPerHour());
+    }
+}
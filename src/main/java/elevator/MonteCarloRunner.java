@@ -0,0 +1,191 @@
+package elevator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Runs many independent simulations of a grid of scenarios, e.g. fleet
+ * sizes times dispatch strategies, across every core of a ForkJoinPool, and
+ * merges the runs of every scenario into a MonteCarloReport.
+ *
+ * Run i of a scenario generates its traffic from seed firstSeed + i and
+ * simulates it on a DiscreteEventSimulator of its own, so it comes out the
+ * same on any thread. Merging only adds counts, so reports are the same
+ * whatever the parallelism of the pool.
+ */
+public final class MonteCarloRunner {
+
+    // Fewer runs than this are simulated by one task rather than split further
+    private static final int RUNS_PER_TASK = 4;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Runner using the common pool
+     */
+    public MonteCarloRunner(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool Runs the simulations, one at a time per worker
+     */
+    public MonteCarloRunner(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Simulate every scenario of the grid with seeds firstSeed to firstSeed + runs - 1
+     * @param grid
+     * @param firstSeed
+     * @param runs Simulations per scenario
+     * @return Merged report of every scenario, in the order of the grid
+     */
+    public List<MonteCarloReport> run(List<Scenario> grid, long firstSeed, int runs){
+        if(runs <= 0){
+            throw new IllegalArgumentException("Need at least one run, got " + runs);
+        }
+        List<ForkJoinTask<MonteCarloReport>> tasks = new ArrayList<ForkJoinTask<MonteCarloReport>>(grid.size());
+        for(Scenario scenario : grid){
+            // All scenarios at once, so workers never wait for the slowest run of one
+            tasks.add(pool.submit(new Runs(scenario, firstSeed, firstSeed + runs)));
+        }
+        List<MonteCarloReport> reports = new ArrayList<MonteCarloReport>(grid.size());
+        for(ForkJoinTask<MonteCarloReport> task : tasks){
+            reports.add(task.join());
+        }
+        return reports;
+    }
+
+    /**
+     * Simulate one scenario with seeds firstSeed to firstSeed + runs - 1
+     * @param scenario
+     * @param firstSeed
+     * @param runs
+     * @return Merged report of all runs
+     */
+    public MonteCarloReport run(Scenario scenario, long firstSeed, int runs){
+        List<Scenario> grid = new ArrayList<Scenario>(1);
+        grid.add(scenario);
+        return run(grid, firstSeed, runs).get(0);
+    }
+
+    /**
+     * A single run of a scenario, on the calling thread
+     * @param scenario
+     * @param seed Seed of the generated traffic
+     * @return Report of the run
+     */
+    public static TrafficReport simulate(Scenario scenario, long seed){
+        TrafficTrace trace = new TrafficGenerator(scenario.building, seed)
+                .generate(scenario.pattern, scenario.requestsPerMinute, scenario.durationMillis);
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(scenario.building);
+        simulator.getController().setDispatchStrategy(scenario.dispatchStrategy.get());
+        simulator.getController().setParkingPolicy(scenario.parkingPolicy.get());
+        return trace.replay(simulator);
+    }
+
+    /**
+     * Seeds [from, to) of a scenario, split in halves until few are left
+     */
+    private static final class Runs extends RecursiveTask<MonteCarloReport> {
+        private static final long serialVersionUID = 1L;
+
+        private final Scenario scenario;
+        private final long from;
+        private final long to;
+
+        Runs(Scenario scenario, long from, long to){
+            this.scenario = scenario;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected MonteCarloReport compute(){
+            if(to - from > RUNS_PER_TASK){
+                long middle = from + (to - from) / 2;
+                Runs upper = new Runs(scenario, middle, to);
+                upper.fork();
+                MonteCarloReport lower = new Runs(scenario, from, middle).compute();
+                return lower.merge(upper.join());
+            }
+            MonteCarloReport report = MonteCarloReport.of(scenario.name, simulate(scenario, from));
+            for(long seed = from + 1; seed < to; seed++){
+                report = report.merge(MonteCarloReport.of(scenario.name, simulate(scenario, seed)));
+            }
+            return report;
+        }
+    }
+
+    /**
+     * One point of the grid: a building, its traffic, and how it is
+     * dispatched. Strategies and policies keep state, so every run gets
+     * new ones from the suppliers.
+     */
+    public static final class Scenario {
+        private final String name;
+        private final BuildingConfig building;
+        private final TrafficGenerator.Pattern pattern;
+        private final double requestsPerMinute;
+        private final long durationMillis;
+        private final Supplier<DispatchStrategy> dispatchStrategy;
+        private final Supplier<ParkingPolicy> parkingPolicy;
+
+        /**
+         * Scenario dispatched by the NearestElevatorStrategy without parking
+         * @param name Names the scenario in its report
+         * @param building
+         * @param pattern
+         * @param requestsPerMinute
+         * @param durationMillis How long requests keep arriving
+         */
+        public Scenario(String name, BuildingConfig building, TrafficGenerator.Pattern pattern,
+                        double requestsPerMinute, long durationMillis){
+            this(name, building, pattern, requestsPerMinute, durationMillis,
+                    NearestElevatorStrategy::new, () -> null);
+        }
+
+        private Scenario(String name, BuildingConfig building, TrafficGenerator.Pattern pattern,
+                         double requestsPerMinute, long durationMillis,
+                         Supplier<DispatchStrategy> dispatchStrategy, Supplier<ParkingPolicy> parkingPolicy){
+            this.name = name;
+            this.building = building;
+            this.pattern = pattern;
+            this.requestsPerMinute = requestsPerMinute;
+            this.durationMillis = durationMillis;
+            this.dispatchStrategy = dispatchStrategy;
+            this.parkingPolicy = parkingPolicy;
+        }
+
+        /**
+         * @param dispatchStrategy Creates the strategy of every run
+         * @return Copy of this scenario dispatched by that strategy
+         */
+        public Scenario dispatchStrategy(Supplier<DispatchStrategy> dispatchStrategy){
+            return new Scenario(name, building, pattern, requestsPerMinute, durationMillis,
+                    dispatchStrategy, parkingPolicy);
+        }
+
+        /**
+         * @param parkingPolicy Creates the policy of every run, or returns null not to park
+         * @return Copy of this scenario parking idle elevators by that policy
+         */
+        public Scenario parkingPolicy(Supplier<ParkingPolicy> parkingPolicy){
+            return new Scenario(name, building, pattern, requestsPerMinute, durationMillis,
+                    dispatchStrategy, parkingPolicy);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public BuildingConfig getBuilding() {
+            return building;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package elevator;
+
+import java.util.Properties;
+
+/**
+ * How an elevator car moves and how long it stands at a stop: top speed,
+ * acceleration and jerk (how fast acceleration builds up), floor height,
+ * and the times to open the doors, let people through and close them.
+ * Travel times are computed analytically for a jerk-limited S-curve from
+ * standstill to standstill, so a 20 floor express run takes far less than
+ * 20 single floor hops, each of which has to speed up and slow down.
+ *
+ * UNIFORM is the model elevators used to follow: every floor takes a
+ * second and stops take no time. It is the default, and what infinite
+ * acceleration and jerk give in general. Built with a Builder, whose
+ * defaults are typical of a mid-rise traction elevator, or read from
+ * properties, e.g. for a whole building or a zone:
+ * <pre>
+ * elevator.motion.speed=2.5          m/s
+ * elevator.motion.acceleration=1.0   m/s^2
+ * elevator.motion.jerk=1.5           m/s^3
+ * elevator.motion.floorHeight=3.5    m
+ * elevator.motion.doorOpen=2000      ms
+ * elevator.motion.dwell=3000         ms
+ * elevator.motion.doorClose=3000     ms
+ * elevator.zone.high.motion.speed=6  faster cars for the express zone
+ * </pre>
+ */
+public final class MotionProfile {
+
+    /**
+     * Every floor takes FLOOR_TRAVEL_MILLIS of Elevator at constant speed, stops take no time
+     */
+    public static final MotionProfile UNIFORM = uniform(Elevator.FLOOR_TRAVEL_MILLIS, 0);
+
+    static final double DEFAULT_FLOOR_HEIGHT = 3.5;
+
+    private final double speed;
+    private final double acceleration;
+    private final double jerk;
+    private final double floorHeight;
+    private final long doorOpenMillis;
+    private final long dwellMillis;
+    private final long doorCloseMillis;
+
+    // Acceleration actually reached on long runs, lower than the limit if
+    // jerk gets the car to top speed first
+    private final double peakAcceleration;
+    // Seconds a run loses to speeding up and slowing down, against cruising all the way
+    private final double rampSeconds;
+
+    private MotionProfile(Builder builder){
+        this.speed = builder.speed;
+        this.acceleration = builder.acceleration;
+        this.jerk = builder.jerk;
+        this.floorHeight = builder.floorHeight;
+        this.doorOpenMillis = builder.doorOpenMillis;
+        this.dwellMillis = builder.dwellMillis;
+        this.doorCloseMillis = builder.doorCloseMillis;
+        this.peakAcceleration = Math.min(acceleration, Math.sqrt(speed * jerk));
+        this.rampSeconds = seconds(speed, peakAcceleration) + seconds(peakAcceleration, jerk);
+    }
+
+    /**
+     * @param floorMillis Time every floor takes, at constant speed
+     * @param stopMillis Time every stop takes
+     * @return Profile of a car that needs no time to speed up or slow down
+     */
+    public static MotionProfile uniform(long floorMillis, long stopMillis){
+        if(floorMillis <= 0){
+            throw new IllegalArgumentException("Floors must take some time, got " + floorMillis + "ms");
+        }
+        return builder().speed(DEFAULT_FLOOR_HEIGHT * 1000 / floorMillis)
+                .acceleration(Double.POSITIVE_INFINITY).jerk(Double.POSITIVE_INFINITY)
+                .doors(0, stopMillis, 0).build();
+    }
+
+    public static Builder builder(){
+        return new Builder();
+    }
+
+    /**
+     * @return Builder starting from this profile
+     */
+    public Builder toBuilder(){
+        return builder().speed(speed).acceleration(acceleration).jerk(jerk).floorHeight(floorHeight)
+                .doors(doorOpenMillis, dwellMillis, doorCloseMillis);
+    }
+
+    /**
+     * Read the keys speed, acceleration, jerk, floorHeight, doorOpen, dwell
+     * and doorClose under a prefix, e.g. elevator.motion.
+     * @param properties
+     * @param prefix Prefix of every key
+     * @param defaults Profile for keys that are not set
+     * @return defaults if no key is set
+     * @throws IllegalArgumentException if a value is invalid
+     */
+    static MotionProfile fromProperties(Properties properties, String prefix, MotionProfile defaults){
+        Builder builder = defaults.toBuilder();
+        boolean set = false;
+        String value;
+        if((value = properties.getProperty(prefix + "speed")) != null){
+            builder.speed(parseDouble(prefix + "speed", value));
+            set = true;
+        }
+        if((value = properties.getProperty(prefix + "acceleration")) != null){
+            builder.acceleration(parseDouble(prefix + "acceleration", value));
+            set = true;
+        }
+        if((value = properties.getProperty(prefix + "jerk")) != null){
+            builder.jerk(parseDouble(prefix + "jerk", value));
+            set = true;
+        }
+        if((value = properties.getProperty(prefix + "floorHeight")) != null){
+            builder.floorHeight(parseDouble(prefix + "floorHeight", value));
+            set = true;
+        }
+        long doorOpen = defaults.doorOpenMillis;
+        long dwell = defaults.dwellMillis;
+        long doorClose = defaults.doorCloseMillis;
+        if((value = properties.getProperty(prefix + "doorOpen")) != null){
+            doorOpen = (long) parseDouble(prefix + "doorOpen", value);
+            set = true;
+        }
+        if((value = properties.getProperty(prefix + "dwell")) != null){
+            dwell = (long) parseDouble(prefix + "dwell", value);
+            set = true;
+        }
+        if((value = properties.getProperty(prefix + "doorClose")) != null){
+            doorClose = (long) parseDouble(prefix + "doorClose", value);
+            set = true;
+        }
+        return set ? builder.doors(doorOpen, dwell, doorClose).build() : defaults;
+    }
+
+    /**
+     * Time to travel a number of floors from standstill to standstill
+     * @param floors 0 or more
+     * @return Milliseconds, 0 for no floors
+     */
+    public long travelMillis(int floors){
+        if(floors <= 0){
+            return 0;
+        }
+        double distance = floors * floorHeight;
+        double jerkSeconds = seconds(peakAcceleration, jerk);
+        if(distance >= speed * rampSeconds){
+            // Reaches top speed and cruises for a while
+            return Math.round(1000 * (distance / speed + rampSeconds));
+        }
+        if(jerkSeconds == 0){
+            // Accelerates to halfway and brakes straight away
+            return Math.round(2000 * Math.sqrt(distance / peakAcceleration));
+        }
+        // Peak speed v of a run that never cruises: distance = v * (v / a + a / j)
+        double a = peakAcceleration;
+        double peakSpeed = (-a * jerkSeconds + Math.sqrt(a * a * jerkSeconds * jerkSeconds + 4 * a * distance)) / 2;
+        if(peakSpeed >= a * jerkSeconds){
+            return Math.round(2000 * (peakSpeed / a + jerkSeconds));
+        }
+        // Too short to even reach full acceleration: four phases of constant jerk
+        return Math.round(4000 * Math.cbrt(distance / (2 * jerk)));
+    }
+
+    /**
+     * @return Time to pass a floor at top speed
+     */
+    public long floorMillis(){
+        return Math.round(1000 * floorHeight / speed);
+    }
+
+    /**
+     * @return Time the doors take to open, stay open and close at a stop
+     */
+    public long stopMillis(){
+        return doorOpenMillis + dwellMillis + doorCloseMillis;
+    }
+
+    /**
+     * @return Time a stop adds to a long run that would otherwise have
+     * passed the floor: the door cycle plus slowing down and speeding up again
+     */
+    public long stopDelayMillis(){
+        return stopMillis() + Math.round(1000 * rampSeconds);
+    }
+
+    /**
+     * @return Top speed in m/s
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return Acceleration limit in m/s^2, infinite if speed changes instantly
+     */
+    public double getAcceleration() {
+        return acceleration;
+    }
+
+    /**
+     * @return Jerk limit in m/s^3, infinite if acceleration changes instantly
+     */
+    public double getJerk() {
+        return jerk;
+    }
+
+    /**
+     * @return Floor height in m
+     */
+    public double getFloorHeight() {
+        return floorHeight;
+    }
+
+    public long getDoorOpenMillis() {
+        return doorOpenMillis;
+    }
+
+    public long getDwellMillis() {
+        return dwellMillis;
+    }
+
+    public long getDoorCloseMillis() {
+        return doorCloseMillis;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("%.1f m/s, %.1f m/s^2, %.1f m/s^3, %.1f m floors, doors %d+%d+%d ms",
+                speed, acceleration, jerk, floorHeight, doorOpenMillis, dwellMillis, doorCloseMillis);
+    }
+
+    /**
+     * @return rate / change, 0 if change is instant
+     */
+    private static double seconds(double rate, double change){
+        return Double.isInfinite(change) ? 0 : rate / change;
+    }
+
+    private static double parseDouble(String key, String value){
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e){
+            throw new IllegalArgumentException("Invalid " + key + ": " + value, e);
+        }
+    }
+
+    public static final class Builder {
+        private double speed = 2.5;
+        private double acceleration = 1.0;
+        private double jerk = 1.5;
+        private double floorHeight = DEFAULT_FLOOR_HEIGHT;
+        private long doorOpenMillis = 2000;
+        private long dwellMillis = 3000;
+        private long doorCloseMillis = 3000;
+
+        private Builder(){
+        }
+
+        /**
+         * @param speed Top speed in m/s
+         */
+        public Builder speed(double speed){
+            this.speed = positive("Speed", speed);
+            return this;
+        }
+
+        /**
+         * @param acceleration Acceleration and deceleration limit in m/s^2, may be infinite
+         */
+        public Builder acceleration(double acceleration){
+            this.acceleration = positive("Acceleration", acceleration);
+            return this;
+        }
+
+        /**
+         * @param jerk Jerk limit in m/s^3, may be infinite
+         */
+        public Builder jerk(double jerk){
+            this.jerk = positive("Jerk", jerk);
+            return this;
+        }
+
+        /**
+         * @param floorHeight Distance between floors in m
+         */
+        public Builder floorHeight(double floorHeight){
+            this.floorHeight = positive("Floor height", floorHeight);
+            if(Double.isInfinite(floorHeight)){
+                throw new IllegalArgumentException("Floor height must be finite");
+            }
+            return this;
+        }
+
+        /**
+         * @param openMillis Time the doors take to open
+         * @param dwellMillis Time they stay open
+         * @param closeMillis Time they take to close
+         */
+        public Builder doors(long openMillis, long dwellMillis, long closeMillis){
+            if(openMillis < 0 || dwellMillis < 0 || closeMillis < 0){
+                throw new IllegalArgumentException("Door times must not be negative, got " + openMillis + "/"
+                        + dwellMillis + "/" + closeMillis);
+            }
+            this.doorOpenMillis = openMillis;
+            this.dwellMillis = dwellMillis;
+            this.doorCloseMillis = closeMillis;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the car could never move, i.e. speed is infinite
+         */
+        public MotionProfile build(){
+            if(Double.isInfinite(speed)){
+                throw new IllegalArgumentException("Speed must be finite");
+            }
+            return new MotionProfile(this);
+        }
+
+        private static double positive(String what, double value){
+            if(!(value > 0)){
+                throw new IllegalArgumentException(what + " must be positive, got " + value);
+            }
+            return value;
+        }
+    }
+}
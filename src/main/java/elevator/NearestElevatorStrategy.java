@@ -0,0 +1,14 @@
+package elevator;
+
+/**
+ * Selects the nearest elevator serving both floors that is either STATIONARY
+ * or already moving in the requested direction and has not passed the
+ * requested floor yet.
+ */
+public final class NearestElevatorStrategy implements DispatchStrategy {
+
+    @Override
+    public Elevator selectElevator(ElevatorController controller, ElevatorState direction, int requestedFloor, int targetFloor) {
+        return controller.findElevator(direction, requestedFloor, targetFloor);
+    }
+}
@@ -0,0 +1,19 @@
+package elevator;
+
+/**
+ * Decides where idle elevators wait for the next request. The
+ * ElevatorController asks it whenever an elevator runs out of stops, and
+ * sends the elevator there if it is somewhere else.
+ */
+public interface ParkingPolicy {
+
+    /**
+     * Select the floor an idle elevator should wait at. Must not modify the
+     * elevators. Called from the threads running the elevators, possibly
+     * from several at once.
+     * @param controller Controller owning the elevators
+     * @param elevator Elevator with nothing left to do
+     * @return Floor to park at, -1 to stay where it is
+     */
+    int parkingFloor(ElevatorController controller, Elevator elevator);
+}
@@ -0,0 +1,141 @@
+package elevator;
+
+/**
+ * Legs an elevator travels after the one it is on, at most one per
+ * direction, in the order it travels them. Floor sets of legs that are
+ * dropped or travelled are handed back and given out again for new legs,
+ * so planning a route stops allocating once an elevator has had as many
+ * legs at once as it ever will. Thread safe; take the lock of the instance
+ * for anything that needs more than one call to be consistent.
+ */
+final class PendingLegs {
+
+    private static final int DIRECTIONS = ElevatorState.values().length;
+
+    private final int floorCapacity;
+
+    private final ElevatorState[] directions = new ElevatorState[DIRECTIONS];
+    private final FloorSet[] stops = new FloorSet[DIRECTIONS];
+    private int count;
+
+    // Empty floor sets to give out again, the pending legs and the active one at most
+    private final FloorSet[] spares = new FloorSet[DIRECTIONS + 1];
+    private int spareCount;
+
+    /**
+     * @param floorCapacity Floors of the building, so stop sets never have to grow
+     */
+    PendingLegs(int floorCapacity){
+        this.floorCapacity = floorCapacity;
+    }
+
+    synchronized boolean isEmpty(){
+        return count == 0;
+    }
+
+    synchronized int size(){
+        return count;
+    }
+
+    synchronized ElevatorState getDirection(int index){
+        return directions[index];
+    }
+
+    synchronized FloorSet getStops(int index){
+        return stops[index];
+    }
+
+    /**
+     * @return Stops of the leg in the given direction, a new last leg if there is none yet
+     */
+    synchronized FloorSet forDirection(ElevatorState direction){
+        for(int i=0; i<count; i++){
+            if(directions[i] == direction){
+                return stops[i];
+            }
+        }
+        directions[count] = direction;
+        stops[count] = newStops();
+        return stops[count++];
+    }
+
+    /**
+     * Take the first leg out, see getDirection(0) for its direction
+     * @return Its stops, to be handed back through recycle() once travelled
+     */
+    synchronized FloorSet removeFirst(){
+        FloorSet first = stops[0];
+        System.arraycopy(directions, 1, directions, 0, count - 1);
+        System.arraycopy(stops, 1, stops, 0, count - 1);
+        count--;
+        directions[count] = null;
+        stops[count] = null;
+        return first;
+    }
+
+    /**
+     * Make a leg the first one again, e.g. after travelling back to where it starts
+     */
+    synchronized void addFirst(ElevatorState direction, FloorSet floors){
+        System.arraycopy(directions, 0, directions, 1, count);
+        System.arraycopy(stops, 0, stops, 1, count);
+        directions[0] = direction;
+        stops[0] = floors;
+        count++;
+    }
+
+    /**
+     * @return An empty floor set, a recycled one if there is any
+     */
+    synchronized FloorSet newStops(){
+        return spareCount > 0 ? spares[--spareCount] : new FloorSet(floorCapacity);
+    }
+
+    /**
+     * Hand back the floor set of a leg that is no longer travelled, to be
+     * given out again by newStops()
+     */
+    synchronized void recycle(FloorSet floors){
+        if(spareCount < spares.length){
+            floors.clear();
+            spares[spareCount++] = floors;
+        }
+    }
+
+    /**
+     * Remove a floor from every leg, dropping legs left without stops
+     */
+    synchronized void remove(int floor){
+        for(int i=count-1; i>=0; i--){
+            stops[i].remove(floor);
+            if(stops[i].isEmpty()){
+                FloorSet empty = stops[i];
+                System.arraycopy(directions, i + 1, directions, i, count - i - 1);
+                System.arraycopy(stops, i + 1, stops, i, count - i - 1);
+                count--;
+                directions[count] = null;
+                stops[count] = null;
+                recycle(empty);
+            }
+        }
+    }
+
+    synchronized void clear(){
+        while(count > 0){
+            recycle(removeFirst());
+        }
+    }
+
+    /**
+     * @return Independent copy of the legs and their stops, e.g. to plan on
+     */
+    synchronized PendingLegs copy(){
+        PendingLegs copy = new PendingLegs(floorCapacity);
+        for(int i=0; i<count; i++){
+            copy.directions[i] = directions[i];
+            copy.stops[i] = stops[i].copy();
+        }
+        copy.count = count;
+        return copy;
+    }
+}
@@ -0,0 +1,149 @@
+package elevator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives every elevator in real time on its own thread, and dispatches
+ * queued requests in batches on a single dispatcher thread. Idle elevators
+ * stay parked until they are woken. The thread of an elevator ends when it
+ * goes out of service, and a new one is started when it is woken back in
+ * service. Threads come from a ThreadFactory, so on
+ * JDK 21 and later they can be virtual threads, see virtualThreads().
+ * Close the driver to stop them.
+ */
+public final class RealTimeDriver implements ElevatorDriver, AutoCloseable {
+
+    private final ThreadFactory threadFactory;
+
+    // Thread of every elevator, interrupted by close()
+    private final ConcurrentMap<Elevator, Thread> workers = new ConcurrentHashMap<Elevator, Thread>();
+    private volatile boolean closed;
+
+    // Started with the first queued request
+    private volatile Thread dispatcher;
+
+    /**
+     * Drive every elevator on a platform thread of its own
+     */
+    public RealTimeDriver(){
+        this(Executors.defaultThreadFactory());
+    }
+
+    /**
+     * @param threadFactory Creates the thread of every elevator and the dispatcher thread
+     */
+    public RealTimeDriver(ThreadFactory threadFactory){
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Drive every elevator on a virtual thread of its own, so even tens of
+     * thousands of elevators only need a few carrier threads.
+     * @return Driver using virtual threads
+     * @throws UnsupportedOperationException before JDK 21
+     */
+    public static RealTimeDriver virtualThreads(){
+        try {
+            // Looked up at runtime, the build targets a JDK without virtual threads
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Object factory = Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            return new RealTimeDriver((ThreadFactory) factory);
+        } catch (ReflectiveOperationException e){
+            throw new UnsupportedOperationException("Virtual threads need JDK 21 or later", e);
+        }
+    }
+
+    @Override
+    public Clock getClock() {
+        return SystemClock.INSTANCE;
+    }
+
+    @Override
+    public void start(Elevator elevator) {
+        if(!startWorker(elevator)){
+            throw new IllegalStateException("Driver is closed");
+        }
+    }
+
+    @Override
+    public void wake(Elevator elevator) {
+        if(!elevator.wakeUp()){
+            // Back in service, its last thread ended when it went out
+            startWorker(elevator);
+        }
+    }
+
+    /**
+     * @return false if the driver is closed
+     */
+    private synchronized boolean startWorker(Elevator elevator){
+        if(closed){
+            return false;
+        }
+        Thread t = threadFactory.newThread(elevator);
+        t.setName("elevator-" + elevator.getId());
+        // Unless another wake() got there first, or it is still out of service
+        if(elevator.setWorker(t)){
+            workers.put(elevator, t);
+            t.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void requestsQueued(final ElevatorController controller) {
+        Thread t = dispatcher;
+        if(t == null){
+            synchronized (this){
+                t = dispatcher;
+                if(t == null && !closed){
+                    t = threadFactory.newThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            while(!Thread.currentThread().isInterrupted()){
+                                if(controller.dispatchQueuedRequests() == 0){
+                                    // Unparked by the next requestsQueued()
+                                    LockSupport.park(this);
+                                }
+                            }
+                        }
+                    });
+                    t.setName("elevator-dispatcher");
+                    if(!t.isDaemon()){
+                        t.setDaemon(true);
+                    }
+                    dispatcher = t;
+                    t.start();
+                    return;
+                }
+            }
+        }
+        if(t != null){
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Stop the thread of every elevator and the dispatcher thread. Elevators
+     * finish the step they are on and stand still wherever they are; requests
+     * queued and not dispatched yet stay queued. Does not wait for the
+     * threads to end.
+     */
+    @Override
+    public void close() {
+        synchronized (this){
+            closed = true;
+        }
+        for(Thread t : workers.values()){
+            t.interrupt();
+        }
+        Thread t = dispatcher;
+        if(t != null){
+            t.interrupt();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package elevator;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives every elevator in real time as a state machine on a small shared
+ * ScheduledExecutorService, rather than on a thread of its own. An elevator
+ * only has a task scheduled while it has somewhere to go, so idle elevators
+ * cost neither a thread nor CPU, and tens of thousands of elevators run on a
+ * handful of threads. Queued requests are dispatched on the same pool.
+ */
+public final class ScheduledDriver implements ElevatorDriver {
+
+    private final ScheduledExecutorService executor;
+
+    // Indexed by elevator id
+    private ElevatorTask[] tasks = new ElevatorTask[16];
+
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    /**
+     * @param threads Number of threads shared by all elevators
+     */
+    public ScheduledDriver(int threads){
+        this(Executors.newScheduledThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "elevator-scheduler-" + count.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        }));
+    }
+
+    /**
+     * @param executor Runs the elevators, shut it down to stop them
+     */
+    public ScheduledDriver(ScheduledExecutorService executor){
+        this.executor = executor;
+    }
+
+    @Override
+    public Clock getClock() {
+        return SystemClock.INSTANCE;
+    }
+
+    @Override
+    public void start(Elevator elevator) {
+        int id = elevator.getId();
+        if(id >= tasks.length){
+            tasks = Arrays.copyOf(tasks, Math.max(id + 1, tasks.length * 2));
+        }
+        tasks[id] = new ElevatorTask(elevator);
+    }
+
+    @Override
+    public void wake(Elevator elevator) {
+        tasks[elevator.getId()].wake();
+    }
+
+    @Override
+    public void requestsQueued(final ElevatorController controller) {
+        if(dispatching.compareAndSet(false, true)){
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    do {
+                        while(controller.dispatchQueuedRequests() > 0){
+                            // Keep going while there are full batches
+                        }
+                        dispatching.set(false);
+                        // Requests queued after the last batch but before we let go
+                    } while(controller.hasQueuedRequests() && dispatching.compareAndSet(false, true));
+                }
+            });
+        }
+    }
+
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Steps one elevator. At most one step of an elevator is scheduled or
+     * running at any time.
+     */
+    private final class ElevatorTask implements Runnable {
+        private static final int IDLE = 0;
+        private static final int SCHEDULED = 1;
+        private static final int RUNNING = 2;
+        // Woken while running, has to run again even if the step found nothing to do
+        private static final int RUNNING_WOKEN = 3;
+
+        private final Elevator elevator;
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+
+        ElevatorTask(Elevator elevator){
+            this.elevator = elevator;
+        }
+
+        void wake(){
+            while(true){
+                int current = state.get();
+                if(current == IDLE){
+                    if(state.compareAndSet(IDLE, SCHEDULED)){
+                        executor.execute(this);
+                        return;
+                    }
+                } else if(current == RUNNING){
+                    if(state.compareAndSet(RUNNING, RUNNING_WOKEN)){
+                        return;
+                    }
+                } else {
+                    // Already due to step, which drains the inbox
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            state.set(RUNNING);
+            long delay = elevator.isOperating() ? elevator.step() : Elevator.IDLE;
+            if(delay != Elevator.IDLE){
+                state.set(SCHEDULED);
+                executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+            } else if(!state.compareAndSet(RUNNING, IDLE)){
+                state.set(SCHEDULED);
+                executor.execute(this);
+            }
+        }
+    }
+}
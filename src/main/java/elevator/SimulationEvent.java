@@ -0,0 +1,73 @@
+package elevator;
+
+/**
+ * Something that happens at a point in virtual time: an elevator moving by
+ * one floor, a request being submitted, the controller re-evaluating its
+ * pending requests or dispatching its queued ones, or requests no elevator
+ * could take being tried again.
+ */
+final class SimulationEvent implements Comparable<SimulationEvent> {
+
+    enum Type {
+        TICK,
+        REQUEST,
+        REASSIGN,
+        INTAKE,
+        RETRY
+    }
+
+    private final Type type;
+    private final Elevator elevator;
+    private final ElevatorRequest request;
+
+    private long time;
+    private long sequence;
+    private boolean scheduled;
+
+    SimulationEvent(Type type, Elevator elevator, ElevatorRequest request){
+        this.type = type;
+        this.elevator = elevator;
+        this.request = request;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    Elevator getElevator() {
+        return elevator;
+    }
+
+    ElevatorRequest getRequest() {
+        return request;
+    }
+
+    long getTime() {
+        return time;
+    }
+
+    boolean isScheduled() {
+        return scheduled;
+    }
+
+    void schedule(long time, long sequence){
+        this.time = time;
+        this.sequence = sequence;
+        this.scheduled = true;
+    }
+
+    void fired(){
+        this.scheduled = false;
+    }
+
+    @Override
+    public int compareTo(SimulationEvent other) {
+        if(time != other.time){
+            return time < other.time ? -1 : 1;
+        }
+        if(sequence != other.sequence){
+            return sequence < other.sequence ? -1 : 1;
+        }
+        return 0;
+    }
+}
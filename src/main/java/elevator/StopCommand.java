@@ -0,0 +1,70 @@
+package elevator;
+
+/**
+ * A command posted by the ElevatorController to an elevator's inbox, asking
+ * it to stop at fromFloor and then at toFloor while travelling in the given
+ * direction. Both floors are always served on the same leg, so a passenger
+ * is never dropped off before being picked up. A single stop has
+ * fromFloor == toFloor.
+ * A cancel command instead tells the elevator that its request has been
+ * handed over to another elevator, and an onboard command that a request
+ * restored by FleetStore is already on board, only to be dropped off.
+ */
+final class StopCommand {
+    private final ElevatorState direction;
+    private final int fromFloor;
+    private final int toFloor;
+
+    // Request the stops are for, null if they are not for a request
+    private final ElevatorRequest request;
+    private final boolean cancel;
+    private final boolean onboard;
+
+    StopCommand(ElevatorState direction, int fromFloor, int toFloor, ElevatorRequest request){
+        this(direction, fromFloor, toFloor, request, false, false);
+    }
+
+    private StopCommand(ElevatorState direction, int fromFloor, int toFloor, ElevatorRequest request,
+                        boolean cancel, boolean onboard){
+        this.direction = direction;
+        this.fromFloor = fromFloor;
+        this.toFloor = toFloor;
+        this.request = request;
+        this.cancel = cancel;
+        this.onboard = onboard;
+    }
+
+    static StopCommand cancel(ElevatorRequest request){
+        return new StopCommand(request.getDirection(), request.getRequestFloor(), request.getTargetFloor(), request,
+                true, false);
+    }
+
+    static StopCommand onboard(ElevatorRequest request){
+        return new StopCommand(request.getDirection(), request.getTargetFloor(), request.getTargetFloor(), request,
+                false, true);
+    }
+
+    public ElevatorState getDirection() {
+        return direction;
+    }
+
+    public int getFromFloor() {
+        return fromFloor;
+    }
+
+    public int getToFloor() {
+        return toFloor;
+    }
+
+    public ElevatorRequest getRequest() {
+        return request;
+    }
+
+    public boolean isCancel() {
+        return cancel;
+    }
+
+    public boolean isOnboard() {
+        return onboard;
+    }
+}
@@ -0,0 +1,17 @@
+package elevator;
+
+/**
+ * Clock backed by the wall clock of the JVM
+ */
+public final class SystemClock implements Clock {
+
+    public static final SystemClock INSTANCE = new SystemClock();
+
+    private SystemClock(){
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,139 @@
+package elevator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic traffic as a TrafficTrace. Requests arrive as a Poisson
+ * process, i.e. with exponentially distributed gaps, and their floors follow
+ * one of the classic office building patterns, or per floor arrival rates.
+ * The lobby is the lowest floor. The same seed always gives the same trace.
+ */
+public final class TrafficGenerator {
+
+    public enum Pattern {
+        // Morning: nearly everyone arrives at the lobby and goes up
+        UP_PEAK(0.85, 0.05),
+        // Lunch: as many going out as coming back, some between floors
+        LUNCH(0.4, 0.4),
+        // Evening: nearly everyone heads down to the lobby
+        DOWN_PEAK(0.05, 0.85),
+        // Between any two floors
+        INTERFLOOR(0, 0);
+
+        // Shares of requests from and to the lobby, the rest go between other floors
+        private final double fromLobby;
+        private final double toLobby;
+
+        Pattern(double fromLobby, double toLobby){
+            this.fromLobby = fromLobby;
+            this.toLobby = toLobby;
+        }
+    }
+
+    private final BuildingConfig building;
+    private final SplittableRandom random;
+
+    /**
+     * @param building Floors to generate requests between, at least two
+     * @param seed
+     */
+    public TrafficGenerator(BuildingConfig building, long seed){
+        if(building.getHighestFloor() == building.getLowestFloor()){
+            throw new IllegalArgumentException("Traffic needs at least two floors, got " + building);
+        }
+        this.building = building;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @param pattern Where requests come from and go to
+     * @param requestsPerMinute Average arrival rate over the whole building
+     * @param durationMillis Requests arrive from time 0 until this time
+     * @return Generated trace
+     */
+    public TrafficTrace generate(Pattern pattern, double requestsPerMinute, long durationMillis){
+        TrafficTrace trace = new TrafficTrace();
+        int lobby = building.getLowestFloor();
+        double meanGapMillis = 60000 / requestsPerMinute;
+        double time = nextGap(meanGapMillis);
+        while(time < durationMillis){
+            double kind = random.nextDouble();
+            int from;
+            int to;
+            if(kind < pattern.fromLobby){
+                from = lobby;
+                to = randomFloor(lobby + 1, lobby);
+            } else if(kind < pattern.fromLobby + pattern.toLobby){
+                from = randomFloor(lobby + 1, lobby);
+                to = lobby;
+            } else if(pattern == Pattern.INTERFLOOR || building.getHighestFloor() - lobby < 2){
+                from = randomFloor(lobby, -1);
+                to = randomFloor(lobby, from);
+            } else {
+                // Between upper floors only, the lobby is accounted for above
+                from = randomFloor(lobby + 1, -1);
+                to = randomFloor(lobby + 1, from);
+            }
+            trace.add((long) time, from, to);
+            time += nextGap(meanGapMillis);
+        }
+        return trace;
+    }
+
+    /**
+     * Requests arrive at every floor as an independent Poisson process, and go
+     * to any other floor with equal probability
+     * @param requestsPerMinute Arrival rate indexed by floor, floors outside the building must be 0
+     * @param durationMillis Requests arrive from time 0 until this time
+     * @return Generated trace
+     */
+    public TrafficTrace poisson(double[] requestsPerMinute, long durationMillis){
+        double total = 0;
+        for(int floor=0; floor<requestsPerMinute.length; floor++){
+            if(requestsPerMinute[floor] < 0
+                    || (requestsPerMinute[floor] > 0 && !building.hasFloor(floor))){
+                throw new IllegalArgumentException("Invalid rate " + requestsPerMinute[floor] + " for floor " + floor);
+            }
+            total += requestsPerMinute[floor];
+        }
+
+        // The merged arrivals are a Poisson process of the total rate, and
+        // every arrival is at a floor with probability proportional to its rate
+        TrafficTrace trace = new TrafficTrace();
+        if(total == 0){
+            return trace;
+        }
+        double meanGapMillis = 60000 / total;
+        double time = nextGap(meanGapMillis);
+        while(time < durationMillis){
+            double pick = random.nextDouble() * total;
+            int from = 0;
+            while(from < requestsPerMinute.length - 1 && (pick -= requestsPerMinute[from]) >= 0){
+                from++;
+            }
+            while(requestsPerMinute[from] == 0){
+                // Rounding left us past the last floor with arrivals
+                from--;
+            }
+            trace.add((long) time, from, randomFloor(building.getLowestFloor(), from));
+            time += nextGap(meanGapMillis);
+        }
+        return trace;
+    }
+
+    private double nextGap(double meanGapMillis){
+        return -Math.log(1 - random.nextDouble()) * meanGapMillis;
+    }
+
+    /**
+     * @return Random floor from lowest to the top of the building, other than excluded
+     */
+    private int randomFloor(int lowest, int excluded){
+        int highest = building.getHighestFloor();
+        if(excluded < lowest || excluded > highest){
+            return lowest + random.nextInt(highest - lowest + 1);
+        }
+        int floor = lowest + random.nextInt(highest - lowest);
+        return floor >= excluded ? floor + 1 : floor;
+    }
+}
@@ -0,0 +1,136 @@
+package elevator;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Runs synthetic or recorded traffic through the simulator and prints how
+ * the fleet coped. The building is configured as for the real-time system,
+ * see BuildingConfig.fromSystemProperties(). Arguments are key=value:
+ * <pre>
+ * pattern=up-peak|lunch|down-peak|interfloor  (default up-peak)
+ * rate=60          requests per minute
+ * minutes=30       how long requests keep arriving
+ * seed=1
+ * trace=file       replay a recorded trace instead of generating one
+ * save=file        write the generated trace, to replay it later
+ * strategy=nearest|eta
+ * mode=conventional|destination|both
+ *                  destination dispatch groups requests by target floor,
+ *                  both replays the traffic in either mode to compare them
+ * window=3         most floors between target floors of a group
+ * parking=none|demand  where idle elevators wait, see DemandParkingPolicy
+ * </pre>
+ */
+public class TrafficMain {
+
+    public static void main(String[] args) throws IOException {
+        String pattern = "up-peak";
+        double rate = 60;
+        long minutes = 30;
+        long seed = 1;
+        String traceFile = null;
+        String saveFile = null;
+        String strategy = "nearest";
+        String mode = "conventional";
+        int window = DestinationDispatchStrategy.DEFAULT_DESTINATION_WINDOW;
+        String parking = "none";
+
+        for(String arg : args){
+            int split = arg.indexOf('=');
+            if(split < 0){
+                usage("Expected key=value, got " + arg);
+                return;
+            }
+            String key = arg.substring(0, split);
+            String value = arg.substring(split + 1);
+            if("pattern".equals(key)){
+                pattern = value;
+            } else if("rate".equals(key)){
+                rate = Double.parseDouble(value);
+            } else if("minutes".equals(key)){
+                minutes = Long.parseLong(value);
+            } else if("seed".equals(key)){
+                seed = Long.parseLong(value);
+            } else if("trace".equals(key)){
+                traceFile = value;
+            } else if("save".equals(key)){
+                saveFile = value;
+            } else if("strategy".equals(key)){
+                strategy = value;
+            } else if("mode".equals(key)){
+                mode = value;
+            } else if("window".equals(key)){
+                window = Integer.parseInt(value);
+            } else if("parking".equals(key)){
+                parking = value;
+            } else {
+                usage("Unknown argument " + key);
+                return;
+            }
+        }
+
+        BuildingConfig building = BuildingConfig.fromSystemProperties();
+        TrafficTrace trace;
+        if(traceFile != null){
+            trace = TrafficTrace.read(Paths.get(traceFile));
+        } else {
+            TrafficGenerator.Pattern trafficPattern =
+                    TrafficGenerator.Pattern.valueOf(pattern.toUpperCase(Locale.ROOT).replace('-', '_'));
+            trace = new TrafficGenerator(building, seed).generate(trafficPattern, rate, minutes * 60000);
+            if(saveFile != null){
+                trace.write(Paths.get(saveFile));
+            }
+        }
+
+        DispatchStrategy dispatchStrategy;
+        if("eta".equals(strategy)){
+            dispatchStrategy = new EtaDispatchStrategy();
+        } else if("nearest".equals(strategy)){
+            dispatchStrategy = new NearestElevatorStrategy();
+        } else {
+            usage("Unknown strategy " + strategy);
+            return;
+        }
+
+        ParkingPolicy parkingPolicy;
+        try {
+            parkingPolicy = ElevatorController.createParkingPolicy(parking);
+        } catch (IllegalArgumentException e){
+            usage(e.getMessage());
+            return;
+        }
+
+        boolean conventional = "conventional".equals(mode) || "both".equals(mode);
+        boolean destination = "destination".equals(mode) || "both".equals(mode);
+        if(!conventional && !destination){
+            usage("Unknown mode " + mode);
+            return;
+        }
+
+        System.out.println(building + ", " + (traceFile != null ? traceFile : pattern) + ", " + strategy
+                + ", parking " + parking);
+        if(conventional){
+            DiscreteEventSimulator simulator = new DiscreteEventSimulator(building);
+            simulator.getController().setDispatchStrategy(dispatchStrategy);
+            simulator.getController().setParkingPolicy(parkingPolicy);
+            System.out.println("conventional dispatch");
+            System.out.println(trace.replay(simulator));
+        }
+        if(destination){
+            DiscreteEventSimulator simulator = new DiscreteEventSimulator(building);
+            simulator.getController().setDispatchStrategy(new DestinationDispatchStrategy(dispatchStrategy, window));
+            simulator.getController().setParkingPolicy(parkingPolicy);
+            System.out.println("destination dispatch, window " + window);
+            System.out.println(trace.replay(simulator));
+        }
+    }
+
+    private static void usage(String error){
+        System.err.println(error);
+        System.err.println("Usage: TrafficMain [pattern=up-peak|lunch|down-peak|interfloor] [rate=60] [minutes=30]"
+                + " [seed=1] [trace=file] [save=file] [strategy=nearest|eta]"
+                + " [mode=conventional|destination|both] [window=3] [parking=none|demand]");
+    }
+}
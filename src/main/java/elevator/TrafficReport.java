@@ -0,0 +1,123 @@
+package elevator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of replaying a TrafficTrace: how many requests were served and how
+ * fast, and how long people waited and rode. Requests never served count as
+ * having waited until the end of the run, so leaving people behind never
+ * makes waits look shorter.
+ */
+public final class TrafficReport {
+
+    private final int requests;
+    private final MetricsSnapshot metrics;
+    private final int unserved;
+    private final LatencyHistogram.Snapshot waitMillis;
+
+    /**
+     * @param censoredWaits How long every request never served waited until the end
+     */
+    TrafficReport(int requests, MetricsSnapshot metrics, long[] censoredWaits){
+        this.requests = requests;
+        this.metrics = metrics;
+        this.unserved = censoredWaits.length;
+        LatencyHistogram censored = new LatencyHistogram(ElevatorMetrics.MAX_TRACKED_MILLIS);
+        for(long wait : censoredWaits){
+            censored.record(wait);
+        }
+        this.waitMillis = metrics.getWaitMillis().merge(censored.snapshot());
+    }
+
+    /**
+     * @return Requests in the trace
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return Requests taken to their target floor
+     */
+    public long getDelivered() {
+        return metrics.getRequestsDroppedOff();
+    }
+
+    /**
+     * @return Requests no elevator could serve when they arrived, whether
+     * one could later or not
+     */
+    public long getUnassigned() {
+        return metrics.getRequestsUnassigned();
+    }
+
+    /**
+     * @return Requests no elevator ever took
+     */
+    public int getUnserved() {
+        return unserved;
+    }
+
+    /**
+     * @return Virtual time from the start until the last elevator went idle
+     */
+    public long getSimulatedMillis() {
+        return metrics.getElapsedMillis();
+    }
+
+    /**
+     * @return Requests delivered per minute of simulated time
+     */
+    public double getThroughputPerMinute() {
+        long millis = getSimulatedMillis();
+        return millis == 0 ? 0 : (double) getDelivered() * TimeUnit.MINUTES.toMillis(1) / millis;
+    }
+
+    /**
+     * @return Handling capacity: requests delivered during the busiest five minutes of simulated time
+     */
+    public double getPassengersPerFiveMinutes() {
+        return metrics.getPassengersPerFiveMinutes();
+    }
+
+    /**
+     * @return Stops to let someone on or off per leg travelled
+     */
+    public double getStopsPerTrip() {
+        return metrics.getStopsPerTrip();
+    }
+
+    /**
+     * @return Time from arrival to pickup, or to the end for requests never served
+     */
+    public LatencyHistogram.Snapshot getWaitMillis() {
+        return waitMillis;
+    }
+
+    /**
+     * @return Time from pickup to drop-off
+     */
+    public LatencyHistogram.Snapshot getRideMillis() {
+        return metrics.getRideMillis();
+    }
+
+    /**
+     * @return Everything the controller recorded during the run
+     */
+    public MetricsSnapshot getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString(){
+        LatencyHistogram.Snapshot wait = getWaitMillis();
+        return "requests=" + requests + " delivered=" + getDelivered() + " unassigned=" + getUnassigned()
+                + " unserved=" + unserved
+                + " simulated=" + getSimulatedMillis() + "ms"
+                + String.format(" throughput=%.1f/min handling capacity=%.1f/5min stops per trip=%.2f",
+                        getThroughputPerMinute(), getPassengersPerFiveMinutes(), getStopsPerTrip())
+                + "\nwait ms: " + wait + String.format(" mean=%.0f", wait.getMean())
+                + "\nride ms: " + getRideMillis()
+                + String.format("\nmean utilization=%.1f%%", 100 * metrics.getMeanUtilization());
+    }
+}
@@ -0,0 +1,146 @@
+package elevator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Requests to replay in virtual time: when each arrives, where from and where
+ * to. Generated by TrafficGenerator or read from a file of recorded traffic,
+ * one request per line:
+ * <pre>
+ * # time_millis,request_floor,target_floor
+ * 1200,0,7
+ * 1850,5,0
+ * </pre>
+ * Lines starting with # are ignored.
+ */
+public final class TrafficTrace {
+
+    private long[] times = new long[64];
+    private int[] requestFloors = new int[64];
+    private int[] targetFloors = new int[64];
+    private int size;
+
+    /**
+     * @param atMillis Virtual time the request arrives at, 0 or later
+     * @param requestFloor
+     * @param targetFloor
+     * @return This trace
+     */
+    public TrafficTrace add(long atMillis, int requestFloor, int targetFloor){
+        if(atMillis < 0){
+            throw new IllegalArgumentException("Request at " + atMillis + " is before the simulation starts");
+        }
+        if(size == times.length){
+            times = Arrays.copyOf(times, size * 2);
+            requestFloors = Arrays.copyOf(requestFloors, size * 2);
+            targetFloors = Arrays.copyOf(targetFloors, size * 2);
+        }
+        times[size] = atMillis;
+        requestFloors[size] = requestFloor;
+        targetFloors[size] = targetFloor;
+        size++;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTime(int i) {
+        return times[i];
+    }
+
+    public int getRequestFloor(int i) {
+        return requestFloors[i];
+    }
+
+    public int getTargetFloor(int i) {
+        return targetFloors[i];
+    }
+
+    /**
+     * Submit every request to the simulator, run it until every request has
+     * been served, and report how it went. Requests no elevator could take
+     * when they arrived are tried again until one does; any that none ever
+     * could are reported as unserved, having waited until the end. The
+     * simulator must not have run yet.
+     * @param simulator Configured as wanted, e.g. with a dispatch strategy
+     * @return Throughput and waiting times
+     * @throws IllegalArgumentException if a floor does not exist in the simulated building
+     */
+    public TrafficReport replay(DiscreteEventSimulator simulator){
+        BuildingConfig building = simulator.getController().getBuildingConfig();
+        for(int i=0; i<size; i++){
+            if(!building.hasFloor(requestFloors[i]) || !building.hasFloor(targetFloors[i])){
+                throw new IllegalArgumentException("Request " + i + " from floor " + requestFloors[i] + " to "
+                        + targetFloors[i] + " does not fit " + building);
+            }
+        }
+        for(int i=0; i<size; i++){
+            simulator.submit(times[i], new ElevatorRequest(requestFloors[i], targetFloors[i]));
+        }
+        simulator.run();
+
+        long now = simulator.getClock().currentTimeMillis();
+        List<ElevatorRequest> unserved = simulator.getUnassignedRequests();
+        long[] censoredWaits = new long[unserved.size()];
+        for(int i=0; i<censoredWaits.length; i++){
+            censoredWaits[i] = now - unserved.get(i).getSubmittedMillis();
+        }
+        return new TrafficReport(size, simulator.getController().getMetrics().snapshot(), censoredWaits);
+    }
+
+    /**
+     * @param file As described by the class documentation
+     * @return Trace read from the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is invalid
+     */
+    public static TrafficTrace read(Path file) throws IOException {
+        TrafficTrace trace = new TrafficTrace();
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+            String line;
+            int lineNumber = 0;
+            while((line = reader.readLine()) != null){
+                lineNumber++;
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")){
+                    continue;
+                }
+                String[] fields = line.split("\\s*,\\s*");
+                if(fields.length != 3){
+                    throw new IllegalArgumentException(file + ":" + lineNumber + " expected time,from,to, got " + line);
+                }
+                try {
+                    trace.add(Long.parseLong(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+                } catch (NumberFormatException e){
+                    throw new IllegalArgumentException(file + ":" + lineNumber + " invalid number in " + line, e);
+                }
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * Write the trace so read() can load it again
+     * @param file Overwritten if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)){
+            writer.write("# time_millis,request_floor,target_floor");
+            writer.newLine();
+            for(int i=0; i<size; i++){
+                writer.write(times[i] + "," + requestFloors[i] + "," + targetFloors[i]);
+                writer.newLine();
+            }
+        }
+    }
+}
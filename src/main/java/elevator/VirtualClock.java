@@ -0,0 +1,26 @@
+package elevator;
+
+/**
+ * Clock that only moves when it is told to. Used by the DiscreteEventSimulator
+ * to jump straight from one event to the next.
+ */
+public final class VirtualClock implements Clock {
+
+    private long now;
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * Move the clock forward
+     * @param millis New time, must not be before the current time
+     */
+    void advanceTo(long millis){
+        if(millis < now){
+            throw new IllegalArgumentException("Cannot move clock back from " + now + " to " + millis);
+        }
+        now = millis;
+    }
+}
@@ -0,0 +1,83 @@
+package elevator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class AsyncIntakeTest {
+
+    private DiscreteEventSimulator simulator;
+    private ElevatorController controller;
+
+    @Before
+    public void setUp() throws Exception {
+        simulator = new DiscreteEventSimulator(16);
+        controller = simulator.getController();
+    }
+
+    @Test
+    public void testBatchSharesElevator() throws Exception {
+        // Spread the elevators out so every request would find a different nearest one
+        for(Elevator elevator : controller.getElevatorList()){
+            elevator.setCurrentFloor(elevator.getId());
+            controller.updateElevatorLists(elevator);
+        }
+
+        CompletableFuture<Elevator> first = controller.submitAsync(new ElevatorRequest(5, 10));
+        CompletableFuture<Elevator> second = controller.submitAsync(new ElevatorRequest(5, 12));
+        CompletableFuture<Elevator> down = controller.submitAsync(new ElevatorRequest(5, 0));
+        assertFalse(first.isDone());
+
+        simulator.runUntil(0);
+        assertTrue(first.isDone());
+        assertEquals(5, first.get().getCurrentFloor());
+        assertSame(first.get(), second.get());
+        assertNotNull(down.get());
+    }
+
+    @Test
+    public void testRequestsAreServed() throws Exception {
+        ElevatorRequest request = new ElevatorRequest(3, 7);
+        CompletableFuture<Elevator> future = controller.submitAsync(request);
+        simulator.run();
+        assertSame(request.getElevator(), future.get());
+        assertTrue(request.isDroppedOff());
+        assertEquals(7, future.get().getCurrentFloor());
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        int capacity = ElevatorController.DEFAULT_INTAKE_CAPACITY;
+        for(int i=0; i<capacity; i++){
+            assertFalse(controller.submitAsync(new ElevatorRequest(0, 1)).isDone());
+        }
+
+        CompletableFuture<Elevator> rejected = controller.submitAsync(new ElevatorRequest(0, 1));
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e){
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1, controller.getRejectedRequests());
+        // Shed requests are neither submitted nor demand
+        assertEquals(capacity, controller.getMetrics().snapshot().getRequestsSubmitted());
+        assertEquals(capacity, controller.getDemand().demand(0, 0), 0.001);
+
+        // Room again once the queue has been drained
+        simulator.runUntil(0);
+        assertTrue(controller.submitAsync(new ElevatorRequest(0, 1)) != null);
+        assertEquals(1, controller.getRejectedRequests());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNegativeFloors() throws Exception {
+        controller.submitAsync(new ElevatorRequest(-1, 1));
+    }
+}
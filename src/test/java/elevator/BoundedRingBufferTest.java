@@ -0,0 +1,75 @@
+package elevator;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BoundedRingBufferTest {
+
+    @Test
+    public void testRejectsWhenFull() throws Exception {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<Integer>(3);
+        assertEquals(4, buffer.capacity());
+        for(int i=0; i<4; i++){
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        Integer[] drained = new Integer[2];
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertEquals(Integer.valueOf(0), drained[0]);
+        assertEquals(Integer.valueOf(1), drained[1]);
+        assertTrue(buffer.offer(4));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<Integer>(64);
+        final int producers = 4;
+        final int perProducer = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger rejected = new AtomicInteger();
+
+        Thread[] threads = new Thread[producers];
+        for(int p=0; p<producers; p++){
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(int i=0; i<perProducer; i++){
+                        while(!buffer.offer(i)){
+                            rejected.incrementAndGet();
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        start.countDown();
+        long sum = 0;
+        int received = 0;
+        Integer[] drained = new Integer[16];
+        while(received < producers * perProducer){
+            int count = buffer.drainTo(drained, drained.length);
+            for(int i=0; i<count; i++){
+                sum += drained[i];
+            }
+            received += count;
+        }
+
+        for(Thread t : threads){
+            t.join();
+        }
+        assertTrue(buffer.isEmpty());
+        assertEquals((long) producers * perProducer * (perProducer - 1) / 2, sum);
+    }
+}
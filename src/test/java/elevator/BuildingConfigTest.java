@@ -0,0 +1,187 @@
+package elevator;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class BuildingConfigTest {
+
+    @Test
+    public void testDefaults() throws Exception {
+        BuildingConfig config = BuildingConfig.defaults();
+        assertEquals(16, config.getNumberOfElevators());
+        assertEquals(12, config.getCapacity());
+        assertEquals(0, config.getLowestFloor());
+        assertEquals(15, config.getHighestFloor());
+        assertTrue(config.serves(15, 15));
+        assertFalse(config.hasFloor(16));
+    }
+
+    @Test
+    public void testFromProperties() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("elevator.cars", "32");
+        properties.setProperty("elevator.capacity", "20");
+        properties.setProperty("elevator.floors", "0-60");
+        properties.setProperty("elevator.zones", "low, high");
+        properties.setProperty("elevator.zone.low.cars", "0-15");
+        properties.setProperty("elevator.zone.low.floors", "0-30");
+        properties.setProperty("elevator.zone.high.cars", "16-30");
+        properties.setProperty("elevator.zone.high.floors", "0,31-60");
+
+        BuildingConfig config = BuildingConfig.fromProperties(properties);
+        assertEquals(32, config.getNumberOfElevators());
+        assertEquals(20, config.getCapacity());
+        assertEquals(60, config.getHighestFloor());
+        assertTrue(config.serves(0, 30));
+        assertFalse(config.serves(0, 31));
+        assertTrue(config.serves(16, 0));
+        assertFalse(config.serves(16, 30));
+        assertTrue(config.serves(16, 60));
+        // Not in any zone
+        assertTrue(config.serves(31, 45));
+    }
+
+    @Test
+    public void testBuildingsFromProperties() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("elevator.buildings", "north, south");
+        properties.setProperty("elevator.building.north.cars", "8");
+        properties.setProperty("elevator.building.north.floors", "0-30");
+        properties.setProperty("elevator.building.south.cars", "4");
+        // Keys of a single building are ignored
+        properties.setProperty("elevator.cars", "32");
+
+        List<BuildingConfig> buildings = BuildingConfig.buildingsFromProperties(properties);
+        assertEquals(2, buildings.size());
+        assertEquals("north", buildings.get(0).getId());
+        assertEquals(8, buildings.get(0).getNumberOfElevators());
+        assertEquals(30, buildings.get(0).getHighestFloor());
+        assertEquals("south", buildings.get(1).getId());
+        assertEquals(4, buildings.get(1).getNumberOfElevators());
+
+        properties.remove("elevator.buildings");
+        buildings = BuildingConfig.buildingsFromProperties(properties);
+        assertEquals(1, buildings.size());
+        assertEquals(BuildingConfig.DEFAULT_ID, buildings.get(0).getId());
+        assertEquals(32, buildings.get(0).getNumberOfElevators());
+    }
+
+    @Test
+    public void testMotionFromProperties() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("elevator.cars", "8");
+        properties.setProperty("elevator.floors", "0-40");
+        properties.setProperty("elevator.motion.speed", "2.5");
+        properties.setProperty("elevator.motion.dwell", "4000");
+        properties.setProperty("elevator.zones", "low, high");
+        properties.setProperty("elevator.zone.low.cars", "0-3");
+        properties.setProperty("elevator.zone.low.floors", "0-20");
+        properties.setProperty("elevator.zone.high.cars", "4-7");
+        properties.setProperty("elevator.zone.high.floors", "0,21-40");
+        properties.setProperty("elevator.zone.high.motion.speed", "6");
+
+        BuildingConfig config = BuildingConfig.fromProperties(properties);
+        MotionProfile low = config.getMotionProfile(3);
+        MotionProfile high = config.getMotionProfile(4);
+        assertEquals(2.5, low.getSpeed(), 0);
+        assertEquals(4000, low.getDwellMillis());
+        // The zone only overrides speed
+        assertEquals(6, high.getSpeed(), 0);
+        assertEquals(4000, high.getDwellMillis());
+
+        assertSame(MotionProfile.UNIFORM, BuildingConfig.defaults().getMotionProfile(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMotionProfileOutsideFleet() throws Exception {
+        BuildingConfig.builder().elevators(4).motionProfile(2, 4, MotionProfile.builder().build()).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZoneOutsideBuilding() throws Exception {
+        BuildingConfig.builder().elevators(4).floors(0, 20).zone("sky", 0, 1, 10, 30).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverlappingZones() throws Exception {
+        BuildingConfig.builder().elevators(4).zone("a", 0, 2, "0-5").zone("b", 2, 3, "5-10").build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingZoneFloors() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("elevator.zones", "low");
+        properties.setProperty("elevator.zone.low.cars", "0-3");
+        BuildingConfig.fromProperties(properties);
+    }
+
+    @Test
+    public void testDispatchRespectsZones() throws Exception {
+        // Elevators 0 and 1 only go up to floor 20, 2 and 3 are express to 21-40
+        BuildingConfig config = BuildingConfig.builder().elevators(4).floors(0, 40)
+                .zone("low", 0, 1, 0, 20)
+                .zone("high", 2, 3, "0,21-40")
+                .build();
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(config);
+        ElevatorController controller = simulator.getController();
+
+        ElevatorRequest high = new ElevatorRequest(0, 35);
+        simulator.submit(0, high);
+        ElevatorRequest low = new ElevatorRequest(10, 2);
+        simulator.submit(0, low);
+        simulator.run();
+
+        assertTrue(high.getElevator().getId() >= 2);
+        assertTrue(high.isDroppedOff());
+        assertTrue(low.getElevator().getId() <= 1);
+        assertTrue(low.isDroppedOff());
+
+        // Nobody serves floor 10 and floor 30
+        assertNull(controller.selectElevator(new ElevatorRequest(10, 30)));
+
+        controller.setDispatchStrategy(new EtaDispatchStrategy());
+        assertNull(controller.selectElevator(new ElevatorRequest(30, 10)));
+        assertTrue(controller.selectElevator(new ElevatorRequest(30, 0)).getId() >= 2);
+    }
+
+    @Test
+    public void testDispatchSkipsFullElevators() throws Exception {
+        BuildingConfig config = BuildingConfig.builder().elevators(2).capacity(2).build();
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(config);
+        ElevatorController controller = simulator.getController();
+        Elevator first = controller.getElevatorList().get(0);
+        Elevator second = controller.getElevatorList().get(1);
+        second.setCurrentFloor(15);
+        controller.updateElevatorLists(second);
+
+        ElevatorRequest[] requests = {new ElevatorRequest(0, 5), new ElevatorRequest(0, 6),
+                new ElevatorRequest(0, 7), new ElevatorRequest(0, 8)};
+        assertSame(first, controller.selectElevator(requests[0]));
+        assertSame(first, controller.selectElevator(requests[1]));
+        assertTrue(first.isFull());
+        // Far away, but the only one with room
+        assertSame(second, controller.selectElevator(requests[2]));
+        assertEquals(1, second.getLoad());
+
+        controller.setDispatchStrategy(new EtaDispatchStrategy());
+        assertSame(second, controller.selectElevator(requests[3]));
+        assertNull(controller.selectElevator(new ElevatorRequest(0, 9)));
+
+        simulator.run();
+        for(ElevatorRequest request : requests){
+            assertTrue(request.isDroppedOff());
+        }
+        assertEquals(0, first.getLoad());
+        assertEquals(0, second.getLoad());
+        assertNotNull(controller.selectElevator(new ElevatorRequest(0, 9)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsFloorsOutsideBuilding() throws Exception {
+        new DiscreteEventSimulator(4).getController().selectElevator(new ElevatorRequest(0, 16));
+    }
+}
@@ -0,0 +1,63 @@
+package elevator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CarStateTest {
+
+    @Test
+    public void testPackAndUnpack() throws Exception {
+        long packed = CarState.pack(CarState.MAX_FLOOR, ElevatorState.MAINTAINANCE, 12, 0);
+        assertEquals(CarState.MAX_FLOOR, CarState.floor(packed));
+        assertEquals(ElevatorState.MAINTAINANCE, CarState.state(packed));
+        assertEquals(12, CarState.load(packed));
+        assertEquals(0, CarState.nextStop(packed));
+
+        packed = CarState.pack(0, ElevatorState.UP, 0, -1);
+        assertEquals(0, CarState.floor(packed));
+        assertEquals(ElevatorState.UP, CarState.state(packed));
+        assertEquals(0, CarState.load(packed));
+        assertEquals(-1, CarState.nextStop(packed));
+    }
+
+    @Test
+    public void testPublishedEveryStep() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(2);
+        ElevatorController controller = simulator.getController();
+        Elevator elevator = controller.getElevatorList().get(0);
+        Elevator other = controller.getElevatorList().get(1);
+        other.setCurrentFloor(15);
+        controller.updateElevatorLists(other);
+
+        long packed = elevator.getState();
+        assertEquals(0, CarState.floor(packed));
+        assertEquals(ElevatorState.STATIONARY, CarState.state(packed));
+        assertEquals(-1, CarState.nextStop(packed));
+
+        // Picked up at 0 straight away, at floor 4 after 4 seconds
+        simulator.submit(0, new ElevatorRequest(0, 6));
+        simulator.runUntil(4000);
+        packed = elevator.getState();
+        assertEquals(4, CarState.floor(packed));
+        assertEquals(ElevatorState.UP, CarState.state(packed));
+        assertEquals(1, CarState.load(packed));
+        // Floor 5 is only passed by
+        assertEquals(6, CarState.nextStop(packed));
+
+        simulator.run();
+        long[] states = controller.snapshotCarStates();
+        assertEquals(2, states.length);
+        assertEquals(6, CarState.floor(states[0]));
+        assertEquals(ElevatorState.STATIONARY, CarState.state(states[0]));
+        assertEquals(0, CarState.load(states[0]));
+        assertEquals(-1, CarState.nextStop(states[0]));
+        assertEquals(elevator.getState(), states[0]);
+        assertEquals(CarState.pack(15, ElevatorState.STATIONARY, 0, -1), states[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFloorsMustFit() throws Exception {
+        BuildingConfig.builder().floors(0, CarState.MAX_FLOOR + 1);
+    }
+}
@@ -0,0 +1,84 @@
+package elevator;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DemandParkingPolicyTest {
+
+    private final BuildingConfig building = BuildingConfig.builder().elevators(2).floors(0, 15).build();
+
+    @Test
+    public void testDemandDecays() throws Exception {
+        long halfLife = TimeUnit.HOURS.toMillis(1);
+        long day = TimeUnit.DAYS.toMillis(1);
+        // A single slot for the whole day
+        DemandHistogram histogram = new DemandHistogram(building, day, halfLife);
+        histogram.record(3, 0);
+        histogram.record(3, 0);
+        assertEquals(2.0, histogram.demand(3, 0), 1e-9);
+        assertEquals(1.0, histogram.demand(3, halfLife), 1e-9);
+        assertEquals(0.0, histogram.demand(4, 0), 1e-9);
+
+        // A day later, hardly anything left
+        histogram.record(3, day);
+        assertEquals(1.0, histogram.demand(3, day), 1e-6);
+        // Long enough for the weights to be rescaled
+        histogram.record(3, 400 * day);
+        assertEquals(1.0, histogram.demand(3, 400 * day), 1e-9);
+    }
+
+    @Test
+    public void testDemandByTimeOfDay() throws Exception {
+        DemandHistogram histogram = new DemandHistogram(building);
+        long slot = histogram.getSlotMillis();
+        histogram.record(5, 2 * slot);
+        assertEquals(0.0, histogram.demand(5, 0), 1e-9);
+        assertEquals(1.0, histogram.demand(5, 2 * slot), 1e-6);
+
+        // The slot before counts what is coming next
+        double[] expected = histogram.expectedDemand(slot, new double[16]);
+        assertEquals(1.0, expected[5], 0.01);
+        expected = histogram.expectedDemand(2 * slot, new double[16]);
+        assertEquals(1.0, expected[5], 1e-6);
+        expected = histogram.expectedDemand(3 * slot, new double[16]);
+        assertEquals(0.0, expected[5], 1e-9);
+    }
+
+    @Test
+    public void testParksWhereRequestsComeFrom() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(building);
+        ElevatorController controller = simulator.getController();
+        controller.setParkingPolicy(new DemandParkingPolicy());
+
+        ElevatorRequest first = new ElevatorRequest(10, 0);
+        simulator.submit(0, first);
+        simulator.run();
+        Elevator elevator = first.getElevator();
+        Elevator other = controller.getElevatorList().get(1 - elevator.getId());
+        // Dropped off at 0, then back to 10 to wait
+        assertEquals(10, elevator.getCurrentFloor());
+        assertEquals(ElevatorState.STATIONARY, elevator.getElevatorState());
+        assertEquals(0, other.getCurrentFloor());
+        // Floor 10 is taken care of, nowhere else has any demand
+        assertEquals(0, controller.parkIdleElevators());
+
+        ElevatorRequest second = new ElevatorRequest(10, 0);
+        simulator.submit(60000, second);
+        simulator.run();
+        assertSame(elevator, second.getElevator());
+        assertEquals(0, second.getPickedUpMillis() - second.getSubmittedMillis());
+    }
+
+    @Test
+    public void testStaysWithoutPolicy() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(building);
+        ElevatorRequest request = new ElevatorRequest(10, 0);
+        simulator.submit(0, request);
+        simulator.run();
+        assertEquals(0, request.getElevator().getCurrentFloor());
+        assertEquals(0, simulator.getController().parkIdleElevators());
+    }
+}
@@ -0,0 +1,89 @@
+package elevator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DestinationDispatchStrategyTest {
+
+    private final BuildingConfig building = BuildingConfig.builder().elevators(2).floors(0, 15).build();
+
+    private final TrafficTrace trace = new TrafficTrace()
+            .add(0, 0, 9)
+            .add(0, 0, 10)
+            .add(0, 0, 3);
+
+    @Test
+    public void testGroupsNearbyTargetFloors() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(building);
+        simulator.getController().setDispatchStrategy(new DestinationDispatchStrategy(new NearestElevatorStrategy()));
+        ElevatorRequest toNine = new ElevatorRequest(0, 9);
+        ElevatorRequest toTen = new ElevatorRequest(0, 10);
+        ElevatorRequest toThree = new ElevatorRequest(0, 3);
+        simulator.submit(0, toNine);
+        simulator.submit(0, toTen);
+        simulator.submit(0, toThree);
+        simulator.run();
+
+        assertSame(toNine.getElevator(), toTen.getElevator());
+        // Too far from 9 and 10, starts a group of its own
+        assertNotSame(toNine.getElevator(), toThree.getElevator());
+        assertTrue(toThree.isDroppedOff());
+        // Stops at 0, 9 and 10
+        assertEquals(3, toNine.getElevator().getStops());
+        assertEquals(1, toNine.getElevator().getTrips());
+    }
+
+    @Test
+    public void testWindowOfNoFloorsOnlyGroupsSameTarget() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(building);
+        ElevatorController controller = simulator.getController();
+        controller.setDispatchStrategy(new DestinationDispatchStrategy(new NearestElevatorStrategy(), 0));
+        ElevatorRequest first = new ElevatorRequest(0, 9);
+        ElevatorRequest sameTarget = new ElevatorRequest(0, 9);
+        ElevatorRequest nextFloor = new ElevatorRequest(0, 10);
+        simulator.submit(0, first);
+        simulator.submit(0, sameTarget);
+        simulator.submit(0, nextFloor);
+        simulator.run();
+
+        assertSame(first.getElevator(), sameTarget.getElevator());
+        assertNotSame(first.getElevator(), nextFloor.getElevator());
+    }
+
+    @Test
+    public void testFewerStopsPerTrip() throws Exception {
+        DiscreteEventSimulator conventional = new DiscreteEventSimulator(building);
+        TrafficReport conventionalReport = trace.replay(conventional);
+
+        DiscreteEventSimulator destination = new DiscreteEventSimulator(building);
+        destination.getController().setDispatchStrategy(new DestinationDispatchStrategy(new NearestElevatorStrategy()));
+        TrafficReport destinationReport = trace.replay(destination);
+
+        // One elevator stopping at 0, 3, 9 and 10, against one at 0, 9 and 10 and another at 0 and 3
+        assertEquals(3, conventionalReport.getDelivered());
+        assertEquals(3, destinationReport.getDelivered());
+        assertEquals(4.0, conventionalReport.getStopsPerTrip(), 0.001);
+        assertEquals(2.5, destinationReport.getStopsPerTrip(), 0.001);
+        // All 3 delivered within the first five minutes
+        assertEquals(3.0, destinationReport.getPassengersPerFiveMinutes(), 0.001);
+    }
+
+    @Test
+    public void testHandlesMoreAtSaturatingUpPeak() throws Exception {
+        // Stops cost time, and more users arrive than either mode can deliver
+        BuildingConfig stopping = BuildingConfig.builder().elevators(2).floors(0, 15).capacity(8)
+                .motionProfile(MotionProfile.uniform(Elevator.FLOOR_TRAVEL_MILLIS, 5000)).build();
+        TrafficTrace upPeak = new TrafficGenerator(stopping, 42).generate(TrafficGenerator.Pattern.UP_PEAK, 120, 600000);
+
+        TrafficReport conventionalReport = upPeak.replay(new DiscreteEventSimulator(stopping));
+        DiscreteEventSimulator destination = new DiscreteEventSimulator(stopping);
+        destination.getController().setDispatchStrategy(new DestinationDispatchStrategy(new NearestElevatorStrategy()));
+        TrafficReport destinationReport = upPeak.replay(destination);
+
+        assertEquals(upPeak.size(), conventionalReport.getDelivered());
+        assertEquals(upPeak.size(), destinationReport.getDelivered());
+        assertTrue(conventionalReport.getSimulatedMillis() > 600000);
+        assertTrue(destinationReport.getPassengersPerFiveMinutes() > conventionalReport.getPassengersPerFiveMinutes());
+    }
+}
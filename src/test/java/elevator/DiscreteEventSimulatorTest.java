@@ -0,0 +1,77 @@
+package elevator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays the ElevatorRequestTest scenarios in virtual time
+ */
+public class DiscreteEventSimulatorTest {
+
+    private DiscreteEventSimulator simulator;
+
+    @Before
+    public void setUp() throws Exception {
+        simulator = new DiscreteEventSimulator(16);
+    }
+
+    private Elevator submit(int requestFloor, int targetFloor){
+        ElevatorRequest elevatorRequest = new ElevatorRequest(requestFloor, targetFloor);
+        simulator.submit(simulator.getClock().currentTimeMillis(), elevatorRequest);
+        simulator.runUntil(simulator.getClock().currentTimeMillis());
+        return elevatorRequest.getElevator();
+    }
+
+    @Test
+    public void testSubmitRequest1() throws Exception {
+        Elevator elevator = submit(0, 2);
+        simulator.runUntil(5000);
+        assertEquals(2, elevator.getCurrentFloor());
+    }
+
+    @Test
+    public void testSubmitRequest2() throws Exception {
+        submit(0, 1);
+        simulator.runUntil(3000);
+        Elevator elevator = submit(3, 5);
+        simulator.runUntil(13000);
+        assertEquals(5, elevator.getCurrentFloor());
+    }
+
+    @Test
+    public void testSubmitRequest4() throws Exception {
+        submit(0, 2);
+        simulator.runUntil(6000);
+        Elevator elevator = submit(2, 0);
+        simulator.runUntil(12000);
+        assertEquals(0, elevator.getCurrentFloor());
+    }
+
+    @Test
+    public void testSubmitRequest5() throws Exception {
+        Elevator elevator = submit(3, 1);
+        simulator.runUntil(10000);
+        assertEquals(1, elevator.getCurrentFloor());
+        assertEquals(ElevatorState.STATIONARY, elevator.getElevatorState());
+    }
+
+    @Test
+    public void testRunDrainsAllEvents() throws Exception {
+        for(int i=0; i<100; i++){
+            simulator.submit(i * 500, new ElevatorRequest(i % 16, (i * 7) % 16));
+        }
+        simulator.run();
+        for(Elevator elevator : simulator.getController().getElevatorList()){
+            assertEquals(ElevatorState.STATIONARY, elevator.getElevatorState());
+        }
+        assertTrue(simulator.getProcessedEvents() > 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubmitInThePast() throws Exception {
+        simulator.runUntil(1000);
+        simulator.submit(500, new ElevatorRequest(0, 1));
+    }
+}
@@ -0,0 +1,123 @@
+package elevator;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ElevatorClusterTest {
+
+    private final DiscreteEventSimulator north = new DiscreteEventSimulator(
+            BuildingConfig.builder().id("north").elevators(2).floors(0, 10).build());
+    private final DiscreteEventSimulator south = new DiscreteEventSimulator(
+            BuildingConfig.builder().id("south").elevators(3).floors(0, 20).build());
+    private final ElevatorCluster cluster = new ElevatorCluster(
+            Arrays.asList(north.getController(), south.getController()));
+
+    @Test
+    public void testRoutesByBuilding() throws Exception {
+        ElevatorRequest request = new ElevatorRequest("south", 0, 15);
+        assertSame(south.getController(), cluster.route(request));
+        Elevator elevator = cluster.selectElevator(request);
+        assertTrue(south.getController().getElevatorList().contains(elevator));
+
+        CompletableFuture<Elevator> async = cluster.submitAsync(new ElevatorRequest("north", 5, 0));
+        north.run();
+        assertTrue(north.getController().getElevatorList().contains(async.get()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownBuilding() throws Exception {
+        cluster.selectElevator(new ElevatorRequest("east", 0, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuildingRequiredWithSeveral() throws Exception {
+        cluster.selectElevator(new ElevatorRequest(0, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFloorsOfOtherBuilding() throws Exception {
+        // Floor 15 only exists in the south building
+        cluster.selectElevator(new ElevatorRequest("north", 0, 15));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testControllerRejectsOtherBuilding() throws Exception {
+        north.getController().selectElevator(new ElevatorRequest("south", 0, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateBuilding() throws Exception {
+        new ElevatorCluster(Arrays.asList(north.getController(),
+                new DiscreteEventSimulator(BuildingConfig.builder().id("north").build()).getController()));
+    }
+
+    @Test
+    public void testSingleBuildingNeedsNoId() throws Exception {
+        ElevatorCluster single = new ElevatorCluster(Arrays.asList(north.getController()));
+        assertSame(north.getController(), single.route(new ElevatorRequest(0, 5)));
+    }
+
+    @Test
+    public void testAggregateSnapshot() throws Exception {
+        north.submit(0, new ElevatorRequest("north", 0, 10));
+        south.submit(0, new ElevatorRequest("south", 0, 20));
+        south.submit(1000, new ElevatorRequest("south", 5, 0));
+        north.run();
+        south.run();
+
+        MetricsSnapshot total = cluster.snapshot();
+        assertEquals(3, total.getRequestsSubmitted());
+        assertEquals(3, total.getRequestsDroppedOff());
+        assertEquals(3, total.getWaitMillis().getTotalCount());
+        // Elevators of north then south
+        assertEquals(5, total.getCarUtilization().length);
+        assertEquals(total.getElapsedMillis(), Math.max(north.getController().getMetrics().snapshot().getElapsedMillis(),
+                south.getController().getMetrics().snapshot().getElapsedMillis()));
+
+        Map<String, MetricsSnapshot> byBuilding = cluster.snapshotByBuilding();
+        assertEquals(Arrays.asList("north", "south"), Arrays.asList(byBuilding.keySet().toArray()));
+        assertEquals(1, byBuilding.get("north").getRequestsDroppedOff());
+        assertEquals(2, byBuilding.get("south").getRequestsDroppedOff());
+    }
+
+    @Test(timeout = 5000)
+    public void testStopRightAfterStart() throws Exception {
+        for(int i=0; i<20; i++){
+            cluster.start();
+            cluster.stop();
+            assertTrue(north.getController().isStopController());
+            assertTrue(south.getController().isStopController());
+        }
+    }
+
+    @Test
+    public void testShardsDispatchIndependently() throws Exception {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(4);
+        try {
+            ElevatorController east = new ElevatorController(
+                    BuildingConfig.builder().id("east").elevators(4).build(), new ScheduledDriver(executor));
+            ElevatorController west = new ElevatorController(
+                    BuildingConfig.builder().id("west").elevators(4).build(), new ScheduledDriver(executor));
+            ElevatorCluster realTime = new ElevatorCluster(Arrays.asList(east, west));
+            realTime.start();
+
+            CompletableFuture<Elevator> toEast = realTime.submitAsync(new ElevatorRequest("east", 0, 1));
+            CompletableFuture<Elevator> toWest = realTime.submitAsync(new ElevatorRequest("west", 1, 0));
+            assertTrue(east.getElevatorList().contains(toEast.get(5, TimeUnit.SECONDS)));
+            assertTrue(west.getElevatorList().contains(toWest.get(5, TimeUnit.SECONDS)));
+
+            realTime.stop();
+            assertTrue(east.isStopController());
+            assertTrue(west.isStopController());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
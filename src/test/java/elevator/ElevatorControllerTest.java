@@ -1,3 +1,5 @@
+package elevator;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -15,6 +17,8 @@ public class ElevatorControllerTest {
     @Before
     public void setUp() throws Exception {
         elevatorController = ElevatorController.getInstance();
+        // The controller is a singleton, a previous test may have stopped it
+        elevatorController.setStopController(false);
         t = new Thread(elevatorController);
         t.start();
     }
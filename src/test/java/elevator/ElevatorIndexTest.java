@@ -0,0 +1,73 @@
+package elevator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ElevatorIndexTest {
+
+    private ElevatorIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new ElevatorIndex(8, 16);
+    }
+
+    @Test
+    public void testNearestStationary() throws Exception {
+        index.update(0, ElevatorState.STATIONARY, 0);
+        index.update(1, ElevatorState.STATIONARY, 9);
+        assertEquals(1, index.nearest(ElevatorState.UP, 6));
+        assertEquals(0, index.nearest(ElevatorState.DOWN, 3));
+    }
+
+    @Test
+    public void testSkipsElevatorsThatPassedTheFloor() throws Exception {
+        index.update(0, ElevatorState.UP, 7);
+        index.update(1, ElevatorState.DOWN, 3);
+        assertEquals(-1, index.nearest(ElevatorState.UP, 5));
+        assertEquals(-1, index.nearest(ElevatorState.DOWN, 5));
+        assertEquals(0, index.nearest(ElevatorState.UP, 7));
+        assertEquals(1, index.nearest(ElevatorState.DOWN, 2));
+    }
+
+    @Test
+    public void testSkipsElevatorsMovingTheOtherWay() throws Exception {
+        index.update(0, ElevatorState.DOWN, 2);
+        index.update(1, ElevatorState.STATIONARY, 12);
+        assertEquals(1, index.nearest(ElevatorState.UP, 4));
+    }
+
+    @Test
+    public void testTieKeepsEveryCandidate() throws Exception {
+        index.update(0, ElevatorState.STATIONARY, 2);
+        index.update(1, ElevatorState.UP, 2);
+        index.update(2, ElevatorState.STATIONARY, 6);
+        // Same distance, the elevator already moving UP wins
+        assertEquals(1, index.nearest(ElevatorState.UP, 4));
+
+        index.update(1, ElevatorState.MAINTAINANCE, 2);
+        int selected = index.nearest(ElevatorState.UP, 4);
+        assertTrue(selected == 0 || selected == 2);
+    }
+
+    @Test
+    public void testUpdateMovesBetweenFloors() throws Exception {
+        index.update(0, ElevatorState.UP, 1);
+        index.update(1, ElevatorState.UP, 1);
+        index.update(0, ElevatorState.UP, 2);
+        index.update(1, ElevatorState.UP, 3);
+        assertEquals(0, index.nearest(ElevatorState.UP, 2));
+        assertEquals(1, index.nearest(ElevatorState.UP, 5));
+    }
+
+    @Test
+    public void testGrowsBeyondInitialSize() throws Exception {
+        index.update(20, ElevatorState.STATIONARY, 300);
+        index.update(3, ElevatorState.STATIONARY, 0);
+        assertEquals(20, index.nearest(ElevatorState.DOWN, 250));
+        assertEquals(3, index.nearest(ElevatorState.UP, 100));
+        assertEquals(20, index.nearest(ElevatorState.UP, 1000));
+    }
+}
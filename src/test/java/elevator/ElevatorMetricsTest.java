@@ -0,0 +1,157 @@
+package elevator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class ElevatorMetricsTest {
+
+    private DiscreteEventSimulator simulator;
+    private ElevatorController controller;
+
+    @Before
+    public void setUp() throws Exception {
+        simulator = new DiscreteEventSimulator(2);
+        controller = simulator.getController();
+    }
+
+    @Test
+    public void testRequestTimes() throws Exception {
+        ElevatorRequest request = new ElevatorRequest(3, 1);
+        simulator.submit(1000, request);
+        simulator.run();
+
+        // Three floors up, then the down leg starts at floor 3 and goes two floors down
+        assertEquals(1000, request.getSubmittedMillis());
+        assertEquals(4000, request.getPickedUpMillis());
+        assertEquals(6000, request.getDroppedOffMillis());
+
+        MetricsSnapshot snapshot = controller.getMetrics().snapshot();
+        assertEquals(1, snapshot.getRequestsSubmitted());
+        assertEquals(1, snapshot.getRequestsAssigned());
+        assertEquals(1, snapshot.getRequestsPickedUp());
+        assertEquals(1, snapshot.getRequestsDroppedOff());
+        assertEquals(3000, snapshot.getWaitMillis().getValueAtPercentile(50), 3000 / 64);
+        assertEquals(2000, snapshot.getRideMillis().getValueAtPercentile(99.9), 2000 / 64);
+        assertEquals(1, snapshot.getAssignmentNanos().getTotalCount());
+        assertTrue(snapshot.getLockHoldNanos().getTotalCount() >= 1);
+
+        int id = request.getElevator().getId();
+        assertEquals(1, snapshot.getCarReversals()[id]);
+        assertTrue(snapshot.getCarUtilization()[id] > 0);
+        assertEquals(0, snapshot.getCarUtilization()[1 - id], 0);
+    }
+
+    @Test
+    public void testNoReversalsOnTripsTheSameWay() throws Exception {
+        // Each trip starts where the last one ended, so the car is already at the requested floor
+        Elevator elevator = null;
+        for(int floor=0; floor<6; floor+=2){
+            ElevatorRequest request = new ElevatorRequest(floor, floor + 2);
+            simulator.submit(simulator.getClock().currentTimeMillis(), request);
+            simulator.run();
+            elevator = request.getElevator();
+            assertEquals(floor + 2, elevator.getCurrentFloor());
+        }
+
+        assertEquals(0, elevator.getReversals());
+        assertEquals(0, controller.getMetrics().snapshot().getCarReversals()[elevator.getId()]);
+    }
+
+    @Test
+    public void testInterval() throws Exception {
+        simulator.submit(0, new ElevatorRequest(0, 2));
+        simulator.run();
+        MetricsSnapshot first = controller.getMetrics().snapshot();
+
+        simulator.submit(first.getTimeMillis() + 1000, new ElevatorRequest(2, 5));
+        simulator.submit(first.getTimeMillis() + 1000, new ElevatorRequest(2, 6));
+        simulator.run();
+
+        MetricsSnapshot interval = controller.getMetrics().snapshot().since(first);
+        assertEquals(2, interval.getRequestsSubmitted());
+        assertEquals(2, interval.getRequestsDroppedOff());
+        assertEquals(2, interval.getWaitMillis().getTotalCount());
+    }
+
+    @Test
+    public void testBusiestFiveMinutes() throws Exception {
+        simulator.submit(0, new ElevatorRequest(0, 2));
+        simulator.run();
+        MetricsSnapshot first = controller.getMetrics().snapshot();
+
+        // Two drop-offs in minute 10 and two in minute 11
+        simulator.submit(TimeUnit.MINUTES.toMillis(10), new ElevatorRequest(2, 5));
+        simulator.submit(TimeUnit.MINUTES.toMillis(10), new ElevatorRequest(2, 6));
+        simulator.submit(TimeUnit.MINUTES.toMillis(11), new ElevatorRequest(1, 0));
+        simulator.submit(TimeUnit.MINUTES.toMillis(11), new ElevatorRequest(1, 0));
+        simulator.run();
+
+        MetricsSnapshot snapshot = controller.getMetrics().snapshot();
+        assertEquals(5, snapshot.getRequestsDroppedOff());
+        long[] perMinute = snapshot.getDeliveriesPerMinute();
+        assertEquals(12, perMinute.length);
+        assertEquals(1, perMinute[0]);
+        assertEquals(2, perMinute[10]);
+        assertEquals(2, perMinute[11]);
+        assertEquals(4.0, snapshot.getPassengersPerFiveMinutes(), 0);
+
+        MetricsSnapshot interval = snapshot.since(first);
+        assertEquals(4, interval.getRequestsDroppedOff());
+        assertEquals(4.0, interval.getPassengersPerFiveMinutes(), 0);
+        assertEquals(8.0, snapshot.merge(interval).getPassengersPerFiveMinutes(), 0);
+    }
+
+    @Test
+    public void testPublishEvery() throws Exception {
+        simulator.submit(0, new ElevatorRequest(0, 2));
+        simulator.run();
+
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        final AtomicReference<MetricsSnapshot> published = new AtomicReference<MetricsSnapshot>();
+        ScheduledFuture<?> future = controller.getMetrics().publishEvery(executor, 10, TimeUnit.MILLISECONDS,
+                new Consumer<MetricsSnapshot>() {
+                    @Override
+                    public void accept(MetricsSnapshot snapshot) {
+                        published.compareAndSet(null, snapshot);
+                    }
+                });
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while(published.get() == null && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+            assertEquals(1, published.get().getRequestsDroppedOff());
+        } finally {
+            future.cancel(false);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        simulator.submit(0, new ElevatorRequest(0, 2));
+        simulator.run();
+
+        String name = "elevator:type=ElevatorMetrics,name=" + getClass().getSimpleName();
+        controller.getMetrics().registerMBean(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(1L, server.getAttribute(new ObjectName(name), "RequestsDroppedOff"));
+            assertEquals(2000L, server.getAttribute(new ObjectName(name), "RideMillisP99"));
+        } finally {
+            server.unregisterMBean(new ObjectName(name));
+        }
+    }
+}
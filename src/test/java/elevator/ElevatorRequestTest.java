@@ -1,4 +1,4 @@
-
+package elevator;
 
 import org.junit.After;
 import org.junit.Before;
@@ -22,6 +22,8 @@ public class ElevatorRequestTest {
        // Executor executor = Executors.newSingleThreadExecutor();
        // executor.execute(elevatorController);
         elevatorController = ElevatorController.getInstance();
+        // The controller is a singleton, a previous test may have stopped it
+        elevatorController.setStopController(false);
         elevatorControllerThread = new Thread(elevatorController);
         elevatorControllerThread.start();
 
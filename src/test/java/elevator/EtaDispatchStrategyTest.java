@@ -0,0 +1,72 @@
+package elevator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EtaDispatchStrategyTest {
+
+    private DiscreteEventSimulator simulator;
+    private ElevatorController controller;
+    private Elevator first;
+    private Elevator second;
+
+    @Before
+    public void setUp() throws Exception {
+        simulator = new DiscreteEventSimulator(2);
+        controller = simulator.getController();
+        first = controller.getElevatorList().get(0);
+        second = controller.getElevatorList().get(1);
+
+        second.setCurrentFloor(15);
+        controller.updateElevatorLists(second);
+
+        // first moves UP from 0 to 6, and is at floor 4 after 4 seconds
+        simulator.submit(0, new ElevatorRequest(0, 6));
+        simulator.runUntil(4000);
+        assertEquals(4, first.getCurrentFloor());
+        assertEquals(ElevatorState.UP, first.getElevatorState());
+    }
+
+    @Test
+    public void testConsidersElevatorsMovingTheOtherWay() throws Exception {
+        // Nearest only looks at DOWN or STATIONARY elevators and picks the one at 15,
+        // while the one at 4 turns around at 6 and is back at 5 much sooner.
+        assertSame(second, new NearestElevatorStrategy().selectElevator(controller, ElevatorState.DOWN, 5, 0));
+        assertSame(first, new EtaDispatchStrategy().selectElevator(controller, ElevatorState.DOWN, 5, 0));
+    }
+
+    @Test
+    public void testEstimateFollowsCommittedRoute() throws Exception {
+        EtaDispatchStrategy strategy = new EtaDispatchStrategy();
+        // On the way: one floor up
+        assertEquals(1000, strategy.estimateCost(first, ElevatorState.UP, 5));
+        // Up to 6, one step to turn around, then one floor down
+        assertEquals(4000, strategy.estimateCost(first, ElevatorState.DOWN, 5));
+        // Stationary: one step to start, ten floors down
+        assertEquals(11000, strategy.estimateCost(second, ElevatorState.DOWN, 5));
+    }
+
+    @Test
+    public void testEstimateUsesMotionProfile() throws Exception {
+        MotionProfile motion = MotionProfile.builder().build();
+        EtaDispatchStrategy strategy = new EtaDispatchStrategy(motion, 0, 0);
+        // One run of ten floors, not ten single floor hops
+        assertEquals(motion.travelMillis(10), strategy.estimateCost(second, ElevatorState.DOWN, 5));
+        // Up to 6, doors there, then one floor back down
+        assertEquals(motion.travelMillis(2) + motion.stopMillis() + motion.travelMillis(1),
+                strategy.estimateCost(first, ElevatorState.DOWN, 5));
+    }
+
+    @Test
+    public void testServesRequestWithEtaStrategy() throws Exception {
+        controller.setDispatchStrategy(new EtaDispatchStrategy());
+        ElevatorRequest request = new ElevatorRequest(5, 0);
+        simulator.submit(4000, request);
+        simulator.run();
+        assertSame(first, request.getElevator());
+        assertEquals(0, first.getCurrentFloor());
+        assertEquals(ElevatorState.STATIONARY, first.getElevatorState());
+    }
+}
@@ -0,0 +1,191 @@
+package elevator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class EventLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testJsonLines() throws Exception {
+        Path file = folder.newFile("events.jsonl").toPath();
+        EventLog log = EventLog.open(file, EventLog.Format.JSONL);
+        log.log(1000, EventType.MOVED, 3, 5, ElevatorState.UP, -1, -1, -1);
+        log.log(2000, EventType.UNASSIGNED, -1, -1, null, 17, 2, 9);
+        log.flush();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        assertEquals(2, lines.size());
+        assertEquals("{\"time\":1000,\"type\":\"MOVED\",\"elevator\":3,\"floor\":5,\"state\":\"UP\"}", lines.get(0));
+        assertEquals("{\"time\":2000,\"type\":\"UNASSIGNED\",\"request\":17,\"from\":2,\"to\":9}", lines.get(1));
+        assertEquals(2, log.getWrittenEvents());
+        log.close();
+    }
+
+    @Test
+    public void testBinaryRecords() throws Exception {
+        Path file = folder.newFile("events.bin").toPath();
+        EventLog log = EventLog.open(file, EventLog.Format.BINARY);
+        log.log(1000, EventType.PICKED_UP, 3, 2, ElevatorState.DOWN, 17, 2, 0);
+        log.close();
+
+        ByteBuffer record = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(EventLog.BINARY_RECORD_SIZE, record.remaining());
+        assertEquals(1000, record.getLong());
+        assertEquals(EventType.PICKED_UP.ordinal(), record.getInt());
+        assertEquals(3, record.getInt());
+        assertEquals(2, record.getInt());
+        assertEquals(ElevatorState.DOWN.ordinal(), record.getInt());
+        assertEquals(17, record.getLong());
+        assertEquals(2, record.getInt());
+        assertEquals(0, record.getInt());
+    }
+
+    @Test
+    public void testSampling() throws Exception {
+        Path file = folder.newFile("sampled.jsonl").toPath();
+        EventLog log = EventLog.open(file, EventLog.Format.JSONL)
+                .setSampleRate(EventType.MOVED, 10)
+                .setSampleRate(EventType.STATE_CHANGED, 0);
+        for(int i=0; i<100; i++){
+            log.log(i, EventType.MOVED, 0, i % 16, ElevatorState.UP, -1, -1, -1);
+            log.log(i, EventType.STATE_CHANGED, 0, i % 16, ElevatorState.UP, -1, -1, -1);
+            log.log(i, EventType.ASSIGNED, 0, i % 16, ElevatorState.UP, i, 0, 1);
+        }
+        log.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        assertEquals(110, lines.size());
+        int moved = 0;
+        for(String line : lines){
+            assertFalse(line.contains("STATE_CHANGED"));
+            if(line.contains("MOVED")){
+                moved++;
+            }
+        }
+        assertEquals(10, moved);
+    }
+
+    @Test(timeout = 10000)
+    public void testDropsWhenFullRatherThanBlocking() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        WritableByteChannel stuck = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e){
+                    throw new IOException(e);
+                }
+                int written = src.remaining();
+                src.position(src.limit());
+                return written;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        EventLog log = new EventLog(stuck, EventLog.Format.JSONL, 4);
+        int accepted = 0;
+        for(int i=0; i<1000; i++){
+            if(log.log(i, EventType.MOVED, 0, 1, ElevatorState.UP, -1, -1, -1)){
+                accepted++;
+            }
+        }
+        assertTrue(log.getDroppedEvents() > 0);
+        assertEquals(1000, accepted + log.getDroppedEvents());
+
+        release.countDown();
+        log.close();
+        assertEquals(accepted, log.getWrittenEvents());
+    }
+
+    @Test
+    public void testControllerEvents() throws Exception {
+        Path file = folder.newFile("controller.jsonl").toPath();
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(2);
+        EventLog log = EventLog.open(file, EventLog.Format.JSONL);
+        simulator.getController().setEventLog(log);
+
+        ElevatorRequest request = new ElevatorRequest(3, 1);
+        simulator.submit(1000, request);
+        simulator.run();
+        log.close();
+
+        String events = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+        String id = "\"request\":" + request.getId();
+        assertTrue(events.contains("\"type\":\"ASSIGNED\",\"elevator\":" + request.getElevator().getId()));
+        assertTrue(events.contains("\"time\":4000,\"type\":\"PICKED_UP\""));
+        assertTrue(events.contains("\"time\":6000,\"type\":\"DROPPED_OFF\""));
+        assertTrue(events.contains(id + ",\"from\":3,\"to\":1"));
+        assertTrue(events.contains("\"type\":\"MOVED\""));
+        assertTrue(events.contains("\"type\":\"STATE_CHANGED\""));
+    }
+
+    @Test
+    public void testAssignedBeforePickedUp() throws Exception {
+        // Steps an elevator as soon as it is woken, like its thread getting
+        // to run before the controller is done assigning
+        final Clock clock = new DiscreteEventSimulator(1).getClock();
+        ElevatorDriver eager = new ElevatorDriver() {
+            @Override
+            public Clock getClock() {
+                return clock;
+            }
+
+            @Override
+            public void start(Elevator elevator) {
+            }
+
+            @Override
+            public void wake(Elevator elevator) {
+                while(elevator.isOperating() && elevator.step() != Elevator.IDLE){
+                    // Until it has nothing left to do
+                }
+            }
+
+            @Override
+            public void requestsQueued(ElevatorController controller) {
+            }
+        };
+        Path file = folder.newFile("order.jsonl").toPath();
+        ElevatorController controller = new ElevatorController(BuildingConfig.builder().elevators(1).build(), eager);
+        EventLog log = EventLog.open(file, EventLog.Format.JSONL);
+        controller.setEventLog(log);
+
+        ElevatorRequest request = new ElevatorRequest(0, 2);
+        controller.selectElevator(request);
+        controller.dispatch(HallCall.pack(2, 0, 7, 0));
+        log.close();
+
+        String events = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+        int assigned = events.indexOf("\"type\":\"ASSIGNED\",\"elevator\":0,\"floor\":0");
+        int pickedUp = events.indexOf("\"type\":\"PICKED_UP\",\"elevator\":0,\"floor\":0");
+        assertTrue(request.isDroppedOff());
+        assertTrue(assigned >= 0 && assigned < pickedUp);
+        assigned = events.indexOf("\"request\":7,", events.indexOf("\"type\":\"ASSIGNED\"", pickedUp));
+        pickedUp = events.indexOf("\"type\":\"PICKED_UP\",\"elevator\":0,\"floor\":2");
+        assertTrue(assigned >= 0 && assigned < pickedUp);
+    }
+}
@@ -0,0 +1,277 @@
+package elevator;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FleetStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BuildingConfig building = BuildingConfig.builder().elevators(4).floors(0, 15).build();
+    private Path directory;
+    private List<ElevatorRequest> requests;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("store").toPath();
+        requests = new ArrayList<ElevatorRequest>();
+    }
+
+    /**
+     * Submit a mix of requests and run until some are on board and some still waiting
+     */
+    private DiscreteEventSimulator runFirstLife(FleetStore[] store, boolean snapshot) throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(building);
+        store[0] = FleetStore.open(directory, simulator.getController());
+        int[][] trips = {{0, 9}, {12, 2}, {5, 14}, {3, 0}, {15, 7}, {8, 11}};
+        for(int i=0; i<trips.length; i++){
+            ElevatorRequest request = new ElevatorRequest(trips[i][0], trips[i][1]);
+            requests.add(request);
+            simulator.submit(i * 500, request);
+        }
+        simulator.runUntil(4000);
+        if(snapshot){
+            store[0].snapshot();
+        }
+        return simulator;
+    }
+
+    private int outstanding(){
+        int count = 0;
+        for(ElevatorRequest request : requests){
+            if(request.getElevator() != null && !request.isDroppedOff()){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param before Simulator of the first life, to compare positions with, null not to compare
+     */
+    private void assertRestored(DiscreteEventSimulator before, int expectedRequests) throws Exception {
+        DiscreteEventSimulator after = new DiscreteEventSimulator(building);
+        FleetStore store = FleetStore.open(directory, after.getController());
+        assertEquals(expectedRequests, store.getRestoredRequests());
+        for(int id=0; before != null && id<building.getNumberOfElevators(); id++){
+            assertEquals(before.getController().getElevatorList().get(id).getCurrentFloor(),
+                    after.getController().getElevatorList().get(id).getCurrentFloor());
+        }
+
+        after.run();
+        assertEquals(expectedRequests, after.getController().getMetrics().snapshot().getRequestsDroppedOff());
+        store.close();
+    }
+
+    @Test
+    public void testRestoreSnapshot() throws Exception {
+        FleetStore[] store = new FleetStore[1];
+        DiscreteEventSimulator before = runFirstLife(store, true);
+        int expected = outstanding();
+        assertTrue(expected > 0);
+        store[0].close();
+
+        assertRestored(before, expected);
+    }
+
+    @Test
+    public void testRestoreSnapshotAndJournal() throws Exception {
+        FleetStore[] store = new FleetStore[1];
+        DiscreteEventSimulator before = runFirstLife(store, true);
+        // Picked up and dropped off after the snapshot, journaled only
+        before.runUntil(9000);
+        int expected = outstanding();
+        // Crash: no snapshot on the way out
+        store[0].close();
+
+        // Elevators restart where the snapshot or the journal last saw them
+        assertRestored(null, expected);
+    }
+
+    @Test
+    public void testRestoreJournalOnly() throws Exception {
+        FleetStore[] store = new FleetStore[1];
+        runFirstLife(store, false);
+        assertEquals(1, store[0].getEpoch());
+        int expected = outstanding();
+        assertTrue(expected > 0);
+        store[0].close();
+
+        assertRestored(null, expected);
+    }
+
+    @Test
+    public void testIncompleteSnapshotIsIgnored() throws Exception {
+        FleetStore[] store = new FleetStore[1];
+        runFirstLife(store, true);
+        long epoch = store[0].getEpoch();
+        int expected = outstanding();
+        store[0].close();
+
+        // As if we crashed while writing the latest snapshot
+        try(FileChannel slot = FileChannel.open(directory.resolve("snapshot." + (epoch & 1)), StandardOpenOption.WRITE)){
+            slot.write(ByteBuffer.allocate(8), 8);
+        }
+
+        // The previous snapshot and both journals after it still have every request
+        assertRestored(null, expected);
+    }
+
+    @Test
+    public void testRestartTwice() throws Exception {
+        FleetStore[] store = new FleetStore[1];
+        DiscreteEventSimulator first = runFirstLife(store, true);
+        long epoch = store[0].getEpoch();
+        // Many more served after the snapshot, journaled only, and the last
+        // ones still outstanding at the crash
+        for(int i=0; i<20; i++){
+            first.submit(5000 + i * 1000, new ElevatorRequest(i % 16, (i * 7 + 3) % 16));
+        }
+        first.runUntil(24000);
+        store[0].close();
+        // Crashed while writing the latest snapshot, so the second life
+        // restores the one before and its journal from the start
+        try(FileChannel slot = FileChannel.open(directory.resolve("snapshot." + (epoch & 1)), StandardOpenOption.WRITE)){
+            slot.write(ByteBuffer.allocate(8), 8);
+        }
+
+        // Second life serves everyone and crashes in turn
+        DiscreteEventSimulator second = new DiscreteEventSimulator(building);
+        FleetStore secondStore = FleetStore.open(directory, second.getController());
+        assertTrue(secondStore.getRestoredRequests() > 0);
+        second.run();
+        secondStore.close();
+
+        // Nothing left over from the first life's journal
+        DiscreteEventSimulator third = new DiscreteEventSimulator(building);
+        FleetStore thirdStore = FleetStore.open(directory, third.getController());
+        assertEquals(0, thirdStore.getRestoredRequests());
+        assertTrue(thirdStore.getEpoch() > secondStore.getEpoch());
+        for(int id=0; id<building.getNumberOfElevators(); id++){
+            assertEquals(second.getController().getElevatorList().get(id).getCurrentFloor(),
+                    third.getController().getElevatorList().get(id).getCurrentFloor());
+        }
+        thirdStore.close();
+    }
+
+    @Test
+    public void testRestoreCalls() throws Exception {
+        DiscreteEventSimulator before = new DiscreteEventSimulator(building);
+        ElevatorController controller = before.getController();
+        FleetStore store = FleetStore.open(directory, controller);
+        int[][] trips = {{0, 9}, {12, 2}, {5, 14}, {3, 0}};
+        for(int i=0; i<trips.length; i++){
+            assertNotNull(controller.dispatch(HallCall.pack(trips[i][0], trips[i][1], i, 0)));
+        }
+        before.runUntil(4000);
+        store.snapshot();
+        // Journaled only
+        assertNotNull(controller.dispatch(HallCall.pack(15, 7, 4, 4000)));
+        assertNotNull(controller.dispatch(HallCall.pack(8, 11, 5, 4000)));
+        before.runUntil(6000);
+        MetricsSnapshot metrics = controller.getMetrics().snapshot();
+        int expected = (int) (metrics.getRequestsAssigned() - metrics.getRequestsDroppedOff());
+        assertTrue(expected > 0);
+        assertTrue(metrics.getRequestsPickedUp() > metrics.getRequestsDroppedOff());
+        store.close();
+
+        DiscreteEventSimulator after = new DiscreteEventSimulator(building);
+        store = FleetStore.open(directory, after.getController());
+        assertEquals(0, store.getRestoredRequests());
+        assertEquals(expected, store.getRestoredCalls());
+        after.run();
+        assertEquals(expected, after.getController().getMetrics().snapshot().getRequestsDroppedOff());
+        for(Elevator elevator : after.getController().getElevatorList()){
+            assertEquals(0, elevator.getLoad());
+        }
+        store.close();
+    }
+
+    @Test
+    public void testRestoreOutOfService() throws Exception {
+        DiscreteEventSimulator before = new DiscreteEventSimulator(building);
+        List<Elevator> cars = before.getController().getElevatorList();
+        cars.get(1).setOperating(false);
+        FleetStore[] store = new FleetStore[1];
+        store[0] = FleetStore.open(directory, before.getController());
+        before.runUntil(0);
+        assertEquals(ElevatorState.MAINTAINANCE, cars.get(1).getElevatorState());
+        int[][] trips = {{0, 9}, {12, 2}, {5, 14}, {3, 0}};
+        for(int i=0; i<trips.length; i++){
+            ElevatorRequest request = new ElevatorRequest(trips[i][0], trips[i][1]);
+            requests.add(request);
+            before.submit(i * 500, request);
+        }
+        before.runUntil(4000);
+        // Draining with someone on board
+        Elevator draining = null;
+        for(ElevatorRequest request : requests){
+            if(request.isPickedUp() && !request.isDroppedOff()){
+                draining = request.getElevator();
+            }
+        }
+        assertNotNull(draining);
+        draining.setOperating(false);
+        store[0].snapshot();
+        int expected = outstanding();
+        store[0].close();
+
+        DiscreteEventSimulator after = new DiscreteEventSimulator(building);
+        FleetStore restored = FleetStore.open(directory, after.getController());
+        List<Elevator> restoredCars = after.getController().getElevatorList();
+        assertFalse(restoredCars.get(1).isInService());
+        assertFalse(restoredCars.get(draining.getId()).isInService());
+        after.run();
+        assertEquals(expected, after.getController().getMetrics().snapshot().getRequestsDroppedOff());
+        for(Elevator elevator : new Elevator[]{restoredCars.get(1), restoredCars.get(draining.getId())}){
+            assertFalse(elevator.isOperating());
+            assertEquals(ElevatorState.MAINTAINANCE, elevator.getElevatorState());
+        }
+        // Nothing was dispatched to the one out of service
+        assertEquals(0, restoredCars.get(1).getStops());
+        restored.close();
+    }
+
+    @Test
+    public void testNothingSaved() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(building);
+        FleetStore store = FleetStore.open(directory, simulator.getController());
+        assertEquals(0, store.getRestoredRequests());
+        assertEquals(1, store.getEpoch());
+        store.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDifferentBuilding() throws Exception {
+        FleetStore[] store = new FleetStore[1];
+        runFirstLife(store, true);
+        store[0].close();
+
+        DiscreteEventSimulator other = new DiscreteEventSimulator(BuildingConfig.builder().elevators(8).build());
+        FleetStore.open(directory, other.getController());
+    }
+
+    @Test
+    public void testRequestIdsContinue() throws Exception {
+        FleetStore[] store = new FleetStore[1];
+        runFirstLife(store, true);
+        store[0].close();
+        long highest = requests.get(requests.size() - 1).getId();
+
+        DiscreteEventSimulator after = new DiscreteEventSimulator(building);
+        FleetStore.open(directory, after.getController()).close();
+        assertTrue(new ElevatorRequest(0, 1).getId() > highest);
+    }
+}
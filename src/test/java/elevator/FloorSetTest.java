@@ -0,0 +1,67 @@
+package elevator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FloorSetTest {
+
+    @Test
+    public void testHigherAndLower() throws Exception {
+        FloorSet floors = new FloorSet(16);
+        assertTrue(floors.isEmpty());
+        assertEquals(-1, floors.first());
+        assertEquals(-1, floors.last());
+
+        floors.add(3);
+        floors.add(9);
+        assertFalse(floors.add(9));
+        assertEquals(2, floors.size());
+        assertEquals(3, floors.first());
+        assertEquals(9, floors.last());
+        assertEquals(9, floors.higher(3));
+        assertEquals(-1, floors.higher(9));
+        assertEquals(3, floors.lower(9));
+        assertEquals(-1, floors.lower(3));
+        assertEquals(-1, floors.lower(0));
+    }
+
+    @Test
+    public void testGrowsBeyondCapacity() throws Exception {
+        FloorSet floors = new FloorSet(16);
+        floors.add(2);
+        floors.add(200);
+        assertTrue(floors.contains(200));
+        assertEquals(200, floors.higher(2));
+        assertEquals(2, floors.lower(200));
+        assertEquals(200, floors.pollLast());
+        assertEquals(2, floors.pollFirst());
+        assertTrue(floors.isEmpty());
+        assertEquals(-1, floors.pollFirst());
+    }
+
+    @Test
+    public void testAddRange() throws Exception {
+        FloorSet floors = new FloorSet();
+        floors.addRange(60, 130);
+        assertEquals(71, floors.size());
+        assertEquals(60, floors.first());
+        assertEquals(130, floors.last());
+        assertEquals(5, floors.count(62, 66));
+
+        floors.clear();
+        floors.addRange(4, 6);
+        assertEquals("[4, 5, 6]", floors.toString());
+    }
+
+    @Test
+    public void testCopyIsIndependent() throws Exception {
+        FloorSet floors = new FloorSet();
+        floors.add(1);
+        FloorSet copy = floors.copy();
+        copy.add(7);
+        floors.remove(1);
+        assertTrue(copy.contains(1));
+        assertFalse(floors.contains(7));
+    }
+}
@@ -0,0 +1,148 @@
+package elevator;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class HallCallTest {
+
+    @Test
+    public void testPacking() throws Exception {
+        long call = HallCall.pack(HallCall.MAX_FLOOR, 17, 0x12345, 1000);
+        assertEquals(HallCall.MAX_FLOOR, HallCall.origin(call));
+        assertEquals(17, HallCall.destination(call));
+        assertEquals(0x345, HallCall.id(call));
+        assertEquals(ElevatorState.DOWN, HallCall.direction(call));
+        assertEquals(ElevatorState.UP, HallCall.direction(HallCall.pack(0, 1, 0, 0)));
+        assertEquals(496, HallCall.elapsedMillis(call, 1500));
+        assertEquals(HallCall.key(call), HallCall.key(HallCall.withTime(call, 5000)));
+
+        // Times wrap around every 2^24 ms, elapsed times are still right
+        long late = HallCall.withTime(call, (1L << 24) - 96);
+        assertEquals(17, HallCall.destination(late));
+        assertEquals(0x345, HallCall.id(late));
+        assertEquals(288, HallCall.elapsedMillis(late, (1L << 24) + 200));
+        // Longer is timed 2^24 ms too short
+        assertEquals(96, HallCall.elapsedMillis(call, 1000 + HallCall.MAX_ELAPSED_MILLIS + 101));
+
+        // Every floor a building can have fits
+        long top = HallCall.pack(0, CarState.MAX_FLOOR, 0, 0);
+        assertEquals(CarState.MAX_FLOOR, HallCall.destination(top));
+        assertEquals(0, HallCall.origin(top));
+        assertEquals(ElevatorState.UP, HallCall.direction(top));
+    }
+
+    @Test
+    public void testIdsRepeatAfterMaxIds() throws Exception {
+        long first = HallCall.pack(0, 5, 7, 0);
+        for(int id=8; id<7 + HallCall.MAX_IDS; id++){
+            assertNotEquals(HallCall.key(first), HallCall.key(HallCall.pack(0, 5, id, 0)));
+        }
+        assertEquals(HallCall.key(first), HallCall.key(HallCall.pack(0, 5, 7 + HallCall.MAX_IDS, 1000)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFloorTooHigh() throws Exception {
+        HallCall.pack(0, HallCall.MAX_FLOOR + 1, 0, 0);
+    }
+
+    @Test
+    public void testServedLikeRequests() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(2);
+        ElevatorController controller = simulator.getController();
+        ElevatorRequest request = new ElevatorRequest(3, 1);
+        simulator.submit(1000, request);
+        simulator.run();
+
+        // Same trip as ElevatorMetricsTest, from the floor the request left the elevator at
+        simulator.runUntil(10000);
+        Elevator elevator = controller.dispatch(HallCall.pack(4, 2, 1, 10000));
+        assertSame(request.getElevator(), elevator);
+        assertEquals(1, elevator.getLoad());
+        simulator.run();
+
+        assertEquals(2, elevator.getCurrentFloor());
+        assertEquals(0, elevator.getLoad());
+        assertEquals(ElevatorState.STATIONARY, elevator.getElevatorState());
+        MetricsSnapshot snapshot = controller.getMetrics().snapshot();
+        assertEquals(2, snapshot.getRequestsAssigned());
+        assertEquals(2, snapshot.getRequestsDroppedOff());
+        assertEquals(3000, snapshot.getWaitMillis().getMax(), 3000 / 64);
+        assertEquals(2000, snapshot.getRideMillis().getMax(), 2000 / 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFloorOutsideBuilding() throws Exception {
+        new DiscreteEventSimulator(2).getController().dispatch(HallCall.pack(0, 16, 0, 0));
+    }
+
+    @Test
+    public void testDispatchDoesNotAllocate() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled());
+
+        BuildingConfig building = BuildingConfig.builder().elevators(8).floors(0, 29).build();
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(building);
+        ElevatorController controller = simulator.getController();
+
+        Random random = new Random(1);
+        long[] calls = new long[1024];
+        for(int i=0; i<calls.length; i++){
+            int origin = random.nextInt(30);
+            int destination = (origin + 1 + random.nextInt(29)) % 30;
+            calls[i] = HallCall.pack(origin, destination, i, 0);
+        }
+
+        // Warm up, until every array and stop set on the way exists and
+        // every branch has been taken: while the JIT compiler still finds
+        // new paths, deoptimizing charges a few bytes of the JVM's own to
+        // the thread
+        int dispatches = 2000;
+        for(int i=0; i<100; i++){
+            dispatch(simulator, calls, dispatches, allocation);
+        }
+
+        long[] allocated = new long[10];
+        for(int i=0; i<allocated.length; i++){
+            allocated[i] = dispatch(simulator, calls, dispatches, allocation);
+        }
+        assertArrayEquals("Allocated " + Arrays.toString(allocated) + " bytes in loops of " + dispatches + " dispatches",
+                new long[allocated.length], allocated);
+
+        simulator.run();
+        MetricsSnapshot snapshot = controller.getMetrics().snapshot();
+        assertTrue(snapshot.getRequestsAssigned() > 0);
+        assertEquals(snapshot.getRequestsAssigned(), snapshot.getRequestsDroppedOff());
+    }
+
+    /**
+     * Dispatch calls two at a time, a second apart, letting the elevators
+     * move in between
+     * @return Bytes allocated by dispatching and moving the elevators
+     */
+    private static long dispatch(DiscreteEventSimulator simulator, long[] calls, int count,
+                                 com.sun.management.ThreadMXBean allocation){
+        ElevatorController controller = simulator.getController();
+        long allocated = 0;
+        for(int i=0; i<count; i+=2){
+            long now = simulator.getClock().currentTimeMillis();
+            long first = HallCall.withTime(calls[i % calls.length], now);
+            long second = HallCall.withTime(calls[(i + 1) % calls.length], now);
+
+            long before = allocation.getCurrentThreadAllocatedBytes();
+            controller.dispatch(first);
+            controller.dispatch(second);
+            simulator.runUntil(now + 1000);
+            allocated += allocation.getCurrentThreadAllocatedBytes() - before;
+        }
+        return allocated;
+    }
+}
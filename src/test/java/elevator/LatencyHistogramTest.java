@@ -0,0 +1,89 @@
+package elevator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(1000000);
+        for(int i=1; i<=10000; i++){
+            histogram.record(i);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getTotalCount());
+        assertEquals(10000, snapshot.getMax());
+        assertEquals(5000.5, snapshot.getMean(), 0.001);
+        assertEquals(5000, snapshot.getValueAtPercentile(50), 5000 / 64);
+        assertEquals(9900, snapshot.getValueAtPercentile(99), 9900 / 64);
+        assertEquals(9990, snapshot.getValueAtPercentile(99.9), 9990 / 64);
+        assertEquals(10000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(100);
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-5);
+        histogram.record(500);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.getValueAtPercentile(25));
+        assertEquals(3, snapshot.getValueAtPercentile(50));
+        assertEquals(7, snapshot.getValueAtPercentile(75));
+        // Clamped to the highest trackable value
+        assertEquals(100, snapshot.getMax());
+    }
+
+    @Test
+    public void testBucketsCoverEveryValue() throws Exception {
+        int previous = -1;
+        for(long value=0; value < (1L << 20); value += 1 + value / 1000){
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index >= previous);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= value);
+            assertTrue(LatencyHistogram.highestValueAt(index) - value <= value / 64);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void testInterval() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(1000);
+        histogram.record(10);
+        LatencyHistogram.Snapshot first = histogram.snapshot();
+        histogram.record(20);
+        histogram.record(30);
+
+        LatencyHistogram.Snapshot interval = histogram.snapshot().since(first);
+        assertEquals(2, interval.getTotalCount());
+        assertEquals(20, interval.getValueAtPercentile(50));
+        assertEquals(25.0, interval.getMean(), 0.001);
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(1000);
+        Thread[] threads = new Thread[4];
+        for(int t=0; t<threads.length; t++){
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i=0; i<100000; i++){
+                        histogram.record(i % 1000);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread t : threads){
+            t.join();
+        }
+        assertEquals(400000, histogram.snapshot().getTotalCount());
+        assertEquals(999, histogram.snapshot().getMax());
+    }
+}
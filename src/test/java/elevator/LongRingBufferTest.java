@@ -0,0 +1,35 @@
+package elevator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LongRingBufferTest {
+
+    @Test
+    public void testRejectsWhenFull() throws Exception {
+        LongRingBuffer buffer = new LongRingBuffer(3);
+        assertEquals(4, buffer.capacity());
+        assertTrue(buffer.isEmpty());
+        for(long i=0; i<4; i++){
+            assertTrue(buffer.offer(-i));
+        }
+        assertTrue(buffer.isFull());
+        assertFalse(buffer.offer(4));
+        assertArrayEquals(new long[]{0, -1, -2, -3}, buffer.toArray());
+
+        assertEquals(0, buffer.poll());
+        assertEquals(-1, buffer.poll());
+        assertFalse(buffer.isFull());
+        assertTrue(buffer.offer(4));
+        assertArrayEquals(new long[]{-2, -3, 4}, buffer.toArray());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPollEmpty() throws Exception {
+        LongRingBuffer buffer = new LongRingBuffer(2);
+        buffer.offer(1);
+        buffer.poll();
+        buffer.poll();
+    }
+}
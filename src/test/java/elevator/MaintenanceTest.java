@@ -0,0 +1,152 @@
+package elevator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MaintenanceTest {
+
+    @Test
+    public void testDrainHandsOverPickupsAndDropsOffPassengers() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(2);
+        ElevatorController controller = simulator.getController();
+        Elevator first = controller.getElevatorList().get(0);
+        Elevator second = controller.getElevatorList().get(1);
+        second.setCurrentFloor(15);
+        controller.updateElevatorLists(second);
+
+        // first carries one user from 0 to 10, and is on its way to pick up another at 8
+        ElevatorRequest onboard = new ElevatorRequest(0, 10);
+        simulator.submit(0, onboard);
+        simulator.runUntil(3000);
+        ElevatorRequest waiting = new ElevatorRequest(8, 12);
+        assertSame(first, controller.selectElevator(waiting));
+
+        first.setOperating(false);
+        assertTrue(first.isOperating());
+        assertFalse(first.isInService());
+        // Nearer, but draining
+        assertSame(second, controller.getDispatchStrategy().selectElevator(controller, ElevatorState.DOWN, 2, 0));
+        simulator.run();
+
+        assertSame(second, waiting.getElevator());
+        assertTrue(waiting.isDroppedOff());
+        assertTrue(onboard.isDroppedOff());
+        assertFalse(first.isOperating());
+        assertEquals(ElevatorState.MAINTAINANCE, first.getElevatorState());
+        // Where it dropped the last user off, not back at the lobby
+        assertEquals(10, first.getCurrentFloor());
+        assertEquals(0, first.getLoad());
+        assertEquals(1, controller.getMetrics().snapshot().getRequestsReassigned());
+    }
+
+    @Test
+    public void testDrainKeepsRequestsNoOtherElevatorCanTake() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(1);
+        ElevatorController controller = simulator.getController();
+        Elevator elevator = controller.getElevatorList().get(0);
+
+        ElevatorRequest onboard = new ElevatorRequest(0, 10);
+        simulator.submit(0, onboard);
+        simulator.runUntil(3000);
+        ElevatorRequest waiting = new ElevatorRequest(8, 12);
+        controller.selectElevator(waiting);
+
+        elevator.setOperating(false);
+        simulator.run();
+
+        assertSame(elevator, waiting.getElevator());
+        assertTrue(waiting.isDroppedOff());
+        assertTrue(onboard.isDroppedOff());
+        assertEquals(ElevatorState.MAINTAINANCE, elevator.getElevatorState());
+        assertEquals(12, elevator.getCurrentFloor());
+        assertEquals(0, controller.getMetrics().snapshot().getRequestsReassigned());
+    }
+
+    @Test
+    public void testDrainHandsOverHallCalls() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(2);
+        ElevatorController controller = simulator.getController();
+        Elevator first = controller.getElevatorList().get(0);
+        Elevator second = controller.getElevatorList().get(1);
+        second.setCurrentFloor(12);
+        controller.updateElevatorLists(second);
+
+        assertSame(first, controller.dispatch(HallCall.pack(3, 6, 1, 0)));
+        first.setOperating(false);
+        simulator.run();
+
+        assertEquals(ElevatorState.MAINTAINANCE, first.getElevatorState());
+        assertEquals(0, first.getCurrentFloor());
+        assertEquals(0, first.getLoad());
+        assertEquals(6, second.getCurrentFloor());
+        assertEquals(0, second.getLoad());
+        MetricsSnapshot snapshot = controller.getMetrics().snapshot();
+        assertEquals(1, snapshot.getRequestsReassigned());
+        assertEquals(1, snapshot.getRequestsDroppedOff());
+    }
+
+    @Test
+    public void testOutOfServiceBeforeFirstMove() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(2);
+        ElevatorController controller = simulator.getController();
+        Elevator first = controller.getElevatorList().get(0);
+        Elevator second = controller.getElevatorList().get(1);
+
+        first.setOperating(false);
+        simulator.run();
+        assertFalse(first.isOperating());
+        assertEquals(ElevatorState.MAINTAINANCE, first.getElevatorState());
+
+        ElevatorRequest request = new ElevatorRequest(0, 5);
+        simulator.submit(simulator.getClock().currentTimeMillis(), request);
+        simulator.run();
+        assertSame(second, request.getElevator());
+        assertEquals(0, first.getCurrentFloor());
+    }
+
+    @Test
+    public void testReturnsToServiceWhereItStopped() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(1);
+        ElevatorController controller = simulator.getController();
+        Elevator elevator = controller.getElevatorList().get(0);
+
+        simulator.submit(0, new ElevatorRequest(0, 7));
+        simulator.runUntil(2000);
+        elevator.setOperating(false);
+        simulator.run();
+        assertEquals(7, elevator.getCurrentFloor());
+        assertNull(controller.selectElevator(new ElevatorRequest(3, 0)));
+
+        elevator.setOperating(true);
+        assertTrue(elevator.isInService());
+        assertEquals(ElevatorState.STATIONARY, elevator.getElevatorState());
+        assertEquals(7, elevator.getCurrentFloor());
+
+        ElevatorRequest request = new ElevatorRequest(6, 2);
+        simulator.submit(simulator.getClock().currentTimeMillis(), request);
+        simulator.run();
+        assertSame(elevator, request.getElevator());
+        assertTrue(request.isDroppedOff());
+        assertEquals(2, elevator.getCurrentFloor());
+        assertEquals(ElevatorState.STATIONARY, elevator.getElevatorState());
+    }
+
+    @Test
+    public void testBackInServiceBeforeDrained() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(1);
+        Elevator elevator = simulator.getController().getElevatorList().get(0);
+
+        ElevatorRequest request = new ElevatorRequest(0, 10);
+        simulator.submit(0, request);
+        simulator.runUntil(3000);
+        elevator.setOperating(false);
+        elevator.setOperating(true);
+        simulator.run();
+
+        assertTrue(request.isDroppedOff());
+        assertTrue(elevator.isInService());
+        assertEquals(ElevatorState.STATIONARY, elevator.getElevatorState());
+        assertEquals(10, elevator.getCurrentFloor());
+    }
+}
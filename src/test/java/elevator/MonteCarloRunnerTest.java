@@ -0,0 +1,90 @@
+package elevator;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class MonteCarloRunnerTest {
+
+    private final BuildingConfig building = BuildingConfig.builder().elevators(4).floors(0, 15).build();
+
+    private final List<MonteCarloRunner.Scenario> grid = Arrays.asList(
+            new MonteCarloRunner.Scenario("nearest", building, TrafficGenerator.Pattern.UP_PEAK, 20, 120000),
+            new MonteCarloRunner.Scenario("destination", building, TrafficGenerator.Pattern.UP_PEAK, 20, 120000)
+                    .dispatchStrategy(() -> new DestinationDispatchStrategy(new EtaDispatchStrategy()))
+                    .parkingPolicy(DemandParkingPolicy::new));
+
+    @Test
+    public void testSameResultOnAnyNumberOfThreads() throws Exception {
+        List<MonteCarloReport> sequential = run(1);
+        List<MonteCarloReport> parallel = run(4);
+        assertEquals(2, parallel.size());
+        for(int i=0; i<sequential.size(); i++){
+            assertSameReport(sequential.get(i), parallel.get(i));
+        }
+        assertEquals("nearest", parallel.get(0).getScenario());
+        assertEquals("destination", parallel.get(1).getScenario());
+    }
+
+    @Test
+    public void testMergesEveryRun() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        MonteCarloReport merged;
+        try {
+            merged = new MonteCarloRunner(pool).run(grid.get(1), 7, 10);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(10, merged.getRuns());
+
+        long requests = 0;
+        long delivered = 0;
+        long waitCount = 0;
+        long maxWait = 0;
+        long floors = 0;
+        for(long seed=7; seed<17; seed++){
+            TrafficReport run = MonteCarloRunner.simulate(grid.get(1), seed);
+            requests += run.getRequests();
+            delivered += run.getDelivered();
+            waitCount += run.getWaitMillis().getTotalCount();
+            maxWait = Math.max(maxWait, run.getWaitMillis().getMax());
+            floors += run.getMetrics().getFloorsTravelled();
+        }
+        assertEquals(requests, merged.getRequests());
+        assertEquals(delivered, merged.getDelivered());
+        assertEquals(waitCount, merged.getWaitMillis().getTotalCount());
+        assertEquals(maxWait, merged.getWaitMillis().getMax());
+        assertEquals(floors, merged.getFloorsTravelled());
+        assertEquals(floors + MonteCarloReport.STOP_ENERGY_FLOORS * merged.getStops(), merged.getEnergy(), 0.001);
+        assertTrue(merged.getEnergyPerPassenger() > 0);
+    }
+
+    private List<MonteCarloReport> run(int threads){
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return new MonteCarloRunner(pool).run(grid, 1, 12);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertSameReport(MonteCarloReport expected, MonteCarloReport actual){
+        assertEquals(expected.getRuns(), actual.getRuns());
+        assertEquals(expected.getRequests(), actual.getRequests());
+        assertEquals(expected.getDelivered(), actual.getDelivered());
+        assertEquals(expected.getSimulatedMillis(), actual.getSimulatedMillis());
+        assertEquals(expected.getFloorsTravelled(), actual.getFloorsTravelled());
+        assertEquals(expected.getStops(), actual.getStops());
+        for(double percentile : new double[]{50, 90, 99, 100}){
+            assertEquals(expected.getWaitMillis().getValueAtPercentile(percentile),
+                    actual.getWaitMillis().getValueAtPercentile(percentile));
+            assertEquals(expected.getRideMillis().getValueAtPercentile(percentile),
+                    actual.getRideMillis().getValueAtPercentile(percentile));
+        }
+        assertEquals(expected.toString(), actual.toString());
+    }
+}
@@ -0,0 +1,106 @@
+package elevator;
+
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class MotionProfileTest {
+
+    // 2.5 m/s, 1 m/s^2, 1.5 m/s^3, 3.5 m floors, doors 2+3+3 s
+    private final MotionProfile typical = MotionProfile.builder().build();
+
+    @Test
+    public void testUniform() throws Exception {
+        assertEquals(0, MotionProfile.UNIFORM.travelMillis(0));
+        assertEquals(1000, MotionProfile.UNIFORM.travelMillis(1));
+        assertEquals(20000, MotionProfile.UNIFORM.travelMillis(20));
+        assertEquals(1000, MotionProfile.UNIFORM.floorMillis());
+        assertEquals(0, MotionProfile.UNIFORM.stopMillis());
+        assertEquals(0, MotionProfile.UNIFORM.stopDelayMillis());
+        MotionProfile slow = MotionProfile.uniform(500, 2000);
+        assertEquals(2000, slow.travelMillis(4));
+        assertEquals(2000, slow.stopDelayMillis());
+    }
+
+    @Test
+    public void testExpressRunFasterThanHops() throws Exception {
+        // Never reaches top speed in one floor
+        assertEquals(4467, typical.travelMillis(1));
+        // Cruises from three floors on: 10.5 m at 2.5 m/s plus 3.17 s ramping
+        assertEquals(7367, typical.travelMillis(3));
+        assertEquals(31167, typical.travelMillis(20));
+        assertTrue(typical.travelMillis(20) < 20 * typical.travelMillis(1) / 2);
+        assertEquals(1400, typical.floorMillis());
+        // Stopping on the way costs the doors and the time lost slowing down and speeding up
+        assertEquals(8000, typical.stopMillis());
+        assertEquals(typical.travelMillis(10) * 2 - typical.travelMillis(20) + typical.stopMillis(),
+                typical.stopDelayMillis());
+    }
+
+    @Test
+    public void testShortRuns() throws Exception {
+        // Without a jerk limit: accelerate to halfway and brake
+        MotionProfile noJerk = typical.toBuilder().jerk(Double.POSITIVE_INFINITY).build();
+        assertEquals(3742, noJerk.travelMillis(1));
+        // Too short to reach full acceleration: 4 * cbrt(0.5 m / 2 / 1.5 m/s^3)
+        MotionProfile low = typical.toBuilder().floorHeight(0.5).build();
+        assertEquals(Math.round(4000 * Math.cbrt(0.5 / 3)), low.travelMillis(1));
+        for(int floors=1; floors<40; floors++){
+            assertTrue(low.travelMillis(floors) < low.travelMillis(floors + 1));
+        }
+    }
+
+    @Test
+    public void testFromProperties() throws Exception {
+        Properties properties = new Properties();
+        assertSame(MotionProfile.UNIFORM, MotionProfile.fromProperties(properties, "elevator.motion.", MotionProfile.UNIFORM));
+
+        properties.setProperty("elevator.motion.speed", "5");
+        properties.setProperty("elevator.motion.acceleration", "1.2");
+        properties.setProperty("elevator.motion.dwell", "4000");
+        MotionProfile profile = MotionProfile.fromProperties(properties, "elevator.motion.", typical);
+        assertEquals(5, profile.getSpeed(), 0);
+        assertEquals(1.2, profile.getAcceleration(), 0);
+        assertEquals(1.5, profile.getJerk(), 0);
+        assertEquals(4000, profile.getDwellMillis());
+        assertEquals(2000 + 4000 + 3000, profile.stopMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProperty() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("elevator.motion.speed", "fast");
+        MotionProfile.fromProperties(properties, "elevator.motion.", typical);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDoorTime() throws Exception {
+        MotionProfile.builder().doors(2000, -1, 3000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInfiniteSpeed() throws Exception {
+        MotionProfile.builder().speed(Double.POSITIVE_INFINITY).build();
+    }
+
+    @Test
+    public void testSimulatorTimesRunsBetweenStops() throws Exception {
+        BuildingConfig building = BuildingConfig.builder().elevators(1).floors(0, 20)
+                .motionProfile(typical.toBuilder().doors(1000, 2000, 1000).build()).build();
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(building);
+        ElevatorRequest express = new ElevatorRequest(0, 20);
+        ElevatorRequest local = new ElevatorRequest(0, 10);
+        simulator.submit(0, express);
+        simulator.submit(0, local);
+        simulator.run();
+
+        // Doors at 0, ten floors, doors at 10, ten more floors
+        assertEquals(0, express.getPickedUpMillis());
+        assertEquals(4000 + 17167, local.getDroppedOffMillis());
+        assertEquals(2 * (4000 + 17167), express.getDroppedOffMillis());
+        // Doors again at 20, but not at the floors passed by
+        assertEquals(2 * (4000 + 17167) + 4000, simulator.getClock().currentTimeMillis());
+    }
+}
@@ -0,0 +1,119 @@
+package elevator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RealTimeDriverTest {
+
+    private final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+    private RealTimeDriver driver;
+    private ElevatorController controller;
+
+    @Before
+    public void setUp() throws Exception {
+        final ThreadFactory factory = Executors.defaultThreadFactory();
+        driver = new RealTimeDriver(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = factory.newThread(r);
+                threads.add(t);
+                return t;
+            }
+        });
+        controller = new ElevatorController(BuildingConfig.builder().elevators(2).build(), driver);
+        controller.setConsoleOutput(false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        driver.close();
+    }
+
+    private void assertThreadsEnd() throws Exception {
+        for(Thread t : threads){
+            t.join(5000);
+            assertFalse(t.getName() + " still running", t.isAlive());
+        }
+    }
+
+    @Test
+    public void testCloseStopsIdleThreads() throws Exception {
+        ElevatorRequest request = new ElevatorRequest(0, 1);
+        assertNotNull(controller.submitAsync(request).get(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10000;
+        while(!request.isDroppedOff() && System.currentTimeMillis() < deadline){
+            Thread.sleep(50);
+        }
+        assertTrue(request.isDroppedOff());
+        // Both elevators and the dispatcher
+        assertEquals(3, threads.size());
+
+        driver.close();
+        assertThreadsEnd();
+    }
+
+    @Test
+    public void testCloseStopsMovingElevators() throws Exception {
+        ElevatorRequest request = new ElevatorRequest(0, 10);
+        Elevator elevator = controller.selectElevator(request);
+        assertNotNull(elevator);
+        Thread.sleep(100);
+
+        driver.close();
+        assertThreadsEnd();
+        assertFalse(request.isDroppedOff());
+    }
+
+    private Thread threadOf(Elevator elevator){
+        Thread last = null;
+        for(Thread t : threads){
+            if(t.getName().equals("elevator-" + elevator.getId())){
+                last = t;
+            }
+        }
+        return last;
+    }
+
+    @Test
+    public void testOutOfServiceThreadEndsAndRestarts() throws Exception {
+        Elevator first = controller.getElevatorList().get(0);
+        Elevator second = controller.getElevatorList().get(1);
+        Thread retired = threadOf(first);
+        first.setOperating(false);
+        retired.join(5000);
+        assertFalse(retired.isAlive());
+        assertEquals(ElevatorState.MAINTAINANCE, first.getElevatorState());
+
+        // Back in service on a new thread, and the only one left to serve requests
+        first.setOperating(true);
+        assertNotSame(retired, threadOf(first));
+        assertTrue(threadOf(first).isAlive());
+        Thread other = threadOf(second);
+        second.setOperating(false);
+        other.join(5000);
+        assertFalse(other.isAlive());
+
+        ElevatorRequest request = new ElevatorRequest(0, 1);
+        assertSame(first, controller.selectElevator(request));
+        long deadline = System.currentTimeMillis() + 10000;
+        while(!request.isDroppedOff() && System.currentTimeMillis() < deadline){
+            Thread.sleep(50);
+        }
+        assertTrue(request.isDroppedOff());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoElevatorsAfterClose() throws Exception {
+        driver.close();
+        new ElevatorController(BuildingConfig.builder().elevators(1).build(), driver);
+    }
+}
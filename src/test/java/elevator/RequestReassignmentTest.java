@@ -0,0 +1,80 @@
+package elevator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RequestReassignmentTest {
+
+    private DiscreteEventSimulator simulator;
+    private ElevatorController controller;
+    private Elevator first;
+    private Elevator second;
+
+    @Before
+    public void setUp() throws Exception {
+        simulator = new DiscreteEventSimulator(2);
+        controller = simulator.getController();
+        first = controller.getElevatorList().get(0);
+        second = controller.getElevatorList().get(1);
+
+        second.setCurrentFloor(14);
+        controller.updateElevatorLists(second);
+
+        // second is busy going DOWN, so the UP request from 10 goes to first at floor 0
+        simulator.submit(0, new ElevatorRequest(14, 13));
+        simulator.runUntil(500);
+        assertEquals(ElevatorState.DOWN, second.getElevatorState());
+    }
+
+    @Test
+    public void testHandsOverToElevatorThatBecameFree() throws Exception {
+        ElevatorRequest request = new ElevatorRequest(10, 15);
+        simulator.submit(900, request);
+        simulator.runUntil(900);
+        assertSame(first, request.getElevator());
+
+        // second stops at 13 right after, while first still has 8 floors to go, while first still has 8 floors to go
+        simulator.runUntil(3000);
+        assertEquals(1, controller.reassignRequests());
+        assertSame(second, request.getElevator());
+
+        simulator.run();
+        assertTrue(request.isPickedUp());
+        assertTrue(request.isDroppedOff());
+        assertEquals(15, second.getCurrentFloor());
+        assertTrue(first.getCurrentFloor() < 10);
+        assertEquals(ElevatorState.STATIONARY, first.getElevatorState());
+    }
+
+    @Test
+    public void testKeepsRequestsAlreadyPickedUp() throws Exception {
+        ElevatorRequest request = new ElevatorRequest(0, 15);
+        simulator.submit(1000, request);
+        simulator.runUntil(3000);
+        assertTrue(request.isPickedUp());
+        assertEquals(0, controller.reassignRequests());
+        assertSame(first, request.getElevator());
+    }
+
+    @Test
+    public void testPeriodicReassignment() throws Exception {
+        controller.setReassignIntervalMillis(1000);
+        ElevatorRequest request = new ElevatorRequest(10, 15);
+        simulator.submit(900, request);
+        simulator.run();
+        assertSame(second, request.getElevator());
+        assertTrue(request.isDroppedOff());
+    }
+
+    @Test
+    public void testRequestCannotBeTakenFromAnotherElevator() throws Exception {
+        ElevatorRequest request = new ElevatorRequest(10, 15);
+        simulator.submit(900, request);
+        simulator.runUntil(900);
+        assertFalse(request.reassign(second, first));
+        assertFalse(request.pickUp(second, 900));
+        assertSame(first, request.getElevator());
+    }
+}
@@ -0,0 +1,65 @@
+package elevator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ScheduledDriverTest {
+
+    private ScheduledThreadPoolExecutor executor;
+    private ElevatorController controller;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = new ScheduledThreadPoolExecutor(2);
+        BuildingConfig config = BuildingConfig.builder().elevators(256).build();
+        controller = new ElevatorController(config, new ScheduledDriver(executor));
+        controller.setConsoleOutput(false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testIdleElevatorsScheduleNothing() throws Exception {
+        assertEquals(0, executor.getQueue().size());
+        assertEquals(0, executor.getCompletedTaskCount());
+    }
+
+    @Test
+    public void testServesRequests() throws Exception {
+        ElevatorRequest request = new ElevatorRequest(0, 2);
+        Elevator elevator = controller.selectElevator(request);
+        assertNotNull(elevator);
+
+        CompletableFuture<Elevator> async = controller.submitAsync(new ElevatorRequest(1, 0));
+        assertNotNull(async.get(5, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while(!request.isDroppedOff() && System.currentTimeMillis() < deadline){
+            Thread.sleep(50);
+        }
+        assertTrue(request.isDroppedOff());
+        assertEquals(2, elevator.getCurrentFloor());
+
+        // Once everybody has arrived, nothing is left scheduled
+        deadline = System.currentTimeMillis() + 5000;
+        while((executor.getQueue().size() > 0 || executor.getActiveCount() > 0) && System.currentTimeMillis() < deadline){
+            Thread.sleep(50);
+        }
+        assertEquals(0, executor.getQueue().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDriver() throws Exception {
+        ElevatorController.createDriver("fibers", 1);
+    }
+}
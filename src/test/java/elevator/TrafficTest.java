@@ -0,0 +1,137 @@
+package elevator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class TrafficTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BuildingConfig building = BuildingConfig.builder().elevators(4).floors(0, 15).build();
+
+    @Test
+    public void testUpPeakMostlyLeavesTheLobby() throws Exception {
+        TrafficTrace trace = new TrafficGenerator(building, 42).generate(TrafficGenerator.Pattern.UP_PEAK, 120, 600000);
+
+        // 120 a minute for 10 minutes
+        assertEquals(1200, trace.size(), 150);
+        int fromLobby = 0;
+        for(int i=0; i<trace.size(); i++){
+            assertNotEquals(trace.getRequestFloor(i), trace.getTargetFloor(i));
+            assertTrue(building.hasFloor(trace.getRequestFloor(i)) && building.hasFloor(trace.getTargetFloor(i)));
+            assertTrue(trace.getTime(i) < 600000);
+            if(i > 0){
+                assertTrue(trace.getTime(i) >= trace.getTime(i - 1));
+            }
+            if(trace.getRequestFloor(i) == 0){
+                fromLobby++;
+            }
+        }
+        assertEquals(0.85, (double) fromLobby / trace.size(), 0.05);
+    }
+
+    @Test
+    public void testDownPeakMostlyGoesToTheLobby() throws Exception {
+        TrafficTrace trace = new TrafficGenerator(building, 42).generate(TrafficGenerator.Pattern.DOWN_PEAK, 120, 600000);
+        int toLobby = 0;
+        for(int i=0; i<trace.size(); i++){
+            if(trace.getTargetFloor(i) == 0){
+                toLobby++;
+            }
+        }
+        assertEquals(0.85, (double) toLobby / trace.size(), 0.05);
+    }
+
+    @Test
+    public void testPoissonPerFloor() throws Exception {
+        double[] rates = new double[16];
+        rates[3] = 30;
+        rates[9] = 10;
+        TrafficTrace trace = new TrafficGenerator(building, 7).poisson(rates, 600000);
+
+        int fromThree = 0;
+        for(int i=0; i<trace.size(); i++){
+            int from = trace.getRequestFloor(i);
+            assertTrue(from == 3 || from == 9);
+            if(from == 3){
+                fromThree++;
+            }
+        }
+        assertEquals(400, trace.size(), 60);
+        assertEquals(0.75, (double) fromThree / trace.size(), 0.06);
+    }
+
+    @Test
+    public void testSameSeedSameTrace() throws Exception {
+        TrafficTrace first = new TrafficGenerator(building, 3).generate(TrafficGenerator.Pattern.LUNCH, 60, 60000);
+        TrafficTrace second = new TrafficGenerator(building, 3).generate(TrafficGenerator.Pattern.LUNCH, 60, 60000);
+        assertEquals(first.size(), second.size());
+        for(int i=0; i<first.size(); i++){
+            assertEquals(first.getTime(i), second.getTime(i));
+            assertEquals(first.getRequestFloor(i), second.getRequestFloor(i));
+            assertEquals(first.getTargetFloor(i), second.getTargetFloor(i));
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        TrafficTrace trace = new TrafficTrace().add(0, 0, 5).add(1500, 7, 2);
+        Path file = folder.newFile("trace.csv").toPath();
+        trace.write(file);
+
+        TrafficTrace read = TrafficTrace.read(file);
+        assertEquals(2, read.size());
+        assertEquals(1500, read.getTime(1));
+        assertEquals(7, read.getRequestFloor(1));
+        assertEquals(2, read.getTargetFloor(1));
+    }
+
+    @Test
+    public void testReplayReportsEveryRequest() throws Exception {
+        TrafficTrace trace = new TrafficGenerator(building, 1).generate(TrafficGenerator.Pattern.INTERFLOOR, 20, 300000);
+        TrafficReport report = trace.replay(new DiscreteEventSimulator(building));
+
+        assertEquals(trace.size(), report.getRequests());
+        assertEquals(report.getRequests(), report.getDelivered() + report.getUnserved());
+        assertTrue(report.getSimulatedMillis() >= trace.getTime(trace.size() - 1));
+        assertTrue(report.getThroughputPerMinute() > 0);
+        assertEquals(report.getRequests(), report.getWaitMillis().getTotalCount());
+    }
+
+    @Test
+    public void testRequestsNoElevatorCouldTakeAreRetried() throws Exception {
+        // Small cars at a busy up-peak: the nearest strategy often finds none with room
+        BuildingConfig small = BuildingConfig.builder().elevators(4).floors(0, 15).capacity(2).build();
+        TrafficTrace trace = new TrafficGenerator(small, 7).generate(TrafficGenerator.Pattern.UP_PEAK, 600, 120000);
+        TrafficReport report = trace.replay(new DiscreteEventSimulator(small));
+
+        assertTrue(report.getUnassigned() > 0);
+        assertEquals(0, report.getUnserved());
+        assertEquals(trace.size(), report.getDelivered());
+        assertEquals(trace.size(), report.getWaitMillis().getTotalCount());
+    }
+
+    @Test
+    public void testUnservedRequestsWaitUntilTheEnd() throws Exception {
+        DiscreteEventSimulator simulator = new DiscreteEventSimulator(1);
+        simulator.getController().getElevatorList().get(0).setOperating(false);
+        TrafficReport report = new TrafficTrace().add(1000, 0, 5).replay(simulator);
+
+        assertEquals(0, report.getDelivered());
+        assertEquals(1, report.getUnserved());
+        // Tried once more a second later, then nothing else was going on
+        assertEquals(1, report.getWaitMillis().getTotalCount());
+        assertEquals(DiscreteEventSimulator.RETRY_MILLIS, report.getWaitMillis().getMax(), DiscreteEventSimulator.RETRY_MILLIS / 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReplayRejectsFloorsOutsideTheBuilding() throws Exception {
+        new TrafficTrace().add(0, 0, 20).replay(new DiscreteEventSimulator(building));
+    }
+}